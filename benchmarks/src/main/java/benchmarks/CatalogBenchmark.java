@@ -0,0 +1,97 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.catalog.CourseCatalog;
+import server.catalog.CourseFile;
+import server.models.Course;
+
+/**
+ * Mesure la lecture du catalogue des cours: le parcours complet du fichier
+ * que faisait autrefois chaque requête {@code CHARGER}, sa version par
+ * projection en mémoire, le chargement du
+ * catalogue en mémoire et la recherche d'une session dans le catalogue chargé.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+
+    private static final long NO_RELOAD = TimeUnit.DAYS.toMillis(1);
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    private Path path;
+    private CourseCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = SyntheticData.writeCatalog(rows);
+        catalog = new CourseCatalog(path, NO_RELOAD);
+    }
+
+    /**
+     * Le parcours du fichier fait par {@code handleLoadCourses} avant le
+     * catalogue en mémoire.
+     */
+    @Benchmark
+    public List<Course> scanFileForSession() throws IOException {
+        List<Course> courses = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path.toFile()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    String code = parts[0].trim();
+                    String title = parts[1].trim();
+                    String session = parts[2].trim();
+                    if ("Automne".equals(session)) {
+                        courses.add(new Course(title, code, session));
+                    }
+                }
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * La lecture d'une session par projection du fichier en mémoire.
+     */
+    @Benchmark
+    public List<Course> mappedScanForSession() throws IOException {
+        return CourseFile.readSession(path, "Automne");
+    }
+
+    @Benchmark
+    public CourseCatalog loadCatalog() throws IOException {
+        return new CourseCatalog(path, NO_RELOAD);
+    }
+
+    @Benchmark
+    public List<Course> lookupSession() {
+        return catalog.getCourses("Automne");
+    }
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.models.RegistrationForm;
+import server.registration.RegistrationIndex;
+import server.registration.RegistrationJournal;
+import server.registration.RegistrationLog;
+
+/**
+ * Mesure l'enregistrement des inscriptions: l'ouverture, l'écriture et la
+ * fermeture d'un {@code FileWriter} par inscription que faisait autrefois
+ * {@code handleRegistration}, l'ajout par le journal à écriture groupée, et la
+ * reconstruction de l'index des inscriptions au démarrage, en relisant le
+ * journal segmenté comme le fait le serveur.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    @Param({ "false", "true" })
+    public boolean force;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private Path logDirectory;
+    private Path appendTarget;
+    private RegistrationJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logDirectory = Files.createTempDirectory("inscriptions");
+        try (RegistrationLog log = openLog(logDirectory, null)) {
+            log.importText(SyntheticData.writeRegistrations(rows), new IgnoredReplay());
+        }
+        appendTarget = Files.createTempFile("inscription", ".txt");
+        appendTarget.toFile().deleteOnExit();
+        journal = new RegistrationJournal(appendTarget, RegistrationJournal.DEFAULT_BATCH_SIZE,
+                RegistrationJournal.DEFAULT_LINGER, force);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(logDirectory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fileWriterAppend() throws IOException {
+        RegistrationForm form = SyntheticData.registration(next.incrementAndGet());
+        try (FileWriter fileWriter = new FileWriter(appendTarget.toFile(), true)) {
+            fileWriter.write(RegistrationJournal.format(form));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void journalAppend() throws InterruptedException, ExecutionException {
+        journal.append(SyntheticData.registration(next.incrementAndGet())).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RegistrationIndex loadIndex() throws IOException {
+        RegistrationIndex index = new RegistrationIndex(RegistrationIndex.UNLIMITED);
+        openLog(logDirectory, index).close();
+        return index;
+    }
+
+    /**
+     * Ouvre le journal sans forcer les écritures ni le compacter, en relisant
+     * ses inscriptions dans un index.
+     */
+    private static RegistrationLog openLog(Path directory, RegistrationIndex index) throws IOException {
+        return RegistrationLog.open(directory, RegistrationLog.DEFAULT_SEGMENT_SIZE, false, Integer.MAX_VALUE,
+                index == null ? new IgnoredReplay() : new RegistrationLog.Replay() {
+                    @Override
+                    public void registered(RegistrationForm form) {
+                        index.restore(form.getCourse().getSession(), form.getCourse().getCode(),
+                                form.getMatricule());
+                    }
+
+                    @Override
+                    public void cancelled(String session, String code, String matricule) {
+                        index.release(session, code, matricule);
+                    }
+                });
+    }
+
+    private static class IgnoredReplay implements RegistrationLog.Replay {
+        @Override
+        public void registered(RegistrationForm form) {
+        }
+
+        @Override
+        public void cancelled(String session, String code, String matricule) {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+import server.protocol.BinaryCodec;
+
+/**
+ * Compare la sérialisation Java et le codec binaire pour les réponses à
+ * {@code CHARGER} et les formulaires d'inscription.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int courses;
+
+    private List<Course> list;
+    private RegistrationForm form;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = SyntheticData.courses(courses);
+        form = SyntheticData.registration(42);
+    }
+
+    @Benchmark
+    public byte[] javaSerializeCourses() throws IOException {
+        return serialize(list);
+    }
+
+    @Benchmark
+    public byte[] binaryEncodeCourses() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BinaryCodec.writeCourses(out, list);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] javaSerializeForm() throws IOException {
+        return serialize(form);
+    }
+
+    @Benchmark
+    public byte[] binaryEncodeForm() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BinaryCodec.writeRegistrationForm(out, form);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * Génère des catalogues de cours et des fichiers d'inscriptions synthétiques
+ * au format des fichiers du serveur.
+ */
+final class SyntheticData {
+
+    static final String[] SESSIONS = { "Automne", "Hiver", "Ete" };
+    private static final String[] DEPARTMENTS = { "IFT", "MAT", "PHY", "CHM", "BIO", "ECN", "PSY", "HAR" };
+
+    private SyntheticData() {
+    }
+
+    static Course course(int i) {
+        String code = DEPARTMENTS[i % DEPARTMENTS.length] + String.format("%04d", i / DEPARTMENTS.length % 10000);
+        return new Course("Cours_numero_" + i, code, SESSIONS[i % SESSIONS.length]);
+    }
+
+    static List<Course> courses(int count) {
+        List<Course> courses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            courses.add(course(i));
+        }
+        return courses;
+    }
+
+    static RegistrationForm registration(int i) {
+        return new RegistrationForm("Prenom" + i, "Nom" + i, "etudiant" + i + "@umontreal.ca",
+                String.format("%08d", i), course(i));
+    }
+
+    /**
+     * Écrit un catalogue de {@code rows} cours au format de {@code cours.txt}.
+     */
+    static Path writeCatalog(int rows) throws IOException {
+        Path path = Files.createTempFile("cours", ".txt");
+        path.toFile().deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                Course course = course(i);
+                out.write(course.getCode() + "\t" + course.getName() + "\t" + course.getSession() + "\n");
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Écrit {@code rows} inscriptions au format de {@code inscription.txt}.
+     */
+    static Path writeRegistrations(int rows) throws IOException {
+        Path path = Files.createTempFile("inscription", ".txt");
+        path.toFile().deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                RegistrationForm form = registration(i);
+                out.write(String.format("%s\t%s\t%s\t%s\t%s\t%s%n", form.getCourse().getSession(),
+                        form.getCourse().getCode(), form.getMatricule(), form.getPrenom(), form.getNom(),
+                        form.getEmail()));
+            }
+        }
+        return path;
+    }
+}
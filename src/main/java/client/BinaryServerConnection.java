@@ -0,0 +1,175 @@
+package client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.Course;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.RetryLater;
+import server.models.SearchQuery;
+import server.protocol.BinaryCodec;
+import server.protocol.Frame;
+import server.protocol.Protocol;
+
+/**
+ * Connexion au serveur qui parle le protocole binaire.
+ */
+class BinaryServerConnection extends ServerConnection {
+
+    private DataInputStream input;
+    private DataOutputStream output;
+
+    BinaryServerConnection(String host, int port) {
+        super(host, port);
+    }
+
+    @Override
+    protected void connect() throws IOException {
+        socket = openSocket();
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        output.writeByte(Protocol.MAGIC);
+        output.writeByte(Protocol.VERSION);
+        output.flush();
+        byte accepted = input.readByte();
+        if (accepted != Protocol.VERSION) {
+            socket.close();
+            throw new ProtocolException("Version du protocole refusée par le serveur: " + accepted);
+        }
+    }
+
+    @Override
+    protected List<Course> requestCourses(String session) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.LOAD, out -> BinaryCodec.writeString(out, session));
+        output.flush();
+        return BinaryCodec.readCourses(expect(Protocol.COURSES).input());
+    }
+
+    @Override
+    protected String requestRegistration(RegistrationForm registration) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.REGISTER, out -> BinaryCodec.writeRegistrationForm(out, registration));
+        output.flush();
+        return BinaryCodec.readString(expect(Protocol.MESSAGE).input());
+    }
+
+    @Override
+    protected String requestCancellation(RegistrationForm registration) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.CANCEL_REGISTRATION,
+                out -> BinaryCodec.writeRegistrationForm(out, registration));
+        output.flush();
+        return BinaryCodec.readString(expect(Protocol.MESSAGE).input());
+    }
+
+    @Override
+    protected List<RegistrationResult> requestBatchRegistration(BatchRegistrationForm registration)
+            throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.REGISTER_BATCH,
+                out -> BinaryCodec.writeBatchRegistrationForm(out, registration));
+        output.flush();
+        return BinaryCodec.readRegistrationResults(expect(Protocol.RESULTS).input());
+    }
+
+    @Override
+    protected List<RegistrationForm> requestCourseRegistrations(String session, String code) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.LIST_COURSE_REGISTRATIONS, out -> {
+            BinaryCodec.writeString(out, session);
+            BinaryCodec.writeString(out, code);
+        });
+        output.flush();
+        return BinaryCodec.readRegistrationForms(expect(Protocol.REGISTRATIONS).input());
+    }
+
+    @Override
+    protected List<RegistrationForm> requestStudentRegistrations(String matricule) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.LIST_STUDENT_REGISTRATIONS,
+                out -> BinaryCodec.writeString(out, matricule));
+        output.flush();
+        return BinaryCodec.readRegistrationForms(expect(Protocol.REGISTRATIONS).input());
+    }
+
+    @Override
+    protected CoursePage requestSearch(SearchQuery query) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.SEARCH, out -> BinaryCodec.writeSearchQuery(out, query));
+        output.flush();
+        return BinaryCodec.readCoursePage(expect(Protocol.PAGE).input());
+    }
+
+    @Override
+    protected void requestCoursePages(SearchQuery query, Consumer<CoursePage> listener) throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.LOAD_PAGES, out -> BinaryCodec.writeSearchQuery(out, query));
+        output.flush();
+        readPages(listener);
+    }
+
+    @Override
+    protected CatalogVersion requestCoursesIfModified(String session, String tag, Consumer<CoursePage> listener)
+            throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.LOAD_IF_MODIFIED, out -> {
+            BinaryCodec.writeString(out, session);
+            BinaryCodec.writeString(out, tag);
+        });
+        output.flush();
+        CatalogVersion version = BinaryCodec.readCatalogVersion(expect(Protocol.CATALOG_VERSION).input());
+        if (version.isModified()) {
+            readPages(listener);
+        }
+        return version;
+    }
+
+    @Override
+    protected void sendClose() throws IOException {
+        BinaryCodec.writeFrame(output, Protocol.CLOSE, out -> {
+        });
+        output.flush();
+    }
+
+    /**
+     * Lit les pages envoyées par le serveur jusqu'à la dernière.
+     *
+     * @param listener L'écouteur qui reçoit chaque page, dans l'ordre.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    private void readPages(Consumer<CoursePage> listener) throws IOException {
+        CoursePage page;
+        do {
+            page = BinaryCodec.readCoursePage(expect(Protocol.PAGE).input());
+            listener.accept(page);
+        } while (page.hasMore());
+    }
+
+    /**
+     * Lit la prochaine trame du serveur et vérifie son code d'opération.
+     *
+     * @param opcode Le code d'opération attendu.
+     * @return La trame reçue.
+     * @throws RequestRefusedException Si le serveur a refusé la requête.
+     * @throws IOException             Si la trame n'est pas celle attendue ou si
+     *                                 une erreur de communication réseau se
+     *                                 produit.
+     */
+    private Frame expect(byte opcode) throws IOException {
+        Frame frame = BinaryCodec.readFrame(input);
+        if (frame.getOpcode() == Protocol.ERROR) {
+            throw new RequestRefusedException(BinaryCodec.readString(frame.input()));
+        }
+        if (frame.getOpcode() == Protocol.RETRY_LATER) {
+            RetryLater retry = BinaryCodec.readRetryLater(frame.input());
+            throw new ServerBusyException(retry.getRetryAfter(), retry.getMessage());
+        }
+        if (frame.getOpcode() != opcode) {
+            throw new ProtocolException("Réponse inattendue du serveur: " + frame.getOpcode());
+        }
+        return frame;
+    }
+}
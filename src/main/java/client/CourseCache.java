@@ -0,0 +1,155 @@
+package client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import server.models.Course;
+
+/**
+ * La classe CourseCache garde, pour chaque session, la dernière liste des
+ * cours reçue du serveur et son étiquette. Avant de réutiliser une liste, le
+ * client envoie l'étiquette au serveur, qui ne renvoie la liste que si elle a
+ * changé.
+ *
+ * Le cache peut être enregistré dans un fichier pour être retrouvé au
+ * prochain démarrage du client; on choisit le fichier avec la propriété
+ * système {@code client.cache}. Un fichier illisible est ignoré: le cache
+ * repart alors à vide.
+ */
+public class CourseCache {
+
+    public final static String FILE_PROPERTY = "client.cache";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Path file;
+
+    /**
+     * Crée un cache vide gardé en mémoire seulement.
+     */
+    public CourseCache() {
+        this(null);
+    }
+
+    private CourseCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Crée le cache configuré par la propriété système {@code client.cache}:
+     * enregistré dans ce fichier si elle est fixée, en mémoire seulement sinon.
+     *
+     * @return Le cache configuré.
+     */
+    public static CourseCache fromProperties() {
+        String file = System.getProperty(FILE_PROPERTY);
+        return file != null ? load(Path.of(file)) : new CourseCache();
+    }
+
+    /**
+     * Charge un cache enregistré dans un fichier. Les listes ajoutées par la
+     * suite sont enregistrées dans le même fichier.
+     *
+     * @param file Le fichier du cache.
+     * @return Le cache lu, ou un cache vide si le fichier n'existe pas ou est
+     *         illisible.
+     */
+    @SuppressWarnings("unchecked")
+    public static CourseCache load(Path file) {
+        CourseCache cache = new CourseCache(file);
+        if (Files.exists(file)) {
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                cache.entries.putAll((Map<String, Entry>) in.readObject());
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                System.err.println("Cache des cours ignoré: " + e);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param session La session.
+     * @return L'étiquette de la liste en cache, ou une chaîne vide si la
+     *         session n'est pas en cache.
+     */
+    public String getTag(String session) {
+        Entry entry = entries.get(session);
+        return entry != null ? entry.tag : "";
+    }
+
+    /**
+     * @param session La session.
+     * @return La liste en cache, non modifiable, ou {@code null} si la session
+     *         n'est pas en cache.
+     */
+    public List<Course> getCourses(String session) {
+        Entry entry = entries.get(session);
+        return entry != null ? entry.courses : null;
+    }
+
+    /**
+     * Remplace la liste en cache d'une session, puis enregistre le cache si un
+     * fichier lui est associé. Une erreur d'écriture du fichier est signalée
+     * mais n'empêche pas la mise à jour en mémoire.
+     *
+     * @param session La session.
+     * @param tag     L'étiquette de la liste, fournie par le serveur.
+     * @param courses La liste des cours.
+     */
+    public void put(String session, String tag, List<Course> courses) {
+        entries.put(session, new Entry(tag, Collections.unmodifiableList(new ArrayList<>(courses))));
+        if (file != null) {
+            try {
+                save();
+            } catch (IOException e) {
+                System.err.println("Le cache des cours n'a pas pu être enregistré: " + e);
+            }
+        }
+    }
+
+    /**
+     * Écrit le cache dans un fichier temporaire puis le renomme, pour ne jamais
+     * laisser un fichier à moitié écrit.
+     */
+    private synchronized void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "cours", ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeObject(new HashMap<>(entries));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Une liste de cours en cache et son étiquette.
+     */
+    private static class Entry implements Serializable {
+        private final static long serialVersionUID = -5946473569085762805L;
+
+        private final String tag;
+        private final List<Course> courses;
+
+        private Entry(String tag, List<Course> courses) {
+            this.tag = tag;
+            this.courses = courses;
+        }
+    }
+}
@@ -9,20 +9,26 @@ import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableModel;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
-import server.Server;
+import server.models.BatchRegistrationForm;
 import server.models.Course;
+import server.models.CoursePage;
 import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.SearchQuery;
 
 /**
  * 
@@ -36,12 +42,33 @@ import server.models.RegistrationForm;
  * cours,
  * 
  * puis de s'inscrire à ce cours en remplissant un formulaire.
+ * 
+ * La même {@link ServerConnection} sert à toutes les commandes de la fenêtre;
+ * elle est rouverte au besoin si le serveur l'a fermée après une période
+ * d'inactivité.
+ * 
+ * Les échanges avec le serveur (connexion, chargement, recherche et
+ * inscription) se font hors du fil de répartition des événements de Swing,
+ * dans une {@link NetworkTask}: la fenêtre reste réactive pendant l'attente,
+ * une barre de progression montre l'avancement et le bouton 'Annuler'
+ * interrompt la requête en cours. Le délai d'attente d'une réponse se règle
+ * avec la propriété système {@code client.timeout}.
+ * 
+ * Les listes de cours déjà chargées sont gardées dans un {@link CourseCache}
+ * et ne sont redemandées au serveur que si elles ont changé.
  */
 public class InterfaceClient implements ActionListener {
 
+    final static int SEARCH_PAGE_SIZE = 100;
+    final static int TIMEOUT = 10 * 1000;
+
     JFrame frame;
     JButton chargeButton;
     JButton submitButton;
+    JButton rechercheButton;
+    JButton annulerButton;
+    JProgressBar progressBar;
+    JTextField rechercheText;
     JTextField prenomText;
     JTextField nomText;
     JTextField emailText;
@@ -56,28 +83,26 @@ public class InterfaceClient implements ActionListener {
 
     private String host;
     private int port;
-    private Socket socket;
-    private ObjectInputStream objectInputStream;
-    private ObjectOutputStream objectOutputStream;
+    private volatile ServerConnection connection;
+    private final Object networkLock = new Object();
+    private NetworkTask<?, ?> currentTask;
 
     /**
      * 
      * Constructeur de la classe InterfaceClient. Initialise les éléments de
      * l'interface
-     * graphique et se connecte au serveur.
+     * graphique puis se connecte au serveur en arrière-plan. Doit être appelé
+     * sur le fil de répartition des événements.
      * 
      * @param host L'adresse du serveur.
      * @param port Le port sur lequel le serveur écoute.
-     * @throws IOException Si une erreur se produit lors de la connexion.
      */
-    public InterfaceClient(String host, int port) throws IOException {
+    public InterfaceClient(String host, int port) {
 
         // set the port & host for all network operations
         this.host = host;
         this.port = port;
 
-        connect();
-
         int windowWidth = 860;
         int windowHeight = 560;
 
@@ -112,6 +137,26 @@ public class InterfaceClient implements ActionListener {
         chargeButton.setText("Charger");
         chargeButton.setFocusable(false);
 
+        rechercheText = new JTextField();
+        rechercheText.setBounds(40, 465, 190, 30);
+        rechercheText.addActionListener(this);
+
+        rechercheButton = new JButton();
+        rechercheButton.setBounds(240, 465, 100, 30);
+        rechercheButton.addActionListener(this);
+        rechercheButton.setText("Rechercher");
+        rechercheButton.setFocusable(false);
+
+        annulerButton = new JButton();
+        annulerButton.setBounds(350, 465, 90, 30);
+        annulerButton.addActionListener(this);
+        annulerButton.setText("Annuler");
+        annulerButton.setFocusable(false);
+        annulerButton.setEnabled(false);
+
+        progressBar = new JProgressBar();
+        progressBar.setBounds(40, 384, 300, 10);
+
         submitButton = new JButton();
         submitButton.setBounds(575, 400, 100, 50);
         submitButton.addActionListener(this);
@@ -165,6 +210,10 @@ public class InterfaceClient implements ActionListener {
         frame.add(scrollPane);
 
         frame.add(chargeButton);
+        frame.add(rechercheText);
+        frame.add(rechercheButton);
+        frame.add(annulerButton);
+        frame.add(progressBar);
         frame.add(submitButton);
         frame.add(prenomText);
         frame.add(nomText);
@@ -182,6 +231,13 @@ public class InterfaceClient implements ActionListener {
 
         frame.setVisible(true);
 
+        new NetworkTask<Void, Void>("Impossible de se connecter au serveur.") {
+            @Override
+            protected Void run(ServerConnection connection) {
+                return null;
+            }
+        }.start();
+
     }
 
     /**
@@ -189,74 +245,100 @@ public class InterfaceClient implements ActionListener {
      * Méthode principale pour démarrer l'application client.
      * 
      * @param args Arguments de la ligne de commande.
-     * @throws ClassNotFoundException Si la classe Course est introuvable.
-     * @throws IOException            Si une erreur de communication réseau se
-     *                                produit.
      */
-    public static void main(String[] args) throws ClassNotFoundException, IOException {
-        try {
-
-            interfaceClient = new InterfaceClient("localhost", 6000);
-
-        } catch (IOException e) {
-
-            e.printStackTrace();
-        }
-
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> interfaceClient = new InterfaceClient("localhost", 6000));
     }
 
     /**
      * 
-     * Ouvre la connexion avec le serveur.
+     * Retourne la connexion avec le serveur, en l'ouvrant si ce n'est pas
+     * encore fait. Appelée par les {@link NetworkTask}, hors du fil de
+     * répartition des événements.
      * 
+     * @return La connexion avec le serveur.
      * @throws IOException Si une erreur se produit lors de l'ouverture de la
      *                     connexion.
      */
-    public void connect() throws IOException {
-        socket = new Socket(host, port);
-        objectOutputStream = new ObjectOutputStream(socket.getOutputStream());
-        objectInputStream = new ObjectInputStream(socket.getInputStream());
+    private ServerConnection connection() throws IOException {
+        if (connection == null) {
+            ServerConnection opened = ServerConnection.open(host, port,
+                    Integer.getInteger(ServerConnection.TIMEOUT_PROPERTY, TIMEOUT));
+            opened.setCache(CourseCache.fromProperties());
+            connection = opened;
+        }
+        return connection;
     }
 
     /**
      * 
-     * Ferme la connexion avec le serveur.
+     * Avertit le serveur de la fin de la session puis ferme la connexion.
      * 
      * @throws IOException Si une erreur se produit lors de la fermeture de la
      *                     connexion
      *                     avec le serveur.
      */
     public void disconnect() throws IOException {
-        objectInputStream.close();
-        objectOutputStream.close();
-        socket.close();
+        if (connection != null) {
+            connection.close();
+        }
     }
 
     /**
      * 
-     * Charge la liste des cours disponibles pour une session donnée depuis le
-     * serveur.
+     * Charge en arrière-plan la liste des cours disponibles pour une session
+     * donnée. Les cours sont ajoutés au tableau à mesure que les pages
+     * arrivent du serveur.
      * 
      * @param session La session pour laquelle charger les cours.
-     * @return La liste des cours disponibles pour la session donnée.
-     * @throws IOException Si une erreur de communication réseau se produit.
      */
-    public List<Course> loadCourses(String session) throws IOException {
-        try {
-
-            objectOutputStream.writeObject(Server.LOAD_COMMAND + " " + session);
-            objectOutputStream.flush();
-
-            List<Course> courses = (List<Course>) objectInputStream.readObject();
+    public void loadCourses(String session) {
+        tableModel.setRowCount(0);
+        new NetworkTask<Void, CoursePage>("Une erreur s'est produite pendant le chargement des cours.") {
+            @Override
+            protected Void run(ServerConnection connection) throws IOException {
+                connection.streamCourses(session, page -> publish(page));
+                return null;
+            }
 
-            return courses;
+            @Override
+            protected void process(List<CoursePage> pages) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (CoursePage page : pages) {
+                    for (Course course : page.getCourses()) {
+                        tableModel.addRow(new Object[] { course.getCode(), course.getName() });
+                    }
+                }
+                CoursePage last = pages.get(pages.size() - 1);
+                progressBar.setIndeterminate(false);
+                progressBar.setMaximum(last.getTotal());
+                progressBar.setValue(last.getOffset() + last.getCourses().size());
+            }
+        }.start();
+    }
 
-        } catch (Exception error) {
-            JOptionPane.showMessageDialog(null, "Une erreur s'est produite pendant le chargement des cours.", "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return null;
-        }
+    /**
+     * 
+     * Cherche en arrière-plan les cours de la session courante qui
+     * correspondent au texte donné, puis affiche la première page de résultats.
+     * 
+     * @param text Le texte recherché.
+     */
+    public void searchCourses(String text) {
+        SearchQuery query = new SearchQuery(sessionActuelle, text, 0, SEARCH_PAGE_SIZE);
+        new NetworkTask<CoursePage, Void>("Une erreur s'est produite pendant la recherche.") {
+            @Override
+            protected CoursePage run(ServerConnection connection) throws IOException {
+                return connection.searchCourses(query);
+            }
 
+            @Override
+            protected void succeeded(CoursePage page) {
+                updateTable(page.getCourses());
+            }
+        }.start();
     }
 
     /**
@@ -274,23 +356,29 @@ public class InterfaceClient implements ActionListener {
         if (e.getSource() == chargeButton) {
 
             System.out.println("Charger les cours pour la session: " + choixSession.getSelectedItem().toString());
-            try {
+            this.loadCourses(choixSession.getSelectedItem().toString());
 
-                List<Course> courses = this.loadCourses(choixSession.getSelectedItem().toString());
+        }
 
-                this.updateTable(courses);
+        // Si l'utilisateur lance une recherche (bouton ou touche Entrée)
+        else if (e.getSource() == rechercheButton || e.getSource() == rechercheText) {
 
-            } catch (Exception error) {
-                JOptionPane.showMessageDialog(null, "Une erreur s'est produite.", "Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            this.searchCourses(rechercheText.getText());
+
+        }
+
+        // Si l'utilisateur interrompt la requête en cours
+        else if (e.getSource() == annulerButton) {
+
+            this.cancel();
 
         }
 
         // Si l'utilisateur clique sur le boutton 'Inscription'
         else if (e.getSource() == submitButton) {
 
-            Course course = getSelectedCourse();
+            List<Course> courses = getSelectedCourses();
+            Course course = courses.isEmpty() ? null : courses.get(0);
 
             if (matriculeText.getText().length() < 6) {
 
@@ -302,19 +390,17 @@ public class InterfaceClient implements ActionListener {
                 JOptionPane.showMessageDialog(null, "Veuillez sélectionner un cours.", "Error",
                         JOptionPane.ERROR_MESSAGE);
 
+            } else if (courses.size() > 1) {
+
+                this.registerForCourses(new BatchRegistrationForm(prenomText.getText(), nomText.getText(),
+                        emailText.getText(), matriculeText.getText(), courses));
+
             } else {
 
                 RegistrationForm registrationForm = new RegistrationForm(prenomText.getText(), nomText.getText(),
                         emailText.getText(), matriculeText.getText(),
                         new Course(course.getName(), course.getCode(), sessionActuelle));
-                try {
-                    this.registerForCourse(registrationForm);
-
-                } catch (Exception error) {
-                    JOptionPane.showMessageDialog(null, "Une erreur s'est produite.", "Error",
-                            JOptionPane.ERROR_MESSAGE);
-
-                }
+                this.registerForCourse(registrationForm);
 
             }
         // Si l'utilisateur change la session
@@ -327,35 +413,128 @@ public class InterfaceClient implements ActionListener {
 
     /**
      * 
-     * Envoie une demande d'inscription au serveur pour un étudiant et un cours
-     * donnés.
+     * Envoie en arrière-plan une demande d'inscription au serveur pour un
+     * étudiant et un cours donnés, puis affiche la réponse.
      * 
      * @param registration Le formulaire d'inscription à envoyer.
-     * @throws IOException            Si une erreur de communication réseau se
-     *                                produit.
-     * @throws ClassNotFoundException Si la classe Course est introuvable.
      */
 
-    public void registerForCourse(RegistrationForm registration) throws IOException, ClassNotFoundException {
+    public void registerForCourse(RegistrationForm registration) {
 
         System.out.println("Envoi de la demande d'inscription au serveur...: " +
                 registration.toString());
 
-        objectOutputStream.writeObject(Server.REGISTER_COMMAND);
-        objectOutputStream.flush();
+        new NetworkTask<String, Void>("Une erreur s'est produite.") {
+            @Override
+            protected String run(ServerConnection connection) throws IOException {
+                return connection.registerForCourse(registration);
+            }
+
+            @Override
+            protected void succeeded(String message) {
+                System.out.println("Message du serveur: " + message);
+
+                JOptionPane.showMessageDialog(frame,
+                        "Félicitations! " + registration.getPrenom() + " " + registration.getNom()
+                                + " est inscrit(e) avec succès pour le cours "
+                                + registration.getCourse().getCode() + "!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                if (error instanceof RequestRefusedException) {
+                    JOptionPane.showMessageDialog(frame, error.getMessage(), "Inscription refusée",
+                            JOptionPane.ERROR_MESSAGE);
+                } else {
+                    super.failed(error);
+                }
+            }
+        }.start();
+
+    }
+
+    /**
+     * 
+     * Envoie en arrière-plan une demande d'inscription groupée au serveur pour
+     * les cours sélectionnés, puis affiche le résultat de chaque cours.
+     * 
+     * @param registration La demande d'inscription groupée à envoyer.
+     */
+    public void registerForCourses(BatchRegistrationForm registration) {
+
+        System.out.println("Envoi de la demande d'inscription groupée au serveur...: " +
+                registration.toString());
+
+        new NetworkTask<List<RegistrationResult>, Void>("Une erreur s'est produite.") {
+            @Override
+            protected List<RegistrationResult> run(ServerConnection connection) throws IOException {
+                return connection.registerForCourses(registration);
+            }
 
-        objectOutputStream.writeObject(registration);
-        objectOutputStream.flush();
+            @Override
+            protected void succeeded(List<RegistrationResult> results) {
+                StringBuilder message = new StringBuilder();
+                boolean allAccepted = true;
+                for (RegistrationResult result : results) {
+                    message.append(result.getCourse().getCode()).append(": ").append(result.getMessage())
+                            .append('\n');
+                    allAccepted &= result.isAccepted();
+                }
+                JOptionPane.showMessageDialog(frame, message.toString(), "Inscriptions",
+                        allAccepted ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+            }
 
-        JOptionPane.showMessageDialog(null,
-                "Félicitations! " + prenomText.getText() + " " + nomText.getText()
-                        + "est inscrit(e) avec succès pour le cours "
-                        + registration.getCourse().getCode() + "!",
-                "Success",
-                JOptionPane.INFORMATION_MESSAGE);
+            @Override
+            protected void failed(Throwable error) {
+                if (error instanceof RequestRefusedException) {
+                    JOptionPane.showMessageDialog(frame, error.getMessage(), "Inscription refusée",
+                            JOptionPane.ERROR_MESSAGE);
+                } else {
+                    super.failed(error);
+                }
+            }
+        }.start();
 
-        connect();
+    }
 
+    /**
+     * 
+     * Interrompt la requête en cours, s'il y en a une. Le socket est fermé pour
+     * débloquer la lecture de la réponse; la requête suivante rouvre la
+     * connexion.
+     */
+    public void cancel() {
+        if (currentTask == null) {
+            return;
+        }
+        currentTask.cancel(true);
+        ServerConnection current = connection;
+        if (current != null) {
+            try {
+                current.abort();
+            } catch (IOException e) {
+                // la connexion sera rouverte par la requête suivante
+            }
+        }
+    }
+
+    /**
+     * 
+     * Active ou désactive les commandes qui envoient une requête au serveur,
+     * afin qu'une seule requête utilise la connexion à la fois.
+     * 
+     * @param busy {@code true} si une requête est en cours.
+     */
+    private void setBusy(boolean busy) {
+        chargeButton.setEnabled(!busy);
+        rechercheButton.setEnabled(!busy);
+        rechercheText.setEnabled(!busy);
+        submitButton.setEnabled(!busy);
+        annulerButton.setEnabled(busy);
+        progressBar.setIndeterminate(busy);
+        progressBar.setValue(0);
     }
 
     /**
@@ -364,16 +543,11 @@ public class InterfaceClient implements ActionListener {
      * donnée.
      * 
      * @param courses La liste des cours à afficher.
-     * @throws IOException Si une erreur de communication réseau se produit.
      */
-    public void updateTable(List<Course> courses) throws IOException {
-
-        connect();
+    public void updateTable(List<Course> courses) {
 
         // Supprimer les cours existants dans le tableau
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            tableModel.removeRow(i);
-        }
+        tableModel.setRowCount(0);
 
         // Ajouter les cours de la session dans le tableau
         for (Course course : courses) {
@@ -385,25 +559,114 @@ public class InterfaceClient implements ActionListener {
 
     /**
      * 
-     * Récupère le cours sélectionné dans le tableau de l'interface graphique.
+     * Récupère les cours sélectionnés dans le tableau de l'interface graphique.
+     * Plusieurs cours sélectionnés sont envoyés en une seule demande
+     * d'inscription.
      * 
-     * @return Le cours sélectionné, ou null si aucun cours n'est sélectionné.
+     * @return Les cours sélectionnés, dans l'ordre du tableau; la liste est vide
+     *         si aucun cours n'est sélectionné.
      */
-    private Course getSelectedCourse() {
-        try {
-            int selectedRow = table.getSelectedRow();
+    private List<Course> getSelectedCourses() {
+        List<Course> courses = new ArrayList<>();
+        for (int selectedRow : table.getSelectedRows()) {
+            courses.add(new Course((String) table.getValueAt(selectedRow, 1),
+                    (String) table.getValueAt(selectedRow, 0), sessionActuelle));
+        }
+        return courses;
+    }
+
+    /**
+     * 
+     * Une requête au serveur exécutée hors du fil de répartition des
+     * événements. Les commandes sont désactivées de son lancement jusqu'à sa
+     * fin, puis le résultat ou l'erreur est traité sur le fil de répartition
+     * des événements. Les requêtes s'exécutent aussi sous un même verrou, de
+     * sorte qu'une requête annulée qui n'est pas encore terminée ne partage
+     * jamais la connexion avec la suivante.
+     * 
+     * @param <T> Le type du résultat de la requête.
+     * @param <V> Le type des résultats intermédiaires publiés.
+     */
+    private abstract class NetworkTask<T, V> extends SwingWorker<T, V> {
+
+        private final String errorMessage;
 
-            if (selectedRow == -1) {
-                throw new Exception("Action impossible: aucun cours n'est sélectionné.");
+        /**
+         * @param errorMessage Le message affiché si la requête échoue.
+         */
+        NetworkTask(String errorMessage) {
+            this.errorMessage = errorMessage;
+        }
+
+        /**
+         * Lance la requête. Doit être appelée sur le fil de répartition des
+         * événements.
+         */
+        void start() {
+            currentTask = this;
+            setBusy(true);
+            execute();
+        }
+
+        @Override
+        protected final T doInBackground() throws IOException {
+            synchronized (networkLock) {
+                return run(connection());
+            }
+        }
+
+        /**
+         * Envoie la requête sur la connexion et attend la réponse.
+         * 
+         * @param connection La connexion avec le serveur.
+         * @return Le résultat de la requête.
+         * @throws IOException Si une erreur de communication réseau se produit.
+         */
+        protected abstract T run(ServerConnection connection) throws IOException;
+
+        @Override
+        protected final void done() {
+            if (currentTask == this) {
+                currentTask = null;
+                setBusy(false);
             }
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                succeeded(get());
+            } catch (ExecutionException e) {
+                failed(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
-            Course course = new Course((String) table.getValueAt(selectedRow, 1),
-                    (String) table.getValueAt(selectedRow, 0), sessionActuelle);
-            return course;
-        } catch (Exception e) {
-            return null;
+        /**
+         * Traite le résultat de la requête sur le fil de répartition des
+         * événements.
+         * 
+         * @param result Le résultat de la requête.
+         */
+        protected void succeeded(T result) {
         }
 
+        /**
+         * Avertit l'utilisateur que la requête a échoué.
+         * 
+         * @param error L'erreur survenue.
+         */
+        protected void failed(Throwable error) {
+            String message;
+            if (error instanceof SocketTimeoutException) {
+                message = "Le serveur n'a pas répondu à temps.";
+            } else if (error instanceof ServerBusyException) {
+                message = "Le serveur est occupé. Veuillez réessayer dans un instant.";
+            } else {
+                message = errorMessage;
+            }
+            JOptionPane.showMessageDialog(frame, message, "Error", JOptionPane.ERROR_MESSAGE);
+        }
     }
 
-}
\ No newline at end of file
+}
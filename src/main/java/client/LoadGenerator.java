@@ -0,0 +1,219 @@
+package client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import server.metrics.LatencyHistogram;
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * Générateur de charge sans interface pour mesurer le débit et les latences
+ * du serveur de bout en bout.
+ *
+ * Le générateur ouvre plusieurs {@link ServerConnection} en parallèle, chacune
+ * servie par son propre fil, et y envoie un mélange de commandes
+ * {@code CHARGER} et {@code INSCRIRE} pendant une durée donnée. Il affiche
+ * ensuite le débit obtenu et les latences (p50, p99, p99,9 et maximum) de
+ * chaque commande.
+ *
+ * Lorsqu'un débit cible est fixé, chaque requête a une heure de départ prévue
+ * et sa latence est mesurée à partir de cette heure: un serveur qui prend du
+ * retard est donc pénalisé pour toutes les requêtes qu'il a fait attendre, et
+ * pas seulement pour la première.
+ *
+ * La configuration se fait par propriétés système: {@code load.host},
+ * {@code load.port}, {@code load.connections}, {@code load.rate} (requêtes par
+ * seconde pour l'ensemble des connexions, 0 pour aller aussi vite que
+ * possible), {@code load.duration} (en secondes), {@code load.mix} (proportion
+ * de {@code CHARGER}, entre 0 et 1), {@code load.session} et
+ * {@code load.revalidate} ({@code true} pour que chaque connexion garde la
+ * liste des cours en cache et ne fasse que la revalider, comme les clients
+ * interactifs). Le protocole est choisi comme pour les autres clients, avec
+ * {@code client.protocole}.
+ *
+ * Toutes les connexions partent de la même adresse: si le serveur limite le
+ * débit par adresse cliente, les requêtes refusées sont comptées à part et ne
+ * mesurent plus le serveur. Cette limite est désactivée par défaut; pour une
+ * mesure, le serveur doit être lancé sans elle, au besoin avec
+ * {@code -Dserver.admission.clientRate=0}.
+ *
+ * Attention: chaque {@code INSCRIRE} réussi ajoute une ligne au fichier des
+ * inscriptions du serveur.
+ */
+public class LoadGenerator {
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final double rate;
+    private final long durationNanos;
+    private final double mix;
+    private final String session;
+    private final boolean revalidate;
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram registrationLatency = new LatencyHistogram();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong matricules = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Constructeur de la classe {@code LoadGenerator}.
+     *
+     * @param host        L'adresse du serveur.
+     * @param port        Le port sur lequel le serveur écoute.
+     * @param connections Le nombre de connexions simultanées.
+     * @param rate        Le débit cible en requêtes par seconde, ou 0 pour aucune
+     *                    limite.
+     * @param duration    La durée de la mesure, en secondes.
+     * @param mix         La proportion de commandes {@code CHARGER}.
+     * @param session     La session des cours chargés et des inscriptions.
+     * @param revalidate  {@code true} pour revalider une liste en cache plutôt
+     *                    que de recevoir la liste complète à chaque
+     *                    {@code CHARGER}.
+     */
+    public LoadGenerator(String host, int port, int connections, double rate, long duration, double mix,
+            String session, boolean revalidate) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.rate = rate;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(duration);
+        this.mix = mix;
+        this.session = session;
+        this.revalidate = revalidate;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(
+                System.getProperty("load.host", "localhost"),
+                Integer.getInteger("load.port", 6000),
+                Integer.getInteger("load.connections", 16),
+                Double.parseDouble(System.getProperty("load.rate", "0")),
+                Long.getLong("load.duration", 30),
+                Double.parseDouble(System.getProperty("load.mix", "0.9")),
+                System.getProperty("load.session", "Automne"),
+                Boolean.getBoolean("load.revalidate"));
+        generator.run();
+    }
+
+    /**
+     * Lance la charge sur toutes les connexions, attend la fin de la mesure puis
+     * affiche le rapport.
+     *
+     * @throws InterruptedException Si le fil est interrompu pendant la mesure.
+     */
+    public void run() throws InterruptedException {
+        System.out.printf("Charge: %d connexions, débit cible %s, %d s, %.0f %% CHARGER, session %s%n",
+                connections, rate > 0 ? rate + " req/s" : "illimité",
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), mix * 100, session);
+
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        List<Thread> threads = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            // les départs sont décalés pour ne pas envoyer toutes les connexions en rafale
+            long offset = rate > 0 ? (long) (i * 1e9 / rate) : 0;
+            Thread thread = new Thread(() -> drive(start + offset, deadline), "load-" + (i + 1));
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report(System.nanoTime() - start);
+    }
+
+    /**
+     * Envoie des requêtes sur une connexion jusqu'à l'échéance.
+     *
+     * @param firstStart L'heure de départ prévue de la première requête.
+     * @param deadline   L'heure de fin de la mesure.
+     */
+    private void drive(long firstStart, long deadline) {
+        long period = rate > 0 ? (long) (connections * 1e9 / rate) : 0;
+        try (ServerConnection connection = ServerConnection.open(host, port)) {
+            if (revalidate) {
+                connection.setCache(new CourseCache());
+            }
+            List<Course> courses = connection.loadCourses(session);
+            long intended = firstStart;
+            while (true) {
+                long now = System.nanoTime();
+                if (period > 0) {
+                    if (intended >= deadline) {
+                        break;
+                    }
+                    if (intended > now) {
+                        LockSupport.parkNanos(intended - now);
+                    }
+                } else {
+                    if (now >= deadline) {
+                        break;
+                    }
+                    intended = now;
+                }
+
+                boolean load = courses.isEmpty() || ThreadLocalRandom.current().nextDouble() < mix;
+                try {
+                    if (load) {
+                        connection.loadCourses(session);
+                    } else {
+                        connection.registerForCourse(nextForm(courses));
+                    }
+                } catch (RequestRefusedException e) {
+                    refused.increment();
+                } catch (IOException e) {
+                    errors.increment();
+                }
+                (load ? loadLatency : registrationLatency).record(System.nanoTime() - intended);
+                intended += period;
+            }
+        } catch (IOException e) {
+            errors.increment();
+            System.err.println(Thread.currentThread().getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Construit un formulaire d'inscription avec un matricule jamais utilisé,
+     * pour que le serveur ne refuse pas l'inscription comme un doublon.
+     *
+     * @param courses Les cours de la session.
+     * @return Le formulaire d'inscription.
+     */
+    private RegistrationForm nextForm(List<Course> courses) {
+        long n = matricules.incrementAndGet();
+        Course course = courses.get(ThreadLocalRandom.current().nextInt(courses.size()));
+        return new RegistrationForm("Charge", "Test" + n, "charge" + n + "@example.com",
+                runId + "-" + n, course);
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = loadLatency.getCount() + registrationLatency.getCount();
+        System.out.printf("%nRequêtes: %d en %.1f s (%.1f req/s), refusées: %d, erreurs: %d%n",
+                total, seconds, total / seconds, refused.sum(), errors.sum());
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n",
+                "commande", "nombre", "moy (µs)", "p50 (µs)", "p99 (µs)", "p99,9 (µs)", "max (µs)");
+        printLine("CHARGER", loadLatency);
+        printLine("INSCRIRE", registrationLatency);
+    }
+
+    private static void printLine(String command, LatencyHistogram histogram) {
+        System.out.printf("%-10s %10d %10.0f %10d %10d %10d %10d%n", command, histogram.getCount(),
+                histogram.getMean() / 1000,
+                histogram.getValueAtPercentile(50) / 1000,
+                histogram.getValueAtPercentile(99) / 1000,
+                histogram.getValueAtPercentile(99.9) / 1000,
+                histogram.getMax() / 1000);
+    }
+}
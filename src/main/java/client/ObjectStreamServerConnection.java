@@ -0,0 +1,171 @@
+package client;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import server.Server;
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.Course;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.SearchQuery;
+
+/**
+ * Connexion au serveur qui échange des objets Java sérialisés.
+ */
+class ObjectStreamServerConnection extends ServerConnection {
+
+    private ObjectInputStream objectInputStream;
+    private ObjectOutputStream objectOutputStream;
+
+    ObjectStreamServerConnection(String host, int port) {
+        super(host, port);
+    }
+
+    @Override
+    protected void connect() throws IOException {
+        socket = openSocket();
+        objectOutputStream = new ObjectOutputStream(socket.getOutputStream());
+        objectInputStream = new ObjectInputStream(socket.getInputStream());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<Course> requestCourses(String session) throws IOException {
+        return (List<Course>) data(send(Server.LOAD_COMMAND + " " + session));
+    }
+
+    @Override
+    protected String requestRegistration(RegistrationForm registration) throws IOException {
+        return (String) send(Server.REGISTER_COMMAND, registration);
+    }
+
+    @Override
+    protected String requestCancellation(RegistrationForm registration) throws IOException {
+        return (String) send(Server.CANCEL_COMMAND, registration);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<RegistrationResult> requestBatchRegistration(BatchRegistrationForm registration)
+            throws IOException {
+        // une demande refusée en entier reçoit un message plutôt qu'une liste
+        return (List<RegistrationResult>) data(send(Server.BATCH_REGISTER_COMMAND, registration));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<RegistrationForm> requestCourseRegistrations(String session, String code) throws IOException {
+        return (List<RegistrationForm>) data(send(Server.COURSE_REGISTRATIONS_COMMAND + " " + session + " " + code));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<RegistrationForm> requestStudentRegistrations(String matricule) throws IOException {
+        return (List<RegistrationForm>) data(send(Server.STUDENT_REGISTRATIONS_COMMAND + " " + matricule));
+    }
+
+    /**
+     * @param reply La réponse du serveur à une requête qui attend des données.
+     * @return La réponse reçue.
+     * @throws RequestRefusedException Si le serveur a renvoyé un message de refus
+     *                                 plutôt que les données, par exemple parce
+     *                                 qu'il est surchargé.
+     */
+    private static Object data(Object reply) throws RequestRefusedException {
+        if (reply instanceof String) {
+            throw new RequestRefusedException((String) reply);
+        }
+        return reply;
+    }
+
+    @Override
+    protected CoursePage requestSearch(SearchQuery query) throws IOException {
+        return (CoursePage) data(send(Server.SEARCH_COMMAND, query));
+    }
+
+    @Override
+    protected void requestCoursePages(SearchQuery query, Consumer<CoursePage> listener) throws IOException {
+        write(Server.LOAD_PAGES_COMMAND, query);
+        receivePages(listener);
+    }
+
+    @Override
+    protected CatalogVersion requestCoursesIfModified(String session, String tag, Consumer<CoursePage> listener)
+            throws IOException {
+        String command = Server.LOAD_IF_MODIFIED_COMMAND + " " + session;
+        CatalogVersion version = (CatalogVersion) data(send(tag.isEmpty() ? command : command + " " + tag));
+        if (version.isModified()) {
+            receivePages(listener);
+        }
+        return version;
+    }
+
+    @Override
+    protected void sendClose() throws IOException {
+        objectOutputStream.writeObject(Server.CLOSE_COMMAND);
+        objectOutputStream.flush();
+    }
+
+    /**
+     * Écrit les objets de la requête sur la connexion courante et lit la réponse.
+     *
+     * @param messages Les objets qui composent la requête.
+     * @return La réponse du serveur.
+     * @throws IOException Si une erreur de communication réseau se produit ou si
+     *                     la classe de la réponse est introuvable.
+     */
+    private Object send(Object... messages) throws IOException {
+        write(messages);
+        return receive();
+    }
+
+    /**
+     * Écrit les objets de la requête sur la connexion courante.
+     *
+     * @param messages Les objets qui composent la requête.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    private void write(Object... messages) throws IOException {
+        for (Object message : messages) {
+            objectOutputStream.writeObject(message);
+        }
+        objectOutputStream.reset();
+        objectOutputStream.flush();
+    }
+
+    /**
+     * Lit les pages envoyées par le serveur jusqu'à la dernière.
+     *
+     * @param listener L'écouteur qui reçoit chaque page, dans l'ordre.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    private void receivePages(Consumer<CoursePage> listener) throws IOException {
+        CoursePage page;
+        do {
+            page = (CoursePage) data(receive());
+            listener.accept(page);
+        } while (page.hasMore());
+    }
+
+    /**
+     * Lit le prochain objet envoyé par le serveur.
+     *
+     * @return L'objet reçu.
+     * @throws IOException Si une erreur de communication réseau se produit ou si
+     *                     la classe de l'objet est introuvable.
+     */
+    private Object receive() throws IOException {
+        try {
+            return objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new InvalidClassException(e.getMessage());
+        }
+    }
+}
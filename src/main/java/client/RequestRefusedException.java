@@ -0,0 +1,18 @@
+package client;
+
+import java.io.IOException;
+
+/**
+ * Signale que le serveur a reçu et traité une requête, mais l'a refusée, par
+ * exemple une inscription en double ou à un cours complet. La connexion reste
+ * utilisable et la requête ne doit pas être renvoyée, sauf si le refus est un
+ * {@link ServerBusyException}.
+ */
+public class RequestRefusedException extends IOException {
+
+    private final static long serialVersionUID = 7164854735047695774L;
+
+    public RequestRefusedException(String message) {
+        super(message);
+    }
+}
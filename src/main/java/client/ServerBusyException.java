@@ -0,0 +1,28 @@
+package client;
+
+/**
+ * Signale que le serveur n'a pas traité une requête parce qu'il est surchargé
+ * ou que le client a dépassé son débit permis. Contrairement aux autres refus,
+ * la requête peut être renvoyée sans risque après le délai indiqué; la
+ * {@link ServerConnection} le fait elle-même quelques fois avant de lever
+ * cette exception.
+ */
+public class ServerBusyException extends RequestRefusedException {
+
+    private final static long serialVersionUID = 867348634262723506L;
+
+    private final long retryAfter;
+
+    public ServerBusyException(long retryAfter, String message) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return Le délai, en millisecondes, que le serveur demande d'attendre
+     *         avant de renvoyer la requête.
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
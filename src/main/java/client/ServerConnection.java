@@ -0,0 +1,478 @@
+package client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.Course;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.SearchQuery;
+
+/**
+ * La classe ServerConnection représente la connexion d'un client au serveur
+ * d'inscription. Une même connexion sert à toutes les commandes du client; elle
+ * est rouverte au besoin si le serveur l'a fermée après une période
+ * d'inactivité. Une consultation coupée par la fermeture de la connexion est
+ * renvoyée sur la nouvelle connexion; une inscription ou une annulation ne
+ * l'est jamais, puisque le serveur a pu la traiter avant la coupure.
+ *
+ * Deux formats d'échange sont disponibles: le protocole binaire, utilisé par
+ * défaut, et la sérialisation Java des objets, que l'on choisit avec la
+ * propriété système {@code client.protocole=objet} pendant la migration.
+ *
+ * Le délai d'attente, en millisecondes, s'applique à l'ouverture de la
+ * connexion et à chaque lecture d'une réponse; on le fixe avec la propriété
+ * système {@code client.timeout}. Un délai nul attend indéfiniment.
+ *
+ * Si un {@link CourseCache} est associé à la connexion, une liste de cours
+ * déjà reçue n'est redemandée au serveur que si elle a changé.
+ *
+ * Une requête que le serveur surchargé demande de renvoyer plus tard est
+ * renvoyée jusqu'à {@code client.retries} fois (par défaut
+ * {@value #DEFAULT_RETRIES}). Chaque attente dure au moins le délai indiqué
+ * par le serveur, plus une part aléatoire qui double à chaque tentative: les
+ * clients refusés en même temps ne reviennent pas tous au même instant.
+ */
+public abstract class ServerConnection implements Closeable {
+
+    public final static String PROTOCOL_PROPERTY = "client.protocole";
+    public final static String OBJECT_PROTOCOL = "objet";
+    public final static String TIMEOUT_PROPERTY = "client.timeout";
+    public final static String RETRIES_PROPERTY = "client.retries";
+    public final static int DEFAULT_RETRIES = 4;
+
+    private final static long BASE_BACKOFF = 100;
+    private final static long MAX_BACKOFF = 5000;
+
+    protected final String host;
+    protected final int port;
+    protected int timeout;
+    private int retries = DEFAULT_RETRIES;
+    protected volatile Socket socket;
+    private CourseCache cache;
+
+    /**
+     * Une requête envoyée au serveur sur la connexion courante.
+     *
+     * @param <T> Le type de la réponse
+     */
+    @FunctionalInterface
+    protected interface Exchange<T> {
+        T run() throws IOException;
+    }
+
+    protected ServerConnection(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Ouvre une connexion au serveur dans le format d'échange configuré.
+     *
+     * @param host L'adresse du serveur.
+     * @param port Le port sur lequel le serveur écoute.
+     * @return La connexion ouverte.
+     * @throws IOException Si une erreur se produit lors de la connexion.
+     */
+    public static ServerConnection open(String host, int port) throws IOException {
+        return open(host, port, Integer.getInteger(TIMEOUT_PROPERTY, 0));
+    }
+
+    /**
+     * Ouvre une connexion au serveur dans le format d'échange configuré, avec un
+     * délai d'attente donné.
+     *
+     * @param host    L'adresse du serveur.
+     * @param port    Le port sur lequel le serveur écoute.
+     * @param timeout Le délai d'attente en millisecondes, ou {@code 0} pour
+     *                attendre indéfiniment.
+     * @return La connexion ouverte.
+     * @throws IOException Si une erreur se produit lors de la connexion.
+     */
+    public static ServerConnection open(String host, int port, int timeout) throws IOException {
+        ServerConnection connection;
+        if (OBJECT_PROTOCOL.equals(System.getProperty(PROTOCOL_PROPERTY))) {
+            connection = new ObjectStreamServerConnection(host, port);
+        } else {
+            connection = new BinaryServerConnection(host, port);
+        }
+        connection.timeout = timeout;
+        connection.retries = Integer.getInteger(RETRIES_PROPERTY, DEFAULT_RETRIES);
+        connection.connect();
+        return connection;
+    }
+
+    /**
+     * Associe un cache des listes de cours à la connexion.
+     *
+     * @param cache Le cache à utiliser, ou {@code null} pour toujours recevoir
+     *              la liste complète.
+     */
+    public void setCache(CourseCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Charge la liste des cours disponibles pour une session donnée. Avec un
+     * cache, la liste en cache est revalidée auprès du serveur, qui ne renvoie
+     * la liste que si elle a changé.
+     *
+     * @param session La session pour laquelle charger les cours.
+     * @return La liste des cours de la session.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    public List<Course> loadCourses(String session) throws IOException {
+        if (cache != null) {
+            return revalidate(session, page -> {
+            });
+        }
+        return request(() -> requestCourses(session));
+    }
+
+    /**
+     * Charge la liste des cours d'une session par pages, que le serveur envoie
+     * l'une après l'autre. Chaque page est remise à l'écouteur dès sa réception.
+     * Si la connexion est rouverte en cours de route, le chargement reprend
+     * après le dernier cours reçu. Avec un cache, une liste qui n'a pas changé
+     * est remise à l'écouteur en une seule page.
+     *
+     * @param session  La session pour laquelle charger les cours.
+     * @param listener L'écouteur qui reçoit chaque page, dans l'ordre.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    public void streamCourses(String session, Consumer<CoursePage> listener) throws IOException {
+        if (cache != null) {
+            revalidate(session, listener);
+            return;
+        }
+        int[] received = new int[1];
+        request(() -> {
+            requestCoursePages(new SearchQuery(session, "", received[0], 0), page -> {
+                received[0] += page.getCourses().size();
+                listener.accept(page);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Revalide la liste en cache d'une session. Si le serveur indique qu'elle a
+     * changé, les pages de la nouvelle liste sont remises à l'écouteur à mesure
+     * qu'elles arrivent, puis la liste remplace celle du cache. Si la requête
+     * est renvoyée, les cours déjà remis à l'écouteur ne le sont pas une
+     * seconde fois.
+     *
+     * @param session  La session pour laquelle charger les cours.
+     * @param listener L'écouteur qui reçoit chaque page, dans l'ordre.
+     * @return La liste des cours de la session.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    private List<Course> revalidate(String session, Consumer<CoursePage> listener) throws IOException {
+        int[] delivered = new int[1];
+        return request(() -> {
+            List<Course> courses = new ArrayList<>();
+            CatalogVersion version = requestCoursesIfModified(session, cache.getTag(session), page -> {
+                courses.addAll(page.getCourses());
+                int size = page.getCourses().size();
+                int skip = delivered[0] - page.getOffset();
+                if (skip <= 0) {
+                    listener.accept(page);
+                } else if (skip < size) {
+                    listener.accept(new CoursePage(new ArrayList<>(page.getCourses().subList(skip, size)),
+                            page.getOffset() + skip, page.getTotal()));
+                }
+                delivered[0] = Math.max(delivered[0], page.getOffset() + size);
+            });
+            if (!version.isModified()) {
+                List<Course> cached = cache.getCourses(session);
+                listener.accept(new CoursePage(cached, 0, cached.size()));
+                return cached;
+            }
+            cache.put(session, version.getTag(), courses);
+            return courses;
+        });
+    }
+
+    /**
+     * Cherche des cours par préfixe de code ou par mots du nom, une page à la
+     * fois.
+     *
+     * @param query La recherche et la page de résultats voulue.
+     * @return La page de résultats.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    public CoursePage searchCourses(SearchQuery query) throws IOException {
+        return request(() -> requestSearch(query));
+    }
+
+    /**
+     * Envoie une demande d'inscription au serveur.
+     *
+     * @param registration Le formulaire d'inscription à envoyer.
+     * @return Le message de confirmation du serveur.
+     * @throws RequestRefusedException Si le serveur a refusé l'inscription (avec
+     *                                 le protocole binaire seulement; l'ancien
+     *                                 protocole renvoie le refus comme un
+     *                                 message).
+     * @throws IOException             Si une erreur de communication réseau se
+     *                                 produit; l'inscription a pu être faite.
+     */
+    public String registerForCourse(RegistrationForm registration) throws IOException {
+        return submit(() -> requestRegistration(registration));
+    }
+
+    /**
+     * Demande au serveur d'annuler une inscription.
+     *
+     * @param registration Le formulaire de l'inscription à annuler; seuls le
+     *                     matricule et le cours sont utilisés.
+     * @return Le message de confirmation du serveur.
+     * @throws RequestRefusedException Si l'étudiant n'est pas inscrit au cours.
+     * @throws IOException             Si une erreur de communication réseau se
+     *                                 produit; l'annulation a pu être faite.
+     */
+    public String cancelRegistration(RegistrationForm registration) throws IOException {
+        return submit(() -> requestCancellation(registration));
+    }
+
+    /**
+     * Demande au serveur la liste des inscriptions à un cours.
+     *
+     * @param session La session du cours.
+     * @param code    Le code du cours.
+     * @return Les inscriptions au cours, dans l'ordre où elles ont été faites.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    public List<RegistrationForm> listCourseRegistrations(String session, String code) throws IOException {
+        return request(() -> requestCourseRegistrations(session, code));
+    }
+
+    /**
+     * Demande au serveur la liste des inscriptions d'un étudiant, toutes
+     * sessions confondues.
+     *
+     * @param matricule Le matricule de l'étudiant.
+     * @return Les inscriptions de l'étudiant, dans l'ordre où elles ont été
+     *         faites.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    public List<RegistrationForm> listStudentRegistrations(String matricule) throws IOException {
+        return request(() -> requestStudentRegistrations(matricule));
+    }
+
+    /**
+     * Envoie au serveur une demande d'inscription d'un étudiant à plusieurs
+     * cours, en un seul aller-retour.
+     *
+     * @param registration La demande d'inscription groupée.
+     * @return Le résultat de chaque inscription, dans l'ordre des cours de la
+     *         demande.
+     * @throws RequestRefusedException Si le serveur a refusé la demande en
+     *                                 entier, par exemple parce qu'elle est
+     *                                 incomplète.
+     * @throws IOException             Si une erreur de communication réseau se
+     *                                 produit; les inscriptions ont pu être
+     *                                 faites.
+     */
+    public List<RegistrationResult> registerForCourses(BatchRegistrationForm registration) throws IOException {
+        return submit(() -> requestBatchRegistration(registration));
+    }
+
+    /**
+     * Envoie une requête au serveur et retourne sa réponse. Une requête que le
+     * serveur demande de renvoyer plus tard est renvoyée après une attente
+     * aléatoire, au plus {@code client.retries} fois.
+     *
+     * @param exchange La requête à envoyer.
+     * @return La réponse du serveur.
+     * @throws ServerBusyException Si le serveur est encore surchargé après la
+     *                             dernière tentative.
+     * @throws IOException         Si une erreur de communication réseau se
+     *                             produit.
+     */
+    protected <T> T request(Exchange<T> exchange) throws IOException {
+        return request(exchange, true);
+    }
+
+    /**
+     * Envoie au serveur une requête qui modifie les inscriptions et retourne sa
+     * réponse. Comme avec {@link #request(Exchange)}, une requête que le
+     * serveur demande de renvoyer plus tard est renvoyée, puisqu'il ne l'a pas
+     * traitée; elle n'est jamais renvoyée après une erreur de communication.
+     *
+     * @param exchange La requête à envoyer.
+     * @return La réponse du serveur.
+     * @throws ServerBusyException Si le serveur est encore surchargé après la
+     *                             dernière tentative.
+     * @throws IOException         Si une erreur de communication réseau se
+     *                             produit; la requête a pu être traitée.
+     */
+    protected <T> T submit(Exchange<T> exchange) throws IOException {
+        return request(exchange, false);
+    }
+
+    private <T> T request(Exchange<T> exchange, boolean idempotent) throws IOException {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return send(exchange, idempotent);
+            } catch (ServerBusyException e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                backOff(attempt, e.getRetryAfter());
+            }
+        }
+    }
+
+    /**
+     * Attend avant de renvoyer une requête refusée par un serveur surchargé: le
+     * délai demandé par le serveur, plus une durée aléatoire comprise entre zéro
+     * et un plafond qui double à chaque tentative.
+     *
+     * @param attempt    Le numéro de la tentative refusée, à partir de zéro.
+     * @param retryAfter Le délai demandé par le serveur, en millisecondes.
+     * @throws InterruptedIOException Si le fil est interrompu pendant l'attente.
+     */
+    private static void backOff(int attempt, long retryAfter) throws InterruptedIOException {
+        long ceiling = Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(attempt, 16));
+        long delay = Math.min(MAX_BACKOFF, retryAfter) + ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Requête interrompue pendant l'attente avant de la renvoyer.");
+        }
+    }
+
+    /**
+     * Envoie une requête sur la connexion courante. Si la connexion a été
+     * fermée par le serveur (délai d'inactivité), elle est rouverte et une
+     * requête sans effet est renvoyée une seule fois. Une requête refusée par
+     * le serveur, restée sans réponse dans le délai d'attente, interrompue par
+     * {@link #abort()} ou qui modifie les inscriptions n'est pas renvoyée;
+     * sauf dans le premier cas, la connexion est fermée et sera rouverte par
+     * la requête suivante.
+     *
+     * @param exchange   La requête à envoyer.
+     * @param idempotent {@code true} si la requête peut être renvoyée sans
+     *                   risque
+     * @return La réponse du serveur.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    private <T> T send(Exchange<T> exchange, boolean idempotent) throws IOException {
+        if (socket.isClosed()) {
+            connect();
+        }
+        try {
+            return exchange.run();
+        } catch (RequestRefusedException e) {
+            throw e;
+        } catch (SocketTimeoutException e) {
+            socket.close();
+            throw e;
+        } catch (IOException e) {
+            socket.close();
+            if (!idempotent || Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            connect();
+            return exchange.run();
+        }
+    }
+
+    /**
+     * Interrompt, depuis un autre fil d'exécution, la requête en cours en
+     * fermant le socket. Le fil qui attend la réponse doit avoir été interrompu
+     * au préalable pour que la requête ne soit pas renvoyée; la requête
+     * suivante rouvre la connexion.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture.
+     */
+    public void abort() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Avertit le serveur de la fin de la session puis ferme la connexion.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sendClose();
+        } catch (IOException e) {
+            // la connexion est peut-être déjà fermée par le serveur
+        }
+        socket.close();
+    }
+
+    /**
+     * Ouvre le socket et les flux du format d'échange.
+     *
+     * @throws IOException Si une erreur se produit lors de la connexion.
+     */
+    protected abstract void connect() throws IOException;
+
+    /**
+     * Ouvre un socket vers le serveur en appliquant le délai d'attente.
+     *
+     * @return Le socket connecté.
+     * @throws IOException Si une erreur se produit lors de la connexion.
+     */
+    protected Socket openSocket() throws IOException {
+        Socket opened = new Socket();
+        try {
+            opened.connect(new InetSocketAddress(host, port), timeout);
+            opened.setSoTimeout(timeout);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    protected abstract List<Course> requestCourses(String session) throws IOException;
+
+    protected abstract String requestRegistration(RegistrationForm registration) throws IOException;
+
+    protected abstract String requestCancellation(RegistrationForm registration) throws IOException;
+
+    protected abstract List<RegistrationResult> requestBatchRegistration(BatchRegistrationForm registration)
+            throws IOException;
+
+    protected abstract List<RegistrationForm> requestCourseRegistrations(String session, String code)
+            throws IOException;
+
+    protected abstract List<RegistrationForm> requestStudentRegistrations(String matricule) throws IOException;
+
+    protected abstract CoursePage requestSearch(SearchQuery query) throws IOException;
+
+    protected abstract void requestCoursePages(SearchQuery query, Consumer<CoursePage> listener) throws IOException;
+
+    /**
+     * Demande la liste des cours d'une session si elle diffère de celle en
+     * cache; les pages de la liste, s'il y en a, sont remises à l'écouteur.
+     *
+     * @param session  La session pour laquelle charger les cours.
+     * @param tag      L'étiquette de la liste en cache, ou une chaîne vide.
+     * @param listener L'écouteur qui reçoit chaque page, dans l'ordre.
+     * @return L'étiquette de la liste actuelle et l'indication de modification.
+     * @throws IOException Si une erreur de communication réseau se produit.
+     */
+    protected abstract CatalogVersion requestCoursesIfModified(String session, String tag,
+            Consumer<CoursePage> listener) throws IOException;
+
+    protected abstract void sendClose() throws IOException;
+}
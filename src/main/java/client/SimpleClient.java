@@ -1,27 +1,29 @@
 package client;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import server.models.BatchRegistrationForm;
 import server.models.Course;
 import server.models.RegistrationForm;
-import server.Server;
+import server.models.RegistrationResult;
 
 /**
  * Une classe représentant un client pour un système d'inscription aux cours.
  * Ce client fournit des fonctionnalités pour charger des informations sur les
  * cours
  * et s'inscrire à des cours spécifiques.
+ * 
+ * Toutes les commandes passent par la même {@link ServerConnection}, qui est
+ * rouverte au besoin si le serveur l'a fermée après une période d'inactivité.
+ * Les listes de cours déjà consultées sont gardées dans un {@link CourseCache}
+ * et ne sont redemandées au serveur que si elles ont changé.
  */
 public class SimpleClient {
 
-    private Socket socket;
-    private ObjectInputStream objectInputStream;
-    private ObjectOutputStream objectOutputStream;
+    private final ServerConnection connection;
 
     /**
      * Constructeur pour créer un nouveau client en établissant une connexion
@@ -32,9 +34,8 @@ public class SimpleClient {
      * @throws IOException Si une erreur se produit lors de la connexion au serveur.
      */
     public SimpleClient(String host, int port) throws IOException {
-        socket = new Socket(host, port);
-        objectOutputStream = new ObjectOutputStream(socket.getOutputStream());
-        objectInputStream = new ObjectInputStream(socket.getInputStream());
+        connection = ServerConnection.open(host, port);
+        connection.setCache(CourseCache.fromProperties());
     }
 
     public static void main(String[] args) throws ClassNotFoundException {
@@ -44,40 +45,43 @@ public class SimpleClient {
 
             System.out.println("*** Bienvenue au portail d'inscription de cours de l'UDEM ***");
 
-            System.out
-                    .println("Veuillez choisir la session pour laquelle vous voulez consulter la liste des cours:");
-            System.out.println("1. Automne");
-            System.out.println("2. Hiver");
-            System.out.println("3. Ete");
-            System.out.print("› Choix: ");
-
-            int choice = scanner.nextInt();
             String session = "";
-
-            if (choice == 1) {
-                session = "Automne";
-            } else if (choice == 2) {
-                session = "Hiver";
-            } else if (choice == 3) {
-                session = "Ete";
-            } else {
-                System.out.println("Choix non valide");
-                scanner.close();
-                return;
+            int actionChoice = 1;
+
+            while (actionChoice == 1) {
+                System.out
+                        .println("Veuillez choisir la session pour laquelle vous voulez consulter la liste des cours:");
+                System.out.println("1. Automne");
+                System.out.println("2. Hiver");
+                System.out.println("3. Ete");
+                System.out.print("› Choix: ");
+
+                int choice = scanner.nextInt();
+
+                if (choice == 1) {
+                    session = "Automne";
+                } else if (choice == 2) {
+                    session = "Hiver";
+                } else if (choice == 3) {
+                    session = "Ete";
+                } else {
+                    System.out.println("Choix non valide");
+                    client.disconnect();
+                    scanner.close();
+                    return;
+                }
+
+                client.loadCourses(session);
+
+                System.out.println("1. Consulter les cours offerts pour une autre session");
+                System.out.println("2. Inscription à un cours");
+                System.out.println("3. Annuler une inscription");
+                System.out.print("› Choix: ");
+
+                actionChoice = scanner.nextInt();
+                scanner.nextLine();
             }
 
-            client.loadCourses(session);
-
-            // reconnect to the server
-            client = new SimpleClient("localhost", 6000);
-
-            System.out.println("1. Consulter les cours offerts pour une autre session");
-            System.out.println("2. Inscription à un cours");
-            System.out.print("› Choix: ");
-
-            int actionChoice = scanner.nextInt();
-            scanner.nextLine();
-
             if (actionChoice == 2) {
                 System.out.print("Veuillez saisir votre prénom: ");
                 String firstName = scanner.nextLine();
@@ -91,14 +95,33 @@ public class SimpleClient {
                 System.out.print("Veuillez saisir votre matricule: ");
                 String matricule = scanner.nextLine();
 
-                System.out.print("Veuillez saisir le code du cours: ");
-                String courseCode = scanner.nextLine();
+                System.out.print("Veuillez saisir le code du cours (plusieurs codes séparés par des virgules): ");
+                String[] courseCodes = scanner.nextLine().split(",");
+
+                if (courseCodes.length == 1) {
+                    RegistrationForm registrationForm = new RegistrationForm(firstName, lastName, email, matricule,
+                            new Course("IFT1015", courseCodes[0].trim(), session));
+
+                    client.registerForCourse(registrationForm);
+                } else {
+                    List<Course> courses = new ArrayList<>();
+                    for (String courseCode : courseCodes) {
+                        courses.add(new Course("", courseCode.trim(), session));
+                    }
+                    client.registerForCourses(new BatchRegistrationForm(firstName, lastName, email, matricule,
+                            courses));
+                }
+            } else if (actionChoice == 3) {
+                System.out.print("Veuillez saisir votre matricule: ");
+                String matricule = scanner.nextLine();
 
-                RegistrationForm registrationForm = new RegistrationForm(firstName, lastName, email, matricule,
-                        new Course("IFT1015", courseCode, session));
+                System.out.print("Veuillez saisir le code du cours: ");
+                String courseCode = scanner.nextLine().trim();
 
-                client.registerForCourse(registrationForm);
+                client.cancelRegistration(new RegistrationForm("", "", "", matricule,
+                        new Course("", courseCode, session)));
             }
+            client.disconnect();
             scanner.close();
 
         } catch (IOException e) {
@@ -114,21 +137,12 @@ public class SimpleClient {
      *                     serveur.
      */
     public void loadCourses(String session) throws IOException {
-        try {
-            objectOutputStream.writeObject(Server.LOAD_COMMAND + " " + session);
-            objectOutputStream.flush();
-
-            List<Course> courses = (List<Course>) objectInputStream.readObject();
+        List<Course> courses = connection.loadCourses(session);
 
-            System.out.println("Les cours offerts pendant la session d'" + session + " sont :");
-            for (Course course : courses) {
-                System.out.println(" - " + course.getCode() + "        " + course.getName());
-            }
-        } catch (ClassNotFoundException e) {
-            System.err.println("Erreur: la classe Course n'a pas été trouvée.");
-            e.printStackTrace();
+        System.out.println("Les cours offerts pendant la session d'" + session + " sont :");
+        for (Course course : courses) {
+            System.out.println(" - " + course.getCode() + "        " + course.getName());
         }
-
     }
 
     /**
@@ -136,35 +150,75 @@ public class SimpleClient {
      * d'inscription.
      * 
      * @param registration Les informations d'inscription à un cours.
-     * @throws IOException            Si une erreur se produit lors de la
-     *                                communication avec le serveur.
-     * @throws ClassNotFoundException Si la classe Course n'est pas trouvée.
+     * @throws IOException Si une erreur se produit lors de la communication avec
+     *                     le serveur.
      */
-    public void registerForCourse(RegistrationForm registration) throws IOException, ClassNotFoundException {
+    public void registerForCourse(RegistrationForm registration) throws IOException {
 
         System.out.println("Envoi de la demande d'inscription au serveur...: " +
                 registration.toString());
 
-        objectOutputStream.writeObject(Server.REGISTER_COMMAND);
-        objectOutputStream.flush();
-
-        objectOutputStream.writeObject(registration);
-        objectOutputStream.flush();
-
-        String message = (String) objectInputStream.readObject();
+        String message;
+        try {
+            message = connection.registerForCourse(registration);
+        } catch (RequestRefusedException e) {
+            System.out.println("Inscription refusée: " + e.getMessage());
+            return;
+        }
         System.out.println("Message du serveur: " + message);
         System.out.println(message);
     }
 
     /**
-     * Ferme la connexion avec le serveur.
+     * Annule l'inscription de l'utilisateur à un cours.
+     * 
+     * @param registration Le matricule de l'utilisateur et le cours.
+     * @throws IOException Si une erreur se produit lors de la communication avec
+     *                     le serveur.
+     */
+    public void cancelRegistration(RegistrationForm registration) throws IOException {
+        String message;
+        try {
+            message = connection.cancelRegistration(registration);
+        } catch (RequestRefusedException e) {
+            System.out.println("Annulation refusée: " + e.getMessage());
+            return;
+        }
+        System.out.println("Message du serveur: " + message);
+    }
+
+    /**
+     * Inscrit l'utilisateur à plusieurs cours en une seule requête et affiche le
+     * résultat de chaque inscription.
+     * 
+     * @param registration La demande d'inscription groupée.
+     * @throws IOException Si une erreur se produit lors de la communication avec
+     *                     le serveur.
+     */
+    public void registerForCourses(BatchRegistrationForm registration) throws IOException {
+
+        System.out.println("Envoi de la demande d'inscription groupée au serveur...: " +
+                registration.toString());
+
+        List<RegistrationResult> results;
+        try {
+            results = connection.registerForCourses(registration);
+        } catch (RequestRefusedException e) {
+            System.out.println("Inscription refusée: " + e.getMessage());
+            return;
+        }
+        for (RegistrationResult result : results) {
+            System.out.println(" - " + result.getCourse().getCode() + ": " + result.getMessage());
+        }
+    }
+
+    /**
+     * Avertit le serveur de la fin de la session puis ferme la connexion.
      * 
      * @throws IOException Si une erreur se produit lors de la fermeture de la
      *                     connexion.
      */
     public void disconnect() throws IOException {
-        objectInputStream.close();
-        objectOutputStream.close();
-        socket.close();
+        connection.close();
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+
+import javafx.util.Pair;
+import server.protocol.BinaryCodec;
+import server.protocol.Protocol;
+
+/**
+ * Connexion bloquante d'un client qui parle le protocole binaire décrit dans
+ * {@link Protocol}.
+ */
+public class BinaryConnection extends FramedConnection implements BlockingConnection {
+
+    private final DataInputStream input;
+    private final DataOutputStream output;
+
+    /**
+     * Constructeur de la classe {@code BinaryConnection}.
+     * Termine la négociation en lisant la version demandée par le client et en
+     * lui répondant avec la version retenue.
+     *
+     * @param socket Le socket accepté pour ce client
+     * @param input  Le flux d'entrée du socket, positionné après l'octet
+     *               {@link Protocol#MAGIC}
+     * @param output Le flux de sortie du socket
+     * @throws IOException Si la version demandée n'est pas prise en charge ou si
+     *                     une erreur se produit lors de la négociation
+     */
+    public BinaryConnection(Socket socket, InputStream input, OutputStream output) throws IOException {
+        super(socket);
+        this.input = new DataInputStream(new BufferedInputStream(input));
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+
+        byte version = this.input.readByte();
+        byte accepted = Protocol.acceptVersion(version);
+        this.output.writeByte(accepted);
+        this.output.flush();
+        if (accepted == 0) {
+            throw new ProtocolException("Version du protocole non prise en charge: " + version);
+        }
+    }
+
+    @Override
+    public Pair<String, String> readCommand() throws IOException {
+        return decodeCommand(BinaryCodec.readFrame(input));
+    }
+
+    @Override
+    public void writeEncoded(byte[] payload) throws IOException {
+        output.write(payload);
+        output.flush();
+    }
+
+    @Override
+    protected void closeStreams() throws IOException {
+        output.close();
+        input.close();
+    }
+}
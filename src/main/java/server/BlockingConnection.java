@@ -0,0 +1,23 @@
+package server;
+
+import java.io.IOException;
+
+import javafx.util.Pair;
+
+/**
+ * Connexion servie par un fil qui attend lui-même les commandes du client sur
+ * son socket, comme dans la boucle du moteur bloquant. Les connexions du
+ * moteur NIO n'en sont pas: leurs trames sont lues et découpées par le fil du
+ * sélecteur.
+ */
+public interface BlockingConnection {
+
+    /**
+     * Lit la prochaine commande du client. Cette méthode est bloquante.
+     *
+     * @return Une paire contenant la commande et son argument
+     * @throws IOException            Si une erreur se produit lors de la lecture
+     * @throws ClassNotFoundException Si la classe de l'objet reçu n'est pas trouvée
+     */
+    Pair<String, String> readCommand() throws IOException, ClassNotFoundException;
+}
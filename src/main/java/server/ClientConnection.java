@@ -0,0 +1,204 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+
+import java.util.List;
+
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.SearchQuery;
+import server.protocol.Protocol;
+import server.protocol.WireFormat;
+
+/**
+ * La classe ClientConnection regroupe l'état propre à une connexion cliente:
+ * le {@code Socket} et les flux qui lui sont associés.
+ *
+ * Chaque connexion acceptée par le {@code Server} possède sa propre instance,
+ * ce qui permet de servir plusieurs clients en parallèle sans partager de
+ * champs entre les fils d'exécution. Le format d'échange est négocié à
+ * l'ouverture: {@link ObjectStreamConnection} pour les anciens clients qui
+ * envoient des objets Java sérialisés, {@link BinaryConnection} pour ceux qui
+ * parlent le protocole binaire.
+ *
+ * Cette classe ne lit pas les commandes: les connexions du moteur bloquant les
+ * lisent elles-mêmes ({@link BlockingConnection}), tandis que le moteur NIO
+ * les découpe dans son sélecteur.
+ */
+public abstract class ClientConnection implements Closeable {
+
+    protected final Socket socket;
+
+    protected ClientConnection(Socket socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * Détecte le format d'échange d'un client à partir du premier octet qu'il
+     * envoie. L'octet {@link Protocol#MAGIC} du protocole binaire est consommé;
+     * tout autre octet est remis dans le flux, qui commence alors le flux
+     * d'objets.
+     *
+     * @param input Le flux d'entrée du socket accepté
+     * @return {@link WireFormat#BINARY} pour une {@link BinaryConnection},
+     *         {@link WireFormat#OBJECT_STREAM} pour une
+     *         {@link ObjectStreamConnection}
+     * @throws IOException Si une erreur se produit lors de la lecture
+     */
+    public static WireFormat detectFormat(PushbackInputStream input) throws IOException {
+        int first = input.read();
+        if (first == (Protocol.MAGIC & 0xFF)) {
+            return WireFormat.BINARY;
+        }
+        if (first >= 0) {
+            input.unread(first);
+        }
+        return WireFormat.OBJECT_STREAM;
+    }
+
+    /**
+     * @return Le format d'échange négocié avec le client
+     */
+    public abstract WireFormat getWireFormat();
+
+    /**
+     * Lit le formulaire d'inscription qui accompagne une commande
+     * {@code INSCRIRE} ou {@code ANNULER}.
+     *
+     * @return Le formulaire reçu
+     * @throws IOException            Si une erreur se produit lors de la lecture
+     * @throws ClassNotFoundException Si la classe de l'objet reçu n'est pas trouvée
+     */
+    public abstract RegistrationForm readRegistrationForm() throws IOException, ClassNotFoundException;
+
+    /**
+     * Lit la demande d'inscription groupée qui accompagne une commande
+     * {@code INSCRIRE_LOT}.
+     *
+     * @return La demande reçue
+     * @throws IOException            Si une erreur se produit lors de la lecture
+     * @throws ClassNotFoundException Si la classe de l'objet reçu n'est pas trouvée
+     */
+    public abstract BatchRegistrationForm readBatchRegistrationForm() throws IOException, ClassNotFoundException;
+
+    /**
+     * Envoie au client le résultat de chacune des inscriptions d'une demande
+     * groupée.
+     *
+     * @param results Les résultats, dans l'ordre des cours de la demande
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void sendRegistrationResults(List<RegistrationResult> results) throws IOException;
+
+    /**
+     * Envoie au client une liste d'inscriptions, en réponse à
+     * {@code INSCRITS_COURS} ou à {@code INSCRIPTIONS_ETUDIANT}.
+     *
+     * @param forms Les formulaires des inscriptions
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void sendRegistrations(List<RegistrationForm> forms) throws IOException;
+
+    /**
+     * Lit la requête de recherche qui accompagne une commande
+     * {@code RECHERCHER} ou {@code CHARGER_PAGES}.
+     *
+     * @return La requête reçue
+     * @throws IOException            Si une erreur se produit lors de la lecture
+     * @throws ClassNotFoundException Si la classe de l'objet reçu n'est pas trouvée
+     */
+    public abstract SearchQuery readSearchQuery() throws IOException, ClassNotFoundException;
+
+    /**
+     * Envoie une page de cours au client.
+     *
+     * @param page La page à envoyer
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void sendCoursePage(CoursePage page) throws IOException;
+
+    /**
+     * Envoie au client l'étiquette de la liste des cours d'une session.
+     *
+     * @param version L'étiquette et l'indication de modification
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void sendCatalogVersion(CatalogVersion version) throws IOException;
+
+    /**
+     * Envoie un message textuel au client.
+     *
+     * @param message Le message à envoyer
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void sendMessage(String message) throws IOException;
+
+    /**
+     * Avertit le client que sa requête a été refusée. Par défaut, le refus est
+     * envoyé comme un message textuel.
+     *
+     * @param message Le message expliquant le refus
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public void sendError(String message) throws IOException {
+        sendMessage(message);
+    }
+
+    /**
+     * Avertit le client que sa requête n'a pas été traitée et qu'il peut la
+     * renvoyer après un délai.
+     *
+     * @param retryAfter Le délai, en millisecondes, avant de renvoyer la requête
+     * @param message    Le message expliquant le refus
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void sendRetryLater(long retryAfter, String message) throws IOException;
+
+    /**
+     * Envoie au client une réponse déjà encodée dans son format d'échange.
+     *
+     * @param payload Les octets de la réponse
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public abstract void writeEncoded(byte[] payload) throws IOException;
+
+    /**
+     * @return L'adresse distante du client
+     */
+    public SocketAddress getRemoteAddress() {
+        return socket.getRemoteSocketAddress();
+    }
+
+    /**
+     * Ferme les flux d'entrée et de sortie et déconnecte le client.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeStreams();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Ferme les flux propres au format d'échange.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture
+     */
+    protected abstract void closeStreams() throws IOException;
+
+    @Override
+    public String toString() {
+        return socket.toString();
+    }
+}
@@ -0,0 +1,139 @@
+package server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * La classe CommandRegistry associe chaque commande du serveur à son unique
+ * gestionnaire. Une commande reçue est servie par une seule recherche dans une
+ * table de hachage, quel que soit le nombre de commandes inscrites; une
+ * nouvelle commande s'ajoute avec {@link #register(String, EventHandler)} sans
+ * modifier le {@code Server}.
+ *
+ * Des {@link Interceptor} peuvent entourer toutes les commandes, par exemple
+ * pour mesurer leur durée, vérifier une autorisation ou limiter le débit d'un
+ * client. Ils sont appelés avant le gestionnaire dans l'ordre de leur ajout,
+ * puis après lui dans l'ordre inverse.
+ */
+public class CommandRegistry {
+
+    /**
+     * Traitement appliqué autour de chaque commande. Les deux méthodes sont
+     * facultatives.
+     */
+    public interface Interceptor {
+        /**
+         * Appelée avant le gestionnaire de la commande.
+         *
+         * @param connection La connexion du client qui a envoyé la commande
+         * @param cmd        La commande reçue
+         * @param arg        L'argument de la commande
+         * @return {@code false} pour que la commande ne soit pas traitée;
+         *         l'intercepteur doit alors répondre lui-même au client
+         * @throws IOException Si une erreur se produit lors de la réponse au
+         *                     client
+         */
+        default boolean before(ClientConnection connection, String cmd, String arg) throws IOException {
+            return true;
+        }
+
+        /**
+         * Appelée après le gestionnaire de la commande, ou après le refus d'un
+         * intercepteur, pour tous les intercepteurs dont {@code before} a été
+         * appelée.
+         *
+         * @param connection La connexion du client qui a envoyé la commande
+         * @param cmd        La commande reçue
+         * @param arg        L'argument de la commande
+         * @param handled    {@code false} si un intercepteur a refusé la
+         *                   commande avant son gestionnaire
+         * @param elapsed    La durée du traitement, en nanosecondes
+         */
+        default void after(ClientConnection connection, String cmd, String arg, boolean handled, long elapsed) {
+        }
+    }
+
+    private final Map<String, EventHandler> handlers = new ConcurrentHashMap<>();
+    private volatile Interceptor[] interceptors = new Interceptor[0];
+
+    /**
+     * Inscrit le gestionnaire d'une commande.
+     *
+     * @param command Le nom de la commande
+     * @param handler Le gestionnaire de la commande
+     * @throws IllegalStateException Si la commande a déjà un gestionnaire
+     */
+    public void register(String command, EventHandler handler) {
+        if (handlers.putIfAbsent(command, handler) != null) {
+            throw new IllegalStateException("Commande déjà inscrite: " + command);
+        }
+    }
+
+    /**
+     * Ajoute un intercepteur autour de toutes les commandes.
+     *
+     * @param interceptor L'intercepteur à ajouter
+     */
+    public synchronized void addInterceptor(Interceptor interceptor) {
+        Interceptor[] copy = Arrays.copyOf(interceptors, interceptors.length + 1);
+        copy[interceptors.length] = interceptor;
+        interceptors = copy;
+    }
+
+    /**
+     * @param command Le nom de la commande
+     * @return {@code true} si la commande a un gestionnaire
+     */
+    public boolean isRegistered(String command) {
+        return handlers.containsKey(command);
+    }
+
+    /**
+     * @return Les noms des commandes inscrites
+     */
+    public Set<String> getCommands() {
+        return Collections.unmodifiableSet(handlers.keySet());
+    }
+
+    /**
+     * Transmet une commande à son gestionnaire en passant par les
+     * intercepteurs.
+     *
+     * @param connection La connexion du client qui a envoyé la commande
+     * @param cmd        La commande reçue
+     * @param arg        L'argument de la commande
+     * @return {@code false} si la commande n'a pas de gestionnaire
+     * @throws IOException Si un intercepteur ne parvient pas à répondre au
+     *                     client
+     */
+    public boolean dispatch(ClientConnection connection, String cmd, String arg) throws IOException {
+        EventHandler handler = handlers.get(cmd);
+        if (handler == null) {
+            return false;
+        }
+        // les intercepteurs ajoutés pendant le traitement ne servent qu'aux commandes suivantes
+        Interceptor[] chain = interceptors;
+        long start = System.nanoTime();
+        int entered = 0;
+        boolean handled = false;
+        try {
+            while (entered < chain.length) {
+                if (!chain[entered++].before(connection, cmd, arg)) {
+                    return true;
+                }
+            }
+            handled = true;
+            handler.handle(connection, cmd, arg);
+            return true;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            for (int i = entered - 1; i >= 0; i--) {
+                chain[i].after(connection, cmd, arg, handled, elapsed);
+            }
+        }
+    }
+}
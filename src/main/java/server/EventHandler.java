@@ -2,5 +2,5 @@ package server;
 
 @FunctionalInterface
 public interface EventHandler {
-    void handle(String cmd, String arg);
+    void handle(ClientConnection connection, String cmd, String arg);
 }
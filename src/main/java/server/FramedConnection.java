@@ -0,0 +1,159 @@
+package server;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.Socket;
+
+import java.util.List;
+
+import javafx.util.Pair;
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.RetryLater;
+import server.models.SearchQuery;
+import server.protocol.BinaryCodec;
+import server.protocol.Frame;
+import server.protocol.Protocol;
+import server.protocol.WireFormat;
+
+/**
+ * Base des connexions qui parlent le protocole binaire décrit dans
+ * {@link Protocol}, qu'elles soient servies par un socket bloquant ou par le
+ * moteur non bloquant. Le formulaire d'inscription voyage dans la même trame
+ * que la commande; il est décodé avec la commande et remis au gestionnaire par
+ * {@link #readRegistrationForm()}.
+ */
+public abstract class FramedConnection extends ClientConnection {
+
+    private RegistrationForm pendingForm;
+    private BatchRegistrationForm pendingBatch;
+    private SearchQuery pendingQuery;
+
+    protected FramedConnection(Socket socket) {
+        super(socket);
+    }
+
+    @Override
+    public WireFormat getWireFormat() {
+        return WireFormat.BINARY;
+    }
+
+    /**
+     * Décode la commande portée par une trame reçue du client.
+     *
+     * @param frame La trame reçue
+     * @return Une paire contenant la commande et son argument
+     * @throws IOException Si la trame est mal formée ou son code d'opération
+     *                     inconnu
+     */
+    public Pair<String, String> decodeCommand(Frame frame) throws IOException {
+        switch (frame.getOpcode()) {
+            case Protocol.LOAD:
+                return new Pair<>(Server.LOAD_COMMAND, BinaryCodec.readString(frame.input()));
+            case Protocol.REGISTER:
+                pendingForm = BinaryCodec.readRegistrationForm(frame.input());
+                return new Pair<>(Server.REGISTER_COMMAND, "");
+            case Protocol.CANCEL_REGISTRATION:
+                pendingForm = BinaryCodec.readRegistrationForm(frame.input());
+                return new Pair<>(Server.CANCEL_COMMAND, "");
+            case Protocol.REGISTER_BATCH:
+                pendingBatch = BinaryCodec.readBatchRegistrationForm(frame.input());
+                return new Pair<>(Server.BATCH_REGISTER_COMMAND, "");
+            case Protocol.SEARCH:
+                pendingQuery = BinaryCodec.readSearchQuery(frame.input());
+                return new Pair<>(Server.SEARCH_COMMAND, "");
+            case Protocol.LOAD_PAGES:
+                pendingQuery = BinaryCodec.readSearchQuery(frame.input());
+                return new Pair<>(Server.LOAD_PAGES_COMMAND, "");
+            case Protocol.LOAD_IF_MODIFIED: {
+                DataInput body = frame.input();
+                String session = BinaryCodec.readString(body);
+                String tag = BinaryCodec.readString(body);
+                return new Pair<>(Server.LOAD_IF_MODIFIED_COMMAND,
+                        tag == null || tag.isEmpty() ? session : session + " " + tag);
+            }
+            case Protocol.LIST_COURSE_REGISTRATIONS: {
+                DataInput body = frame.input();
+                String session = BinaryCodec.readString(body);
+                String code = BinaryCodec.readString(body);
+                return new Pair<>(Server.COURSE_REGISTRATIONS_COMMAND, session + " " + code);
+            }
+            case Protocol.LIST_STUDENT_REGISTRATIONS:
+                return new Pair<>(Server.STUDENT_REGISTRATIONS_COMMAND, BinaryCodec.readString(frame.input()));
+            case Protocol.CLOSE:
+                return new Pair<>(Server.CLOSE_COMMAND, "");
+            default:
+                throw new ProtocolException("Code d'opération inconnu: " + frame.getOpcode());
+        }
+    }
+
+    @Override
+    public RegistrationForm readRegistrationForm() throws IOException {
+        RegistrationForm form = pendingForm;
+        pendingForm = null;
+        if (form == null) {
+            throw new ProtocolException("Aucun formulaire d'inscription reçu.");
+        }
+        return form;
+    }
+
+    @Override
+    public BatchRegistrationForm readBatchRegistrationForm() throws IOException {
+        BatchRegistrationForm form = pendingBatch;
+        pendingBatch = null;
+        if (form == null) {
+            throw new ProtocolException("Aucune demande d'inscription groupée reçue.");
+        }
+        return form;
+    }
+
+    @Override
+    public void sendRegistrationResults(List<RegistrationResult> results) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.RESULTS, out -> BinaryCodec.writeRegistrationResults(out, results)));
+    }
+
+    @Override
+    public void sendRetryLater(long retryAfter, String message) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.RETRY_LATER,
+                out -> BinaryCodec.writeRetryLater(out, new RetryLater(retryAfter, message))));
+    }
+
+    @Override
+    public void sendRegistrations(List<RegistrationForm> forms) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.REGISTRATIONS, out -> BinaryCodec.writeRegistrationForms(out, forms)));
+    }
+
+    @Override
+    public SearchQuery readSearchQuery() throws IOException {
+        SearchQuery query = pendingQuery;
+        pendingQuery = null;
+        if (query == null) {
+            throw new ProtocolException("Aucune requête de recherche reçue.");
+        }
+        return query;
+    }
+
+    @Override
+    public void sendCoursePage(CoursePage page) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.PAGE, out -> BinaryCodec.writeCoursePage(out, page)));
+    }
+
+    @Override
+    public void sendCatalogVersion(CatalogVersion version) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.CATALOG_VERSION, out -> BinaryCodec.writeCatalogVersion(out, version)));
+    }
+
+    @Override
+    public void sendMessage(String message) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.MESSAGE, out -> BinaryCodec.writeString(out, message)));
+    }
+
+    @Override
+    public void sendError(String message) throws IOException {
+        writeEncoded(BinaryCodec.frame(Protocol.ERROR, out -> BinaryCodec.writeString(out, message)));
+    }
+}
@@ -0,0 +1,183 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javafx.util.Pair;
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.SearchQuery;
+import server.protocol.WireFormat;
+
+/**
+ * Connexion d'un client qui échange des objets Java sérialisés: les commandes
+ * sont des chaînes et le formulaire d'inscription suit la commande
+ * {@code INSCRIRE} comme un objet distinct.
+ *
+ * L'objet qui accompagne une commande est lu avec elle, comme le corps d'une
+ * trame du protocole binaire: une commande refusée avant son traitement ne
+ * laisse donc pas d'objet non lu dans le flux.
+ */
+public class ObjectStreamConnection extends ClientConnection implements BlockingConnection {
+
+    private final static Set<String> PAYLOAD_COMMANDS = Set.of(Server.REGISTER_COMMAND,
+            Server.BATCH_REGISTER_COMMAND, Server.CANCEL_COMMAND, Server.SEARCH_COMMAND,
+            Server.LOAD_PAGES_COMMAND);
+
+    private final OutputStream outputStream;
+    private final ObjectInputStream objectInputStream;
+    private final ObjectOutputStream objectOutputStream;
+    private Object pending;
+
+    /**
+     * Constructeur de la classe {@code ObjectStreamConnection}.
+     * Ouvre les flux d'entrée et de sortie d'objets sur le socket du client.
+     *
+     * @param socket Le socket accepté pour ce client
+     * @param input  Le flux d'entrée du socket, positionné au début du flux
+     *               d'objets
+     * @param output Le flux de sortie du socket
+     * @throws IOException Si une erreur se produit lors de l'ouverture des flux
+     */
+    public ObjectStreamConnection(Socket socket, InputStream input, OutputStream output) throws IOException {
+        super(socket);
+        this.outputStream = output;
+        this.objectInputStream = new ObjectInputStream(input);
+        this.objectOutputStream = new ObjectOutputStream(outputStream);
+    }
+
+    @Override
+    public WireFormat getWireFormat() {
+        return WireFormat.OBJECT_STREAM;
+    }
+
+    @Override
+    public Pair<String, String> readCommand() throws IOException, ClassNotFoundException {
+        Pair<String, String> parts = Server.processCommandLine(readObject().toString());
+        pending = PAYLOAD_COMMANDS.contains(parts.getKey()) ? readObject() : null;
+        return parts;
+    }
+
+    @Override
+    public RegistrationForm readRegistrationForm() throws IOException {
+        return (RegistrationForm) takePending();
+    }
+
+    @Override
+    public BatchRegistrationForm readBatchRegistrationForm() throws IOException {
+        return (BatchRegistrationForm) takePending();
+    }
+
+    @Override
+    public void sendRegistrationResults(List<RegistrationResult> results) throws IOException {
+        writeObject(new ArrayList<>(results));
+    }
+
+    @Override
+    public void sendRegistrations(List<RegistrationForm> forms) throws IOException {
+        writeObject(new ArrayList<>(forms));
+    }
+
+    @Override
+    public SearchQuery readSearchQuery() throws IOException {
+        return (SearchQuery) takePending();
+    }
+
+    /**
+     * Les anciens clients ne connaissent pas la classe {@code RetryLater}: le
+     * refus leur est envoyé comme un message d'erreur, qu'ils affichent déjà.
+     */
+    @Override
+    public void sendRetryLater(long retryAfter, String message) throws IOException {
+        sendError(message);
+    }
+
+    @Override
+    public void sendCoursePage(CoursePage page) throws IOException {
+        writeObject(page);
+    }
+
+    @Override
+    public void sendCatalogVersion(CatalogVersion version) throws IOException {
+        writeObject(version);
+    }
+
+    @Override
+    public void sendMessage(String message) throws IOException {
+        writeObject(message);
+    }
+
+    /**
+     * @return L'objet lu avec la dernière commande
+     * @throws ProtocolException Si la commande n'était suivie d'aucun objet
+     */
+    private Object takePending() throws ProtocolException {
+        Object payload = pending;
+        pending = null;
+        if (payload == null) {
+            throw new ProtocolException("Aucun objet reçu avec la commande.");
+        }
+        return payload;
+    }
+
+    /**
+     * Lit le prochain objet envoyé par le client.
+     *
+     * @return L'objet reçu
+     * @throws IOException            Si une erreur se produit lors de la lecture
+     * @throws ClassNotFoundException Si la classe de l'objet reçu n'est pas trouvée
+     */
+    public Object readObject() throws IOException, ClassNotFoundException {
+        return objectInputStream.readObject();
+    }
+
+    /**
+     * Envoie un objet au client et vide le flux de sortie.
+     * La table des références du flux est réinitialisée après chaque envoi pour
+     * qu'une connexion qui reste ouverte longtemps ne retienne pas les objets
+     * déjà envoyés.
+     *
+     * @param object L'objet à envoyer
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public void writeObject(Object object) throws IOException {
+        objectOutputStream.writeObject(object);
+        objectOutputStream.reset();
+        objectOutputStream.flush();
+    }
+
+    /**
+     * Envoie au client un objet déjà sérialisé, sans en-tête de flux.
+     * La table des références est réinitialisée avant et après l'envoi afin que
+     * le client décode ces octets exactement comme un appel à
+     * {@link #writeObject(Object)}.
+     *
+     * @param payload Les octets de l'objet sérialisé
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    @Override
+    public void writeEncoded(byte[] payload) throws IOException {
+        objectOutputStream.reset();
+        objectOutputStream.flush();
+        outputStream.write(payload);
+        objectOutputStream.reset();
+        objectOutputStream.flush();
+    }
+
+    @Override
+    protected void closeStreams() throws IOException {
+        objectOutputStream.close();
+        objectInputStream.close();
+    }
+}
@@ -2,20 +2,58 @@ package server;
 
 import javafx.util.Pair;
 
-import java.io.FileWriter;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import server.admission.AdmissionControl;
+import server.catalog.CourseCatalog;
+import server.catalog.ResponseCache;
+import server.logging.Level;
+import server.logging.Log;
+import server.logging.Logger;
+import server.metrics.CommandMetrics;
+import server.metrics.ServerMetrics;
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
 import server.models.Course;
+import server.models.CoursePage;
+import server.models.SearchQuery;
+import server.nio.NioServer;
+import server.protocol.WireFormat;
+import server.registration.RegistrationDirectory;
+import server.registration.RegistrationIndex;
+import server.registration.RegistrationJournal;
+import server.registration.RegistrationLog;
+import server.registration.TextRegistrationStore;
 import server.models.RegistrationForm;
+import server.models.RegistrationResult;
 
 /**
  * 
@@ -30,97 +68,535 @@ import server.models.RegistrationForm;
  * à un serveur pour charger la liste des cours disponibles, de sélectionner un
  * cours,
  * 
- * Il utilise des {@code EventHandler} pour gérer les événements et communiquer
- * avec les
- * clients.
+ * Chaque commande est servie par un seul {@code EventHandler}, trouvé dans
+ * un {@link CommandRegistry}; d'autres commandes et des intercepteurs
+ * peuvent y être ajoutés sans modifier cette classe.
+ * 
+ * Chaque connexion acceptée est servie par un fil d'exécution d'un bassin
+ * borné, de sorte qu'un client lent ne bloque pas les autres. Une connexion
+ * reste ouverte pour plusieurs commandes jusqu'à ce que le client envoie
+ * {@code FERMER} ou qu'elle reste inactive trop longtemps.
+ * 
+ * Le moteur {@link Engine#NIO} remplace ce bassin par un {@link NioServer}:
+ * un seul fil surveille toutes les connexions et seules les commandes occupent
+ * un fil de travail.
+ * 
+ * {@link #start()} lance le moteur sur son propre fil et {@link #stop(long)}
+ * l'arrête sans couper les commandes en cours: le port est fermé, les
+ * commandes déjà reçues sont traitées jusqu'à une échéance, puis les
+ * inscriptions en attente sont écrites au journal. Le catalogue des cours peut
+ * être rechargé pendant le service avec {@link #reloadCatalog()}.
  */
 
-public class Server {
+public class Server implements ServerMBean {
+
+    /**
+     * Les moteurs qui acceptent et servent les connexions.
+     */
+    public enum Engine {
+        /** Un fil bloquant par connexion, tous formats d'échange. */
+        BLOCKING,
+        /** Un sélecteur non bloquant, protocole binaire seulement. */
+        NIO
+    }
 
     public final static String REGISTER_COMMAND = "INSCRIRE";
     public final static String LOAD_COMMAND = "CHARGER";
+    public final static String CLOSE_COMMAND = "FERMER";
+    public final static String SEARCH_COMMAND = "RECHERCHER";
+    public final static String LOAD_PAGES_COMMAND = "CHARGER_PAGES";
+    public final static String LOAD_IF_MODIFIED_COMMAND = "CHARGER_SI_MODIFIE";
+    public final static String BATCH_REGISTER_COMMAND = "INSCRIRE_LOT";
+    public final static String CANCEL_COMMAND = "ANNULER";
+    public final static String COURSE_REGISTRATIONS_COMMAND = "INSCRITS_COURS";
+    public final static String STUDENT_REGISTRATIONS_COMMAND = "INSCRIPTIONS_ETUDIANT";
+    public final static int MAX_BATCH_COURSES = 20;
+    public final static int MAX_LOAD_PAGE_SIZE = 1000;
+    public final static int DEFAULT_BACKLOG = 128;
+    public final static int DEFAULT_WORKERS = 64;
+    public final static int DEFAULT_ACCEPT_QUEUE = 256;
+    public final static int DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+    public final static long DEFAULT_SHUTDOWN_TIMEOUT = 30 * 1000;
+    public final static String COURSES_FILE = "./src/main/java/server/data/cours.txt";
+    public final static String REGISTRATIONS_FILE = "./src/main/java/server/data/inscription.txt";
+    public final static String REGISTRATIONS_DIR = "./src/main/java/server/data/inscriptions";
+    public final static String TEXT_STORE = "texte";
+    private final static Logger LOG = Log.getLogger(Server.class);
     private final ServerSocket server;
-    private Socket client;
-    private ObjectInputStream objectInputStream;
-    private ObjectOutputStream objectOutputStream;
-    private final ArrayList<EventHandler> handlers;
+    private final NioServer nioServer;
+    private final CourseCatalog catalog;
+    private final ResponseCache responseCache;
+    private final RegistrationJournal journal;
+    private final RegistrationIndex registrations;
+    private final RegistrationDirectory directory;
+    private final ServerMetrics metrics;
+    private final int idleTimeout;
+    private final ExecutorService workers;
+    private final CommandRegistry commands;
+    private final AdmissionControl admission;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopped;
+    private Thread engineThread;
 
     /**
      * Constructeur de la classe {@code Server}.
-     * Crée un nouveau serveur en écoutant sur le port spécifié et initialise les
-     * gestionnaires d'événements.
+     * Crée un nouveau serveur en écoutant sur le port spécifié avec la file
+     * d'attente et le nombre de fils d'exécution par défaut.
      *
      * @param port Le numéro de port sur lequel le serveur doit écouter
      * @throws IOException Si une erreur se produit lors de la création du
      *                     {@code ServerSocket}
      */
     public Server(int port) throws IOException {
-        this.server = new ServerSocket(port, 1);
-        this.handlers = new ArrayList<EventHandler>();
-        this.addEventHandler(this::handleEvents);
+        this(port, DEFAULT_BACKLOG, DEFAULT_WORKERS, DEFAULT_IDLE_TIMEOUT);
     }
 
     /**
-     * Ajoute un nouvel {@code EventHandler} à la liste des gestionnaires
-     * d'événements.
+     * Constructeur de la classe {@code Server}.
+     * Crée un nouveau serveur en écoutant sur le port spécifié, charge le
+     * catalogue des cours et initialise les gestionnaires d'événements ainsi que
+     * le bassin de fils d'exécution qui sert les connexions.
      *
-     * @param h L'instance de l'{@code EventHandler} à ajouter
+     * @param port        Le numéro de port sur lequel le serveur doit écouter
+     * @param backlog     La taille de la file des connexions en attente
+     *                    d'acceptation
+     * @param workers     Le nombre maximal de clients servis en même temps
+     * @param idleTimeout Le délai d'inactivité, en millisecondes, après lequel
+     *                    une connexion est fermée (0 pour aucun délai)
+     * @throws IOException Si une erreur se produit lors de la création du
+     *                     {@code ServerSocket} ou de la lecture du catalogue
      */
-    public void addEventHandler(EventHandler h) {
-        this.handlers.add(h);
+    public Server(int port, int backlog, int workers, int idleTimeout) throws IOException {
+        this(port, backlog, workers, idleTimeout, Engine.BLOCKING);
     }
 
     /**
-     * Avertit tous les gestionnaires d'événements de la réception d'une commande et
-     * de son argument.
+     * Constructeur de la classe {@code Server}.
+     * Crée un nouveau serveur servi par le moteur spécifié.
      *
-     * @param cmd La commande reçue
-     * @param arg L'argument de la commande
+     * @param port        Le numéro de port sur lequel le serveur doit écouter
+     * @param backlog     La taille de la file des connexions en attente
+     *                    d'acceptation
+     * @param workers     Le nombre de fils qui servent les connexions (moteur
+     *                    bloquant) ou traitent les commandes (moteur NIO)
+     * @param idleTimeout Le délai d'inactivité, en millisecondes, après lequel
+     *                    une connexion est fermée (0 pour aucun délai)
+     * @param engine      Le moteur qui accepte et sert les connexions
+     * @throws IOException Si une erreur se produit lors de l'ouverture du port ou
+     *                     de la lecture du catalogue
      */
-    private void alertHandlers(String cmd, String arg) {
-        for (EventHandler h : this.handlers) {
-            h.handle(cmd, arg);
+    public Server(int port, int backlog, int workers, int idleTimeout, Engine engine) throws IOException {
+        this.catalog = new CourseCatalog(Paths.get(COURSES_FILE), CourseCatalog.DEFAULT_CHECK_INTERVAL,
+                Integer.getInteger("server.catalog.parallelism", Runtime.getRuntime().availableProcessors()));
+        this.responseCache = new ResponseCache(catalog);
+        int capacity = Integer.getInteger("server.registration.capacity", RegistrationIndex.UNLIMITED);
+        this.registrations = new RegistrationIndex(capacity);
+        this.directory = new RegistrationDirectory();
+        RegistrationLog.Replay replay = new RegistrationLog.Replay() {
+            @Override
+            public void registered(RegistrationForm form) {
+                registrations.restore(form.getCourse().getSession(), form.getCourse().getCode(),
+                        form.getMatricule());
+                directory.add(withCatalogCourse(form));
+            }
+
+            @Override
+            public void cancelled(String session, String code, String matricule) {
+                registrations.release(session, code, matricule);
+                directory.remove(session, code, matricule);
+            }
+        };
+        if (TEXT_STORE.equals(System.getProperty("server.registration.store"))) {
+            TextRegistrationStore.replay(Paths.get(REGISTRATIONS_FILE), replay);
+            this.journal = RegistrationJournal.fromSystemProperties(new TextRegistrationStore(
+                    Paths.get(REGISTRATIONS_FILE), RegistrationJournal.forceFromSystemProperties()));
+        } else {
+            this.journal = RegistrationJournal.fromSystemProperties(openRegistrationLog(replay));
+        }
+        this.metrics = new ServerMetrics(journal::getQueueDepth);
+        this.idleTimeout = idleTimeout;
+        this.commands = new CommandRegistry();
+        this.commands.addInterceptor(new CommandRegistry.Interceptor() {
+            @Override
+            public void after(ClientConnection connection, String cmd, String arg, boolean handled,
+                    long elapsed) {
+                if (!handled) {
+                    // une commande refusée n'a pas été traitée: sa durée ne compte pas dans les latences
+                    metrics.command(cmd).fail();
+                    return;
+                }
+                metrics.command(cmd).record(elapsed);
+                if (LOG.isEnabled(Level.INFO)) {
+                    LOG.info("Commande traitée", "command", cmd, "arg", arg, "latency_us", elapsed / 1000,
+                            "client", connection.getRemoteAddress());
+                }
+            }
+        });
+        this.admission = AdmissionControl.fromSystemProperties(
+                Set.of(REGISTER_COMMAND, BATCH_REGISTER_COMMAND, CANCEL_COMMAND), metrics);
+        this.commands.addInterceptor(admission);
+        registerCommand(LOAD_COMMAND, (connection, cmd, arg) -> handleLoadCourses(connection, arg));
+        registerCommand(REGISTER_COMMAND, (connection, cmd, arg) -> handleRegistration(connection));
+        registerCommand(SEARCH_COMMAND, (connection, cmd, arg) -> handleSearch(connection));
+        registerCommand(LOAD_PAGES_COMMAND, (connection, cmd, arg) -> handleLoadPages(connection));
+        registerCommand(LOAD_IF_MODIFIED_COMMAND, (connection, cmd, arg) -> handleLoadIfModified(connection, arg));
+        registerCommand(BATCH_REGISTER_COMMAND, (connection, cmd, arg) -> handleBatchRegistration(connection));
+        registerCommand(CANCEL_COMMAND, (connection, cmd, arg) -> handleCancellation(connection));
+        registerCommand(COURSE_REGISTRATIONS_COMMAND,
+                (connection, cmd, arg) -> handleCourseRegistrations(connection, arg));
+        registerCommand(STUDENT_REGISTRATIONS_COMMAND,
+                (connection, cmd, arg) -> handleStudentRegistrations(connection, arg));
+        if (engine == Engine.NIO) {
+            this.server = null;
+            this.workers = null;
+            this.nioServer = new NioServer(this, port, backlog, workers, idleTimeout);
+        } else {
+            this.server = new ServerSocket(port, backlog);
+            this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Integer.getInteger("server.acceptQueue", DEFAULT_ACCEPT_QUEUE)),
+                    new ClientThreadFactory());
+            this.nioServer = null;
+        }
+    }
+
+    /**
+     * Ouvre le journal binaire des inscriptions, dans le répertoire donné par la
+     * propriété système {@code server.registration.dir}, et le relit. Au premier
+     * démarrage, les inscriptions du fichier texte {@code inscription.txt} sont
+     * importées dans le journal.
+     *
+     * @param replay Reçoit les opérations relues ou importées
+     * @return Le journal ouvert
+     * @throws IOException Si le journal ou le fichier texte est illisible
+     */
+    private static RegistrationLog openRegistrationLog(RegistrationLog.Replay replay) throws IOException {
+        RegistrationLog log = RegistrationLog.fromSystemProperties(
+                Paths.get(System.getProperty("server.registration.dir", REGISTRATIONS_DIR)), replay);
+        Path text = Paths.get(REGISTRATIONS_FILE);
+        if (log.isEmpty() && Files.exists(text)) {
+            int imported = log.importText(text, replay);
+            LOG.info("Inscriptions importées du fichier texte", "file", text, "registrations", imported);
+        }
+        return log;
+    }
+
+    /**
+     * Le journal et le fichier texte des inscriptions ne conservent que la
+     * session et le code du cours; son nom est repris du catalogue pour que les
+     * listes d'inscriptions relues au démarrage l'affichent.
+     *
+     * @param form Une inscription relue
+     * @return L'inscription avec le cours du catalogue, ou telle quelle si le
+     *         cours n'y est plus
+     */
+    private RegistrationForm withCatalogCourse(RegistrationForm form) {
+        Course course = catalog.find(form.getCourse().getSession(), form.getCourse().getCode());
+        if (course == null) {
+            return form;
+        }
+        return new RegistrationForm(form.getPrenom(), form.getNom(), form.getEmail(), form.getMatricule(), course);
+    }
+
+    /**
+     * Inscrit une commande et son gestionnaire. La commande est mesurée comme
+     * les commandes du serveur.
+     *
+     * @param command Le nom de la commande
+     * @param handler Le gestionnaire de la commande
+     * @throws IllegalStateException Si la commande a déjà un gestionnaire
+     */
+    public void registerCommand(String command, EventHandler handler) {
+        commands.register(command, handler);
+        metrics.addCommand(command);
+    }
+
+    /**
+     * Ajoute un intercepteur autour de toutes les commandes, par exemple pour
+     * vérifier une autorisation ou limiter le débit d'un client.
+     *
+     * @param interceptor L'intercepteur à ajouter
+     */
+    public void addInterceptor(CommandRegistry.Interceptor interceptor) {
+        commands.addInterceptor(interceptor);
+    }
+
+    /**
+     * Retourne les mesures du serveur, pour les exposer par JMX ou sur le port
+     * d'administration.
+     *
+     * @return Les mesures du serveur
+     */
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Inscrit les mesures du serveur et ses opérations d'administration,
+     * comme {@link #reloadCatalog()}, auprès du serveur JMX de la plateforme.
+     *
+     * @throws JMException Si une erreur se produit lors de l'inscription
+     */
+    public void registerMBeans() throws JMException {
+        metrics.registerMBeans();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                new ObjectName(ServerMetrics.JMX_DOMAIN, "type", "Lifecycle"));
+    }
+
+    /**
+     * @return Le port sur lequel le serveur écoute
+     */
+    public int getPort() {
+        return nioServer != null ? nioServer.getPort() : server.getLocalPort();
+    }
+
+    /**
+     * Relit le fichier des cours sans interrompre le service. Le nouveau
+     * catalogue est construit pendant que l'ancien continue de répondre, puis
+     * le remplace d'un seul coup; les listes déjà encodées de l'ancienne
+     * version sont réencodées à la demande. Si le fichier est illisible,
+     * l'ancien catalogue reste en place.
+     *
+     * @return La version du catalogue après le rechargement
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    @Override
+    public long reloadCatalog() throws IOException {
+        catalog.reload();
+        return catalog.getVersion();
+    }
+
+    @Override
+    public long getCatalogVersion() {
+        return catalog.getVersion();
+    }
+
+    @Override
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Lance le moteur du serveur sur un fil dédié et retourne aussitôt.
+     *
+     * @throws IllegalStateException Si le serveur a déjà été démarré
+     */
+    public synchronized void start() {
+        if (engineThread != null) {
+            throw new IllegalStateException("Le serveur est déjà démarré.");
+        }
+        engineThread = new Thread(this::run, "server-engine");
+        engineThread.start();
+    }
+
+    /**
+     * Arrête le serveur sans couper les commandes en cours. Le port est fermé
+     * et plus aucune commande n'est lue; celles déjà reçues sont traitées et
+     * leurs réponses envoyées, puis les connexions sont fermées. Passé le
+     * délai, les connexions restantes sont fermées sans attendre. Les
+     * inscriptions en attente sont ensuite écrites et le journal fermé.
+     *
+     * @param timeout Le délai accordé aux commandes en cours, en millisecondes
+     * @return {@code true} si toutes les commandes en cours ont été terminées
+     *         avant le délai
+     */
+    public boolean stop(long timeout) {
+        synchronized (this) {
+            if (stopped) {
+                return true;
+            }
+            stopped = true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        LOG.info("Arrêt du serveur", "timeout_ms", timeout);
+        boolean drained = false;
+        try {
+            drained = nioServer != null ? nioServer.stop(deadline) : drain(deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOG.error("Erreur lors de la fermeture du journal des inscriptions", e);
+        }
+        LOG.info("Serveur arrêté", "drained", drained);
+        return drained;
+    }
+
+    /**
+     * Ferme le port du moteur bloquant et termine ses connexions. La lecture
+     * de chaque connexion est fermée: une connexion inactive voit aussitôt la
+     * fin du flux, tandis qu'une commande déjà lue est traitée et reçoit sa
+     * réponse avant que la lecture suivante ne termine la connexion.
+     *
+     * @param deadline L'échéance, selon {@link System#nanoTime()}
+     * @return {@code true} si toutes les connexions ont été terminées avant
+     *         l'échéance
+     * @throws InterruptedException Si le fil est interrompu pendant l'attente
+     */
+    private boolean drain(long deadline) throws InterruptedException {
+        try {
+            server.close();
+        } catch (IOException e) {
+            LOG.warn("Erreur lors de la fermeture du port", e);
+        }
+        workers.shutdown();
+        for (Socket client : clients) {
+            try {
+                client.shutdownInput();
+            } catch (IOException e) {
+                // la connexion est déjà fermée
+            }
+        }
+        if (workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        LOG.warn("Délai d'arrêt dépassé, connexions fermées", "connections", clients.size());
+        workers.shutdownNow();
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // la connexion est déjà fermée
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transmet une commande reçue à son gestionnaire, en passant par les
+     * intercepteurs qui la mesurent et l'inscrivent au journal. Une commande
+     * inconnue est refusée. Appelée par la boucle bloquante du serveur et par
+     * les autres moteurs de connexions.
+     *
+     * @param connection La connexion du client qui a envoyé la commande
+     * @param cmd        La commande reçue
+     * @param arg        L'argument de la commande
+     */
+    public void dispatch(ClientConnection connection, String cmd, String arg) {
+        try {
+            if (!commands.dispatch(connection, cmd, arg)) {
+                LOG.warn("Commande inconnue", "command", cmd, "client", connection.getRemoteAddress());
+                connection.sendError("Erreur: commande inconnue: " + cmd);
+            }
+        } catch (IOException e) {
+            LOG.error("Erreur lors du traitement d'une commande", e, "command", cmd,
+                    "client", connection.getRemoteAddress());
         }
     }
 
     /**
      * Méthode principale pour démarrer et exécuter le serveur en continu.
-     * Cette méthode est bloquante et accepte les connexions entrantes des clients,
-     * les écoute
-     * et gère les commandes reçues avant de se déconnecter et d'attendre la
-     * prochaine connexion.
+     * Cette méthode est bloquante et accepte les connexions entrantes des clients.
+     * Chaque connexion est confiée au bassin de fils d'exécution, qui l'écoute,
+     * gère les commandes reçues puis la ferme. Si tous les fils sont occupés et
+     * que la file des connexions en attente d'un fil, bornée par la propriété
+     * système {@code server.acceptQueue}, est pleine, la connexion est fermée
+     * aussitôt. Avec le moteur NIO, la boucle du sélecteur prend le relais.
+     * La méthode retourne lorsque le serveur est arrêté par {@link #stop(long)}.
      */
     public void run() {
-        while (true) {
+        if (nioServer != null) {
+            nioServer.run();
+            return;
+        }
+        while (!stopped) {
             try {
-                client = server.accept();
-                System.out.println("Connecté au client: " + client);
-                objectInputStream = new ObjectInputStream(client.getInputStream());
-                objectOutputStream = new ObjectOutputStream(client.getOutputStream());
-                listen();
-                disconnect();
-                System.out.println("Client déconnecté!");
-            } catch (Exception e) {
-                e.printStackTrace();
+                Socket client = server.accept();
+                metrics.connectionOpened();
+                try {
+                    workers.execute(() -> serve(client));
+                } catch (RejectedExecutionException e) {
+                    // tous les fils sont occupés et la file est pleine, ou le serveur s'arrête:
+                    // mieux vaut fermer tout de suite
+                    if (!stopped) {
+                        LOG.warn("Connexion refusée, file d'attente pleine", "client",
+                                client.getRemoteSocketAddress());
+                        metrics.requestRejected();
+                    }
+                    metrics.connectionClosed();
+                    client.close();
+                }
+            } catch (IOException e) {
+                if (!stopped) {
+                    LOG.error("Erreur lors de l'acceptation d'une connexion", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sert une connexion cliente du début à la fin: ouverture des flux, écoute
+     * des commandes puis déconnexion.
+     *
+     * @param client Le socket accepté pour ce client
+     */
+    private void serve(Socket client) {
+        SocketAddress address = client.getRemoteSocketAddress();
+        LOG.info("Client connecté", "client", address);
+        try {
+            client.setSoTimeout(idleTimeout);
+        } catch (IOException e) {
+            LOG.warn("Impossible de fixer le délai d'inactivité", e, "client", address);
+        }
+        // inscrite avant la vérification: stop() la voit ou elle voit stop()
+        clients.add(client);
+        try {
+            if (stopped) {
+                client.close();
+                return;
+            }
+            PushbackInputStream input = new PushbackInputStream(metrics.countBytesRead(client.getInputStream()));
+            OutputStream output = metrics.countBytesWritten(client.getOutputStream());
+            if (ClientConnection.detectFormat(input) == WireFormat.BINARY) {
+                try (BinaryConnection connection = new BinaryConnection(client, input, output)) {
+                    listen(connection);
+                }
+            } else {
+                try (ObjectStreamConnection connection = new ObjectStreamConnection(client, input, output)) {
+                    listen(connection);
+                }
             }
+        } catch (EOFException e) {
+            // fermée par le client ou par l'arrêt du serveur avant toute commande
+        } catch (Exception e) {
+            LOG.error("Erreur sur la connexion", e, "client", address);
+        } finally {
+            clients.remove(client);
+            metrics.connectionClosed();
         }
+        LOG.info("Client déconnecté", "client", address);
     }
 
     /**
      * Écoute les commandes envoyées par le client et les traite en conséquence.
-     * Cette méthode est bloquante et attend la réception d'une commande du client.
+     * Cette méthode est bloquante et traite les commandes du client les unes après
+     * les autres sur la même connexion, jusqu'à la réception de {@code FERMER},
+     * la fermeture du flux par le client ou l'expiration du délai d'inactivité.
      *
+     * @param connection La connexion du client à écouter
      * @throws IOException            Si une erreur se produit lors de la lecture de
      *                                l'objet
      * @throws ClassNotFoundException Si la classe de l'objet reçu n'est pas trouvée
      */
-    public void listen() throws IOException, ClassNotFoundException {
-        String line;
-        if ((line = this.objectInputStream.readObject().toString()) != null) {
-            Pair<String, String> parts = processCommandLine(line);
+    public <C extends ClientConnection & BlockingConnection> void listen(C connection)
+            throws IOException, ClassNotFoundException {
+        while (true) {
+            Pair<String, String> parts;
+            try {
+                parts = connection.readCommand();
+            } catch (EOFException e) {
+                return;
+            } catch (SocketTimeoutException e) {
+                LOG.info("Délai d'inactivité dépassé", "client", connection.getRemoteAddress());
+                return;
+            }
             String cmd = parts.getKey();
             String arg = parts.getValue();
-            this.alertHandlers(cmd, arg);
+            if (cmd.equals(CLOSE_COMMAND)) {
+                return;
+            }
+            this.dispatch(connection, cmd, arg);
         }
     }
 
@@ -131,7 +607,7 @@ public class Server {
      * @param line La ligne de commande reçue du client
      * @return Une paire contenant la commande et l'argument extraits de la ligne
      */
-    public Pair<String, String> processCommandLine(String line) {
+    public static Pair<String, String> processCommandLine(String line) {
         String[] parts = line.split(" ");
         String cmd = parts[0];
         String args = String.join(" ", Arrays.asList(parts).subList(1, parts.length));
@@ -139,130 +615,491 @@ public class Server {
     }
 
     /**
+     * Récupère dans le catalogue en mémoire la liste des cours de la session
+     * spécifiée en argument et la renvoie au client par sa connexion.
+     * 
+     * Le catalogue est chargé au démarrage du serveur et rechargé lorsque le
+     * fichier des cours est modifié; la requête n'accède donc pas au disque. La
+     * liste de chaque session n'est encodée qu'une fois par version du
+     * catalogue et par format d'échange, puis ses octets sont recopiés tels
+     * quels sur le socket.
      * 
-     * Ferme les flux d'entrée et de sortie et déconnecte le client.
+     * La méthode gère les exceptions si une erreur se produit lors de l'écriture
+     * de l'objet dans le flux.
      * 
-     * @throws IOException Si une erreur se produit lors de la fermeture des flux ou
-     *                     de la déconnexion du client
+     * @param connection la connexion du client à qui renvoyer la liste
+     * @param arg        la session pour laquelle on veut récupérer la liste des cours
      */
-    public void disconnect() throws IOException {
-        objectOutputStream.close();
-        objectInputStream.close();
-        client.close();
+    public void handleLoadCourses(ClientConnection connection, String arg) {
+        try {
+            byte[] payload = responseCache.getEncodedCourses(arg, connection.getWireFormat());
+            connection.writeEncoded(payload);
+            LOG.debug("Liste des cours envoyée", "session", arg, "bytes", payload.length);
+        } catch (IOException e) {
+            LOG.error("Erreur lors de l'écriture de l'objet dans le flux", e, "session", arg,
+                    "client", connection.getRemoteAddress());
+            metrics.command(LOAD_COMMAND).fail();
+        }
     }
 
     /**
-     * 
-     * Gère les événements en fonction de la commande reçue.
-     * Cette méthode est appelée par {@code alertHandlers} pour chaque commande
-     * reçue.
-     * 
-     * @param cmd La commande reçue
-     * @param arg L'argument associé à la commande
-     * @throws IOException
-     */
-    public void handleEvents(String cmd, String arg) {
-        if (cmd.equals(REGISTER_COMMAND)) {
-            handleRegistration();
-        } else if (cmd.equals(LOAD_COMMAND)) {
-            handleLoadCourses(arg);
+     * Lit la requête envoyée par le client et lui renvoie la liste des cours de
+     * la session demandée en pages consécutives, à partir de la position de la
+     * requête et jusqu'à la dernière page. Le client peut ainsi afficher les
+     * premiers cours sans attendre la liste complète, et reprendre un
+     * chargement interrompu là où il s'était arrêté.
+     *
+     * Une requête qui part du début avec la taille de page par défaut (limite
+     * nulle) reçoit les pages déjà encodées du cache de réponses; les autres
+     * pages sont encodées à la demande. La taille d'une page est limitée à
+     * {@value #MAX_LOAD_PAGE_SIZE} cours.
+     *
+     * @param connection la connexion du client qui charge les cours
+     */
+    public void handleLoadPages(ClientConnection connection) {
+        try {
+            SearchQuery query = connection.readSearchQuery();
+            if (query == null) {
+                metrics.command(LOAD_PAGES_COMMAND).fail();
+                connection.sendError("Erreur: la requête de chargement est vide.");
+                return;
+            }
+            String session = query.getSession();
+            int offset = Math.max(0, query.getOffset());
+            int limit = query.getLimit() > 0 ? Math.min(query.getLimit(), MAX_LOAD_PAGE_SIZE)
+                    : ResponseCache.PAGE_SIZE;
+            if (offset == 0 && limit == ResponseCache.PAGE_SIZE) {
+                for (byte[] payload : responseCache.getEncodedPages(session, connection.getWireFormat())
+                        .getPayloads()) {
+                    connection.writeEncoded(payload);
+                }
+            } else {
+                List<Course> courses = catalog.getCourses(session);
+                CoursePage page;
+                do {
+                    page = CoursePage.slice(courses, offset, limit);
+                    connection.sendCoursePage(page);
+                    offset += limit;
+                } while (page.hasMore());
+            }
+            LOG.debug("Pages de cours envoyées", "session", session, "offset", query.getOffset(), "limit", limit);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            metrics.command(LOAD_PAGES_COMMAND).fail();
+            LOG.error("Erreur lors de l'envoi des pages de cours", e, "client", connection.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Compare l'étiquette de la liste des cours que le client a en cache à
+     * celle de la liste actuelle de la session. Si elles sont égales, seule
+     * l'étiquette est renvoyée; sinon, la nouvelle étiquette est suivie des
+     * pages de la liste, comme pour {@code CHARGER_PAGES}.
+     *
+     * @param connection la connexion du client qui revalide son cache
+     * @param arg        la session, suivie de l'étiquette en cache s'il y en a une
+     */
+    public void handleLoadIfModified(ClientConnection connection, String arg) {
+        String[] parts = arg.split(" ");
+        String session = parts[0];
+        String cachedTag = parts.length > 1 ? parts[1] : "";
+        try {
+            ResponseCache.EncodedPages pages = responseCache.getEncodedPages(session, connection.getWireFormat());
+            boolean modified = !pages.getTag().equals(cachedTag);
+            connection.sendCatalogVersion(new CatalogVersion(pages.getTag(), modified));
+            if (modified) {
+                for (byte[] payload : pages.getPayloads()) {
+                    connection.writeEncoded(payload);
+                }
+            }
+            LOG.debug("Liste des cours revalidée", "session", session, "modified", modified);
+        } catch (IOException e) {
+            metrics.command(LOAD_IF_MODIFIED_COMMAND).fail();
+            LOG.error("Erreur lors de la revalidation de la liste des cours", e, "session", session,
+                    "client", connection.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Renvoie au client la liste des inscriptions à un cours, lue dans l'index
+     * en mémoire des inscriptions; la requête ne relit jamais le journal et ne
+     * retarde pas les inscriptions en cours.
+     *
+     * @param connection la connexion du client qui consulte les inscriptions
+     * @param arg        la session, suivie du code du cours
+     */
+    public void handleCourseRegistrations(ClientConnection connection, String arg) {
+        String[] parts = arg.split(" ");
+        try {
+            if (parts.length != 2) {
+                metrics.command(COURSE_REGISTRATIONS_COMMAND).fail();
+                connection.sendError("Erreur: la session et le code du cours sont requis.");
+                return;
+            }
+            List<RegistrationForm> forms = directory.findByCourse(parts[0], parts[1]);
+            LOG.debug("Inscriptions au cours envoyées", "session", parts[0], "code", parts[1],
+                    "registrations", forms.size());
+            connection.sendRegistrations(forms);
+        } catch (IOException e) {
+            metrics.command(COURSE_REGISTRATIONS_COMMAND).fail();
+            LOG.error("Erreur lors de l'envoi des inscriptions à un cours", e, "client",
+                    connection.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Renvoie au client la liste des inscriptions d'un étudiant, toutes
+     * sessions confondues, lue dans l'index en mémoire des inscriptions.
+     *
+     * @param connection la connexion du client qui consulte les inscriptions
+     * @param arg        le matricule de l'étudiant
+     */
+    public void handleStudentRegistrations(ClientConnection connection, String arg) {
+        try {
+            if (arg.isEmpty()) {
+                metrics.command(STUDENT_REGISTRATIONS_COMMAND).fail();
+                connection.sendError("Erreur: le matricule est requis.");
+                return;
+            }
+            List<RegistrationForm> forms = directory.findByStudent(arg);
+            LOG.debug("Inscriptions de l'étudiant envoyées", "matricule", arg, "registrations", forms.size());
+            connection.sendRegistrations(forms);
+        } catch (IOException e) {
+            metrics.command(STUDENT_REGISTRATIONS_COMMAND).fail();
+            LOG.error("Erreur lors de l'envoi des inscriptions d'un étudiant", e, "client",
+                    connection.getRemoteAddress());
         }
     }
 
     /**
-     * Lire un fichier texte contenant des informations sur les cours et les
-     * transforme en liste d'objets 'Course'.
+     * Lit la requête de recherche envoyée par le client et lui renvoie la page
+     * de résultats demandée. La recherche utilise l'index du catalogue: un mot
+     * recherché est un préfixe du code ou d'un mot du nom d'un cours.
+     *
+     * @param connection la connexion du client qui cherche des cours
+     */
+    public void handleSearch(ClientConnection connection) {
+        try {
+            SearchQuery query = connection.readSearchQuery();
+            if (query == null) {
+                metrics.command(SEARCH_COMMAND).fail();
+                connection.sendError("Erreur: la requête de recherche est vide.");
+                return;
+            }
+            CoursePage page = catalog.search(query.getSession(), query.getText(), query.getOffset(),
+                    query.getLimit());
+            LOG.debug("Résultats de recherche envoyés", "query", query.getText(), "total", page.getTotal());
+            connection.sendCoursePage(page);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            metrics.command(SEARCH_COMMAND).fail();
+            LOG.error("Erreur lors de la recherche de cours", e, "client", connection.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Retourne l'index des inscriptions, par exemple pour fixer la capacité
+     * d'un cours.
+     *
+     * @return L'index des inscriptions du serveur
+     */
+    public RegistrationIndex getRegistrations() {
+        return registrations;
+    }
+
+    /**
+     * Récupérer l'objet 'RegistrationForm' envoyé par le client sur sa
+     * connexion.
      * 
-     * La méthode filtre les cours par la session spécifiée en argument.
-     * Ensuite, elle renvoie la liste des cours pour une session au client en
-     * utilisant l'objet 'objectOutputStream'.
+     * Vérifier que le cours est offert à cette session dans le catalogue, puis
+     * dans l'index des inscriptions que l'étudiant n'y est pas déjà inscrit et
+     * que le cours n'est pas complet. L'ajouter au journal
+     * des inscriptions, attendre que le lot qui la contient soit écrit dans le
+     * segment courant du journal (et forcé sur le disque, sauf si
+     * {@code server.journal.force} vaut {@code false}), puis renvoyer un
+     * message de confirmation au client.
      * 
-     * La méthode gère les exceptions si une erreur se produit lors de la lecture du
-     * fichier ou de l'écriture de l'objet dans le flux.
+     * La méthode gère les exceptions si une erreur se produit lors de la
+     * lecture de l'objet, de l'écriture dans le journal ou dans le flux de
+     * sortie; le client reçoit alors un message d'erreur.
      * 
-     * @param arg la session pour laquelle on veut récupérer la liste des cours
+     * @param connection la connexion du client qui s'inscrit
      */
-    public void handleLoadCourses(String arg) {
+    public void handleRegistration(ClientConnection connection) {
+        CommandMetrics commandMetrics = metrics.command(REGISTER_COMMAND);
+        try {
+            RegistrationForm registrationForm = connection.readRegistrationForm();
 
-        List<Course> courses = new ArrayList<>();
+            Course course = registrationForm.getCourse();
+            String matricule = registrationForm.getMatricule();
+            if (course == null || course.getSession() == null || course.getCode() == null || matricule == null) {
+                commandMetrics.fail();
+                connection.sendError("Erreur: le formulaire d'inscription est incomplet.");
+                return;
+            }
+            if (catalog.find(course.getSession(), course.getCode()) == null) {
+                commandMetrics.fail();
+                connection.sendError(unknownCourseMessage(course));
+                return;
+            }
 
-        try {
-            BufferedReader br = new BufferedReader(
-                    new FileReader("./src/main/java/server/data/cours.txt"));
+            if (!admission.admitStudent(connection, matricule)) {
+                commandMetrics.fail();
+                return;
+            }
 
-            String line;
+            RegistrationIndex.Result result = registrations.reserve(course.getSession(), course.getCode(), matricule);
+            if (result != RegistrationIndex.Result.ACCEPTED) {
+                commandMetrics.fail();
+                LOG.info("Inscription refusée", "reason", result, "session", course.getSession(),
+                        "code", course.getCode(), "matricule", matricule);
+                connection.sendError(refusalMessage(result, course, matricule));
+                return;
+            }
 
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\t");
+            try {
+                journal.append(registrationForm).get();
+            } catch (ExecutionException e) {
+                registrations.release(course.getSession(), course.getCode(), matricule);
+                throw e;
+            }
+            // ajouter au répertoire tant que l'inscription est en attente: une
+            // annulation ne peut commencer qu'après la confirmation
+            directory.add(registrationForm);
+            registrations.confirm(course.getSession(), course.getCode(), matricule);
 
-                if (parts.length == 3) {
-                    String code = parts[0].trim();
-                    String title = parts[1].trim();
-                    String session = parts[2].trim();
+            connection.sendMessage(confirmationMessage(registrationForm.getPrenom(), course));
+        } catch (ExecutionException e) {
+            commandMetrics.fail();
+            LOG.error("Erreur lors de l'écriture de l'inscription dans le journal", e,
+                    "client", connection.getRemoteAddress());
+            sendFailure(connection, "Erreur: l'inscription n'a pas pu être enregistrée, veuillez réessayer.");
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            commandMetrics.fail();
+            LOG.error("Erreur lors de la lecture du formulaire ou de l'écriture de la réponse", e,
+                    "client", connection.getRemoteAddress());
+            sendFailure(connection, "Erreur: la demande d'inscription n'a pas pu être traitée.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            commandMetrics.fail();
+            sendFailure(connection, "Erreur: le serveur s'arrête, l'inscription n'est pas confirmée.");
+        }
+    }
 
-                    if (arg.equals(session) == true) {
-                        Course course = new Course(code, title, session);
-                        courses.add(course);
+    /**
+     * Récupérer la demande d'inscription groupée envoyée par le client: une
+     * seule identité et une liste de cours.
+     *
+     * Chaque cours est vérifié dans le catalogue puis réservé dans l'index des
+     * inscriptions comme pour {@code INSCRIRE}. Les inscriptions acceptées sont ensuite ajoutées
+     * au journal en une seule entrée, écrite d'un bloc; si l'écriture échoue,
+     * toutes les places réservées sont libérées. Le client reçoit enfin, dans
+     * une seule réponse, le résultat de chaque cours dans l'ordre de sa
+     * demande.
+     *
+     * Une demande sans identité complète, sans cours ou de plus de
+     * {@value #MAX_BATCH_COURSES} cours est refusée en entier.
+     *
+     * @param connection la connexion du client qui s'inscrit
+     */
+    public void handleBatchRegistration(ClientConnection connection) {
+        CommandMetrics commandMetrics = metrics.command(BATCH_REGISTER_COMMAND);
+        try {
+            BatchRegistrationForm batch = connection.readBatchRegistrationForm();
+            String matricule = batch.getMatricule();
+            List<Course> courses = batch.getCourses();
+            if (matricule == null || courses == null || courses.isEmpty()) {
+                commandMetrics.fail();
+                connection.sendError("Erreur: la demande d'inscription est incomplète.");
+                return;
+            }
+            if (courses.size() > MAX_BATCH_COURSES) {
+                commandMetrics.fail();
+                connection.sendError("Erreur: une demande ne peut pas dépasser " + MAX_BATCH_COURSES + " cours.");
+                return;
+            }
+            if (!admission.admitStudent(connection, matricule)) {
+                commandMetrics.fail();
+                return;
+            }
+
+            List<RegistrationResult> results = new ArrayList<>(courses.size());
+            List<RegistrationForm> accepted = new ArrayList<>(courses.size());
+            for (Course course : courses) {
+                if (course == null || course.getSession() == null || course.getCode() == null) {
+                    results.add(new RegistrationResult(course, false, "Erreur: le cours est incomplet."));
+                    continue;
+                }
+                if (catalog.find(course.getSession(), course.getCode()) == null) {
+                    results.add(new RegistrationResult(course, false, unknownCourseMessage(course)));
+                    continue;
+                }
+                RegistrationIndex.Result result = registrations.reserve(course.getSession(), course.getCode(),
+                        matricule);
+                if (result == RegistrationIndex.Result.ACCEPTED) {
+                    accepted.add(batch.toRegistrationForm(course));
+                    results.add(new RegistrationResult(course, true, confirmationMessage(batch.getPrenom(), course)));
+                } else {
+                    LOG.info("Inscription refusée", "reason", result, "session", course.getSession(),
+                            "code", course.getCode(), "matricule", matricule);
+                    results.add(new RegistrationResult(course, false, refusalMessage(result, course, matricule)));
+                }
+            }
+            if (accepted.size() < courses.size()) {
+                commandMetrics.fail();
+            }
+
+            if (!accepted.isEmpty()) {
+                try {
+                    journal.append(accepted).get();
+                } catch (ExecutionException e) {
+                    for (RegistrationForm form : accepted) {
+                        registrations.release(form.getCourse().getSession(), form.getCourse().getCode(), matricule);
                     }
+                    throw e;
                 }
+                for (RegistrationForm form : accepted) {
+                    directory.add(form);
+                    registrations.confirm(form.getCourse().getSession(), form.getCourse().getCode(), matricule);
+                }
+            }
+            connection.sendRegistrationResults(results);
+        } catch (ExecutionException e) {
+            commandMetrics.fail();
+            LOG.error("Erreur lors de l'écriture d'une inscription groupée dans le journal", e,
+                    "client", connection.getRemoteAddress());
+            sendFailure(connection, "Erreur: les inscriptions n'ont pas pu être enregistrées, veuillez réessayer.");
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            commandMetrics.fail();
+            LOG.error("Erreur lors d'une inscription groupée", e, "client", connection.getRemoteAddress());
+            sendFailure(connection, "Erreur: la demande d'inscription n'a pas pu être traitée.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            commandMetrics.fail();
+            sendFailure(connection, "Erreur: le serveur s'arrête, les inscriptions ne sont pas confirmées.");
+        }
+    }
 
+    /**
+     * Récupérer le formulaire envoyé par le client pour annuler une
+     * inscription; seuls le matricule, la session et le code du cours sont
+     * utilisés.
+     *
+     * Si l'étudiant est inscrit au cours, mettre son inscription en attente
+     * dans l'index, ce qui écarte une autre demande pour ce cours, ajouter
+     * l'annulation au journal des inscriptions, attendre qu'elle soit écrite,
+     * puis libérer sa place et confirmer l'annulation au client. Une
+     * inscription encore en attente d'écriture ne peut pas être annulée.
+     *
+     * @param connection la connexion du client qui annule son inscription
+     */
+    public void handleCancellation(ClientConnection connection) {
+        CommandMetrics commandMetrics = metrics.command(CANCEL_COMMAND);
+        try {
+            RegistrationForm form = connection.readRegistrationForm();
+            Course course = form.getCourse();
+            String matricule = form.getMatricule();
+            if (course == null || course.getSession() == null || course.getCode() == null || matricule == null) {
+                commandMetrics.fail();
+                connection.sendError("Erreur: la demande d'annulation est incomplète.");
+                return;
             }
-            for (Course item : courses) {
-                System.out.println(item.toString());
+            if (!admission.admitStudent(connection, matricule)) {
+                commandMetrics.fail();
+                return;
+            }
+            RegistrationIndex.Result result = registrations.beginCancellation(course.getSession(), course.getCode(),
+                    matricule);
+            if (result != RegistrationIndex.Result.ACCEPTED) {
+                commandMetrics.fail();
+                if (result == RegistrationIndex.Result.PENDING) {
+                    connection.sendError("Erreur: une demande pour le cours " + course.getCode()
+                            + " est déjà en cours, veuillez réessayer.");
+                } else {
+                    connection.sendError("Erreur: le matricule " + matricule + " n'est pas inscrit au cours "
+                            + course.getCode() + ".");
+                }
+                return;
             }
 
-            objectOutputStream.writeObject(courses);
-            objectOutputStream.flush();
+            try {
+                journal.cancel(course.getSession(), course.getCode(), matricule).get();
+            } catch (ExecutionException e) {
+                // l'annulation n'est pas écrite: l'étudiant reste inscrit
+                registrations.confirm(course.getSession(), course.getCode(), matricule);
+                throw e;
+            }
+            // retirer du répertoire avant de libérer la place: une nouvelle
+            // inscription au cours ne peut commencer qu'après
+            directory.remove(course.getSession(), course.getCode(), matricule);
+            registrations.release(course.getSession(), course.getCode(), matricule);
+            connection.sendMessage("Inscription au cours " + course.getCode() + " annulée.");
+        } catch (ExecutionException e) {
+            commandMetrics.fail();
+            LOG.error("Erreur lors de l'écriture d'une annulation dans le journal", e,
+                    "client", connection.getRemoteAddress());
+            sendFailure(connection, "Erreur: l'annulation n'a pas pu être enregistrée, veuillez réessayer.");
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            commandMetrics.fail();
+            LOG.error("Erreur lors de l'annulation d'une inscription", e, "client", connection.getRemoteAddress());
+            sendFailure(connection, "Erreur: la demande d'annulation n'a pas pu être traitée.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            commandMetrics.fail();
+            sendFailure(connection, "Erreur: le serveur s'arrête, l'annulation n'est pas confirmée.");
+        }
+    }
 
-            br.close();
+    /**
+     * Signale au client que sa commande a échoué, pour qu'il n'attende pas une
+     * réponse qui ne viendra pas. Si ce message ne peut pas non plus être
+     * envoyé, l'exception remonte au moteur, qui ferme la connexion.
+     *
+     * @param connection la connexion du client
+     * @param message    le message d'erreur
+     */
+    private static void sendFailure(ClientConnection connection, String message) {
+        try {
+            connection.sendError(message);
         } catch (IOException e) {
-            System.err.println("Erreur lors de la lecture du fichier ou de l'écriture de l'objet dans le flux.");
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
         }
     }
 
     /**
-     * Récupérer l'objet 'RegistrationForm' envoyé par le client en utilisant
-     * 'objectInputStream'. 
-     * 
-     * L'enregistrer dans un fichier texte
-     * et renvoyer un message de confirmation au client.
-     * 
-     * La méthode gére les exceptions si une erreur se produit lors de la lecture de
-     * l'objet, l'écriture dans un fichier ou dans le flux de sortie.
+     * @return Le message envoyé au client lorsque son inscription est refusée
      */
-    public void handleRegistration() {
-        try {
-            System.out.println("Enregistrement d'une inscription");
-            RegistrationForm registrationForm = (RegistrationForm) objectInputStream.readObject();
+    private static String refusalMessage(RegistrationIndex.Result result, Course course, String matricule) {
+        if (result == RegistrationIndex.Result.DUPLICATE) {
+            return "Erreur: le matricule " + matricule + " est déjà inscrit au cours " + course.getCode() + ".";
+        }
+        return "Erreur: le cours " + course.getCode() + " est complet.";
+    }
 
-            String session = registrationForm.getCourse().getSession();
-            String courseCode = registrationForm.getCourse().getCode();
-            String matricule = registrationForm.getMatricule();
-            String firstName = registrationForm.getPrenom();
-            String lastName = registrationForm.getNom();
-            String email = registrationForm.getEmail();
-
-            FileWriter fileWriter = new FileWriter(
-                    "./src/main/java/server/data/inscription.txt", true);
-            String line = String.format("%s\t%s\t%s\t%s\t%s\t%s%n", session, courseCode, matricule, firstName, lastName,
-                    email);
-
-            fileWriter.write(line);
-            fileWriter.close();
-
-            String confirmationMessage = "Félicitations! Inscription réussie de " + registrationForm.getPrenom()
-                    + " au cours "
-                    + registrationForm.getCourse().getCode();
-            objectOutputStream.writeObject(confirmationMessage);
-            objectOutputStream.flush();
-        } catch (IOException e) {
-            System.err.println(
-                    "Erreur lors de la lecture de l'objet ou de l'écriture dans un fichier ou dans le flux de sortie.");
-            e.printStackTrace();
-        } catch (ClassNotFoundException e) {
-            System.err.println("Erreur: la classe RegistrationForm n'a pas été trouvée.");
-            e.printStackTrace();
+    /**
+     * @return Le message envoyé au client qui demande un cours absent du
+     *         catalogue
+     */
+    private static String unknownCourseMessage(Course course) {
+        return "Erreur: le cours " + course.getCode() + " n'est pas offert à la session " + course.getSession() + ".";
+    }
+
+    /**
+     * @return Le message envoyé au client lorsque son inscription est réussie
+     */
+    private static String confirmationMessage(String prenom, Course course) {
+        return "Félicitations! Inscription réussie de " + prenom + " au cours " + course.getCode();
+    }
+
+    /**
+     * Fabrique des fils d'exécution nommés pour le bassin qui sert les clients.
+     */
+    private static class ClientThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "client-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
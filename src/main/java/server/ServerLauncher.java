@@ -1,16 +1,35 @@
 package server;
 
+import server.logging.Log;
+import server.logging.Logger;
+import server.metrics.MetricsEndpoint;
+
 public class ServerLauncher {
     public final static int PORT = 6000;
+    public final static int ADMIN_PORT = 6001;
+
+    private final static Logger LOG = Log.getLogger(ServerLauncher.class);
 
     public static void main(String[] args) {
-        Server server;
         try {
-            server = new Server(PORT);
-            System.out.println("Server is running...");
-            server.run();
+            int backlog = Integer.getInteger("server.backlog", Server.DEFAULT_BACKLOG);
+            int workers = Integer.getInteger("server.workers", Server.DEFAULT_WORKERS);
+            int idleTimeout = Integer.getInteger("server.idleTimeout", Server.DEFAULT_IDLE_TIMEOUT);
+            Server.Engine engine = Server.Engine.valueOf(
+                    System.getProperty("server.engine", Server.Engine.BLOCKING.name()).toUpperCase());
+            Server server = new Server(PORT, backlog, workers, idleTimeout, engine);
+            server.registerMBeans();
+            int adminPort = Integer.getInteger("server.adminPort", ADMIN_PORT);
+            if (adminPort > 0) {
+                new MetricsEndpoint(server.getMetrics(), adminPort).start();
+            }
+            // SIGTERM ou Ctrl-C: les commandes en cours sont terminées et les inscriptions écrites
+            long shutdownTimeout = Long.getLong("server.shutdownTimeout", Server.DEFAULT_SHUTDOWN_TIMEOUT);
+            Log.addShutdownTask(() -> server.stop(shutdownTimeout));
+            server.start();
+            LOG.info("Server is running", "engine", engine, "port", PORT);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Le serveur n'a pas pu démarrer", e);
         }
     }
 }
\ No newline at end of file
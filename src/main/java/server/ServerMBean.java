@@ -0,0 +1,15 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * Interface JMX des opérations d'administration du serveur.
+ */
+public interface ServerMBean {
+
+    long reloadCatalog() throws IOException;
+
+    long getCatalogVersion();
+
+    boolean isStopped();
+}
@@ -0,0 +1,213 @@
+package server.admission;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import server.ClientConnection;
+import server.CommandRegistry;
+import server.logging.Log;
+import server.logging.Logger;
+import server.metrics.ServerMetrics;
+
+/**
+ * La classe AdmissionControl décide, avant qu'une commande soit traitée, si
+ * le serveur l'accepte maintenant. Une commande refusée reçoit aussitôt une
+ * réponse « réessayez plus tard » avec un délai, plutôt que d'attendre
+ * jusqu'à l'expiration du délai du client; elle n'a pas été traitée et peut
+ * être renvoyée sans risque.
+ *
+ * Trois limites s'appliquent:
+ * <ul>
+ * <li>le débit de chaque adresse cliente, pour toutes les commandes. Cette
+ * limite est désactivée par défaut: les étudiants d'un même campus passent
+ * souvent par une seule adresse (NAT), comme les connexions d'un générateur
+ * de charge local; elle s'active avec {@code server.admission.clientRate};</li>
+ * <li>le nombre de commandes coûteuses (les inscriptions, qui attendent
+ * l'écriture du journal) traitées en même temps. Au-delà, une commande attend
+ * une place pendant un court délai dans une file bornée; si la file est
+ * pleine ou que le délai expire, elle est refusée;</li>
+ * <li>le débit de chaque matricule, vérifié par les gestionnaires des
+ * inscriptions avec {@link #admitStudent(ClientConnection, String)} puisque
+ * le matricule n'est connu qu'après la lecture du formulaire.</li>
+ * </ul>
+ */
+public class AdmissionControl implements CommandRegistry.Interceptor {
+
+    public final static double DEFAULT_CLIENT_RATE = 0;
+    public final static int DEFAULT_CLIENT_BURST = 400;
+    public final static double DEFAULT_STUDENT_RATE = 1;
+    public final static int DEFAULT_STUDENT_BURST = 5;
+    public final static int DEFAULT_MAX_IN_FLIGHT = 32;
+    public final static int DEFAULT_MAX_QUEUED = 256;
+    public final static long DEFAULT_QUEUE_TIMEOUT = 100;
+    public final static long DEFAULT_RETRY_AFTER = 250;
+
+    private final static int MAX_KEYS = 100_000;
+    private final static Logger LOG = Log.getLogger(AdmissionControl.class);
+
+    private final RateLimiter clients;
+    private final RateLimiter students;
+    private final Set<String> guarded;
+    private final Semaphore inFlight;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    private final long queueTimeout;
+    private final long retryAfter;
+    private final ServerMetrics metrics;
+    private final ThreadLocal<Boolean> holding = new ThreadLocal<>();
+
+    /**
+     * Constructeur de la classe {@code AdmissionControl}. Un débit nul ou
+     * négatif désactive la limite correspondante.
+     *
+     * @param clientRate   Le nombre de commandes permises par seconde et par
+     *                     adresse cliente
+     * @param clientBurst  La rafale permise par adresse cliente
+     * @param studentRate  Le nombre d'inscriptions permises par seconde et par
+     *                     matricule
+     * @param studentBurst La rafale permise par matricule
+     * @param guarded      Les commandes dont le nombre en cours est limité
+     * @param maxInFlight  Le nombre de ces commandes traitées en même temps
+     * @param maxQueued    Le nombre de ces commandes qui peuvent attendre une
+     *                     place
+     * @param queueTimeout Le délai d'attente d'une place, en millisecondes
+     * @param retryAfter   Le délai proposé au client lorsque le serveur est
+     *                     surchargé, en millisecondes
+     * @param metrics      Les mesures du serveur, qui comptent les refus
+     */
+    public AdmissionControl(double clientRate, int clientBurst, double studentRate, int studentBurst,
+            Set<String> guarded, int maxInFlight, int maxQueued, long queueTimeout, long retryAfter,
+            ServerMetrics metrics) {
+        this.clients = clientRate > 0 ? new RateLimiter(clientRate, clientBurst, MAX_KEYS) : null;
+        this.students = studentRate > 0 ? new RateLimiter(studentRate, studentBurst, MAX_KEYS) : null;
+        this.guarded = guarded;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.retryAfter = retryAfter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Crée le contrôle d'admission configuré par les propriétés système
+     * {@code server.admission.clientRate}, {@code clientBurst},
+     * {@code studentRate}, {@code studentBurst}, {@code maxInFlight},
+     * {@code maxQueued}, {@code queueTimeout} et {@code retryAfter}.
+     *
+     * @param guarded Les commandes dont le nombre en cours est limité
+     * @param metrics Les mesures du serveur
+     * @return Le contrôle d'admission
+     */
+    public static AdmissionControl fromSystemProperties(Set<String> guarded, ServerMetrics metrics) {
+        return new AdmissionControl(
+                doubleProperty("server.admission.clientRate", DEFAULT_CLIENT_RATE),
+                Integer.getInteger("server.admission.clientBurst", DEFAULT_CLIENT_BURST),
+                doubleProperty("server.admission.studentRate", DEFAULT_STUDENT_RATE),
+                Integer.getInteger("server.admission.studentBurst", DEFAULT_STUDENT_BURST),
+                guarded,
+                Integer.getInteger("server.admission.maxInFlight", DEFAULT_MAX_IN_FLIGHT),
+                Integer.getInteger("server.admission.maxQueued", DEFAULT_MAX_QUEUED),
+                Long.getLong("server.admission.queueTimeout", DEFAULT_QUEUE_TIMEOUT),
+                Long.getLong("server.admission.retryAfter", DEFAULT_RETRY_AFTER),
+                metrics);
+    }
+
+    @Override
+    public boolean before(ClientConnection connection, String cmd, String arg) throws IOException {
+        if (clients != null) {
+            long wait = clients.tryAcquire(clientKey(connection.getRemoteAddress()), System.nanoTime());
+            if (wait > 0) {
+                reject(connection, cmd, wait, "Erreur: trop de requêtes, réessayez dans un instant.");
+                return false;
+            }
+        }
+        if (!guarded.contains(cmd)) {
+            return true;
+        }
+        if (!acquireSlot()) {
+            reject(connection, cmd, TimeUnit.MILLISECONDS.toNanos(retryAfter),
+                    "Erreur: le serveur est surchargé, réessayez dans un instant.");
+            return false;
+        }
+        holding.set(Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void after(ClientConnection connection, String cmd, String arg, boolean handled, long elapsed) {
+        if (holding.get() != null) {
+            holding.remove();
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Vérifie le débit des inscriptions d'un matricule. Si la limite est
+     * atteinte, le client reçoit une réponse « réessayez plus tard ».
+     *
+     * @param connection La connexion du client qui s'inscrit
+     * @param matricule  Le matricule de l'étudiant
+     * @return {@code true} si l'inscription peut être traitée
+     * @throws IOException Si une erreur se produit lors de la réponse au client
+     */
+    public boolean admitStudent(ClientConnection connection, String matricule) throws IOException {
+        if (students == null) {
+            return true;
+        }
+        long wait = students.tryAcquire(matricule, System.nanoTime());
+        if (wait > 0) {
+            reject(connection, "matricule", wait, "Erreur: trop de demandes pour le matricule " + matricule
+                    + ", réessayez dans un instant.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Prend une place parmi les commandes en cours, en attendant au plus
+     * {@code queueTimeout} si la file d'attente n'est pas pleine.
+     */
+    private boolean acquireSlot() {
+        if (inFlight.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return inFlight.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void reject(ClientConnection connection, String reason, long waitNanos, String message)
+            throws IOException {
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        metrics.requestRejected();
+        LOG.debug("Requête refusée", "reason", reason, "retry_after_ms", millis,
+                "client", connection.getRemoteAddress());
+        connection.sendRetryLater(millis, message);
+    }
+
+    private static String clientKey(SocketAddress address) {
+        if (address instanceof InetSocketAddress && ((InetSocketAddress) address).getAddress() != null) {
+            return ((InetSocketAddress) address).getAddress().getHostAddress();
+        }
+        return String.valueOf(address);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+}
@@ -0,0 +1,65 @@
+package server.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * La classe RateLimiter limite le débit des requêtes par clé (adresse du
+ * client, matricule) avec un {@link TokenBucket} par clé.
+ *
+ * Les seaux sont créés à la première requête d'une clé. Pour qu'une foule de
+ * clients ne fasse pas grossir la table sans limite, les seaux pleins, ceux
+ * des clients inactifs, sont retirés dès qu'elle dépasse sa taille prévue; un
+ * seau plein retiré équivaut à un seau neuf.
+ */
+public class RateLimiter {
+
+    private final double rate;
+    private final int burst;
+    private final int maxKeys;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur de la classe {@code RateLimiter}.
+     *
+     * @param rate    Le nombre de requêtes permises par seconde et par clé
+     * @param burst   Le nombre de requêtes qu'une clé peut envoyer d'un coup
+     * @param maxKeys Le nombre de clés au-delà duquel les seaux inactifs sont
+     *                retirés
+     */
+    public RateLimiter(double rate, int burst, int maxKeys) {
+        this.rate = rate;
+        this.burst = burst;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Consomme un jeton du seau d'une clé.
+     *
+     * @param key La clé du client
+     * @param now L'instant de la requête, en nanosecondes
+     * @return {@code 0} si la requête est permise, sinon le délai en
+     *         nanosecondes avant qu'elle le soit
+     */
+    public long tryAcquire(String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evictIdle(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(rate, burst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * @return Le nombre de clés suivies
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private void evictIdle(long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+}
@@ -0,0 +1,65 @@
+package server.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un seau à jetons: il contient au plus {@code burst} jetons et en regagne
+ * {@code rate} par seconde. Chaque requête admise consomme un jeton; un client
+ * peut donc envoyer une rafale de {@code burst} requêtes, puis
+ * {@code rate} requêtes par seconde.
+ *
+ * Le seau est rempli à la demande, à partir du temps écoulé depuis le dernier
+ * appel; il n'utilise aucun fil d'exécution.
+ */
+class TokenBucket {
+
+    private final double burst;
+    private final double tokensPerNano;
+    private double tokens;
+    private long last;
+
+    /**
+     * @param rate  Le nombre de jetons regagnés par seconde
+     * @param burst Le nombre maximal de jetons
+     * @param now   L'instant de création, en nanosecondes
+     */
+    TokenBucket(double rate, int burst, long now) {
+        this.burst = burst;
+        this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = burst;
+        this.last = now;
+    }
+
+    /**
+     * Consomme un jeton s'il y en a un.
+     *
+     * @param now L'instant de la requête, en nanosecondes
+     * @return {@code 0} si un jeton a été consommé, sinon le délai en
+     *         nanosecondes avant qu'un jeton soit disponible
+     */
+    synchronized long tryAcquire(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * @param now L'instant présent, en nanosecondes
+     * @return {@code true} si le seau est plein, c'est-à-dire que le client n'a
+     *         rien envoyé depuis assez longtemps pour qu'on puisse l'oublier
+     */
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= burst;
+    }
+
+    private void refill(long now) {
+        if (now > last) {
+            tokens = Math.min(burst, tokens + (now - last) * tokensPerNano);
+            last = now;
+        }
+    }
+}
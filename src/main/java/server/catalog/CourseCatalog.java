@@ -0,0 +1,392 @@
+package server.catalog;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import server.logging.Log;
+import server.logging.Logger;
+import server.models.Course;
+import server.models.CoursePage;
+
+/**
+ * La classe CourseCatalog garde en mémoire les cours du fichier
+ * {@code cours.txt}, indexés par session et par code.
+ *
+ * Le fichier est lu une seule fois au démarrage. Les requêtes lisent ensuite
+ * un instantané immuable du catalogue; lorsque la date de modification du
+ * fichier change, un nouvel instantané est construit puis remplace l'ancien
+ * d'un seul coup, sans bloquer les lecteurs.
+ *
+ * Un gros fichier est découpé en parties alignées sur les fins de ligne,
+ * analysées en parallèle par un {@code ForkJoinPool}, puis fusionnées dans
+ * l'ordre du fichier: l'ordre des cours ne dépend pas du nombre de fils.
+ */
+public class CourseCatalog {
+
+    public final static long DEFAULT_CHECK_INTERVAL = 1000;
+    public final static long DEFAULT_MIN_PART_SIZE = 4 * 1024 * 1024;
+    public final static int DEFAULT_PAGE_SIZE = 20;
+    public final static int MAX_PAGE_SIZE = 100;
+
+    private final static Logger LOG = Log.getLogger(CourseCatalog.class);
+
+    private final Path path;
+    private final long checkInterval;
+    private final int parallelism;
+    private final long minPartSize;
+    private final ForkJoinPool pool;
+    private volatile Snapshot snapshot;
+    private final AtomicLong nextCheck = new AtomicLong();
+
+    /**
+     * Constructeur de la classe {@code CourseCatalog}.
+     * Charge le fichier des cours et vérifie ses modifications au plus une fois
+     * par seconde.
+     *
+     * @param path Le chemin du fichier des cours
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    public CourseCatalog(Path path) throws IOException {
+        this(path, DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * Constructeur de la classe {@code CourseCatalog}.
+     *
+     * @param path          Le chemin du fichier des cours
+     * @param checkInterval Le délai minimal, en millisecondes, entre deux
+     *                      vérifications de la date de modification du fichier
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    public CourseCatalog(Path path, long checkInterval) throws IOException {
+        this(path, checkInterval, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructeur de la classe {@code CourseCatalog}.
+     *
+     * @param path          Le chemin du fichier des cours
+     * @param checkInterval Le délai minimal, en millisecondes, entre deux
+     *                      vérifications de la date de modification du fichier
+     * @param parallelism   Le nombre de fils qui analysent le fichier en
+     *                      parallèle (1 pour une lecture séquentielle)
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    public CourseCatalog(Path path, long checkInterval, int parallelism) throws IOException {
+        this(path, checkInterval, parallelism, DEFAULT_MIN_PART_SIZE);
+    }
+
+    CourseCatalog(Path path, long checkInterval, int parallelism, long minPartSize) throws IOException {
+        this.path = path;
+        this.checkInterval = checkInterval;
+        this.parallelism = Math.max(1, parallelism);
+        this.minPartSize = minPartSize;
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+        this.snapshot = load(1);
+        this.nextCheck.set(System.currentTimeMillis() + checkInterval);
+    }
+
+    /**
+     * Retourne la liste des cours offerts pendant une session.
+     *
+     * @param session La session recherchée
+     * @return La liste immuable des cours de la session, vide si la session est
+     *         inconnue
+     */
+    public List<Course> getCourses(String session) {
+        reloadIfModified();
+        List<Course> courses = snapshot.bySession.get(session);
+        return courses != null ? courses : Collections.<Course>emptyList();
+    }
+
+    /**
+     * Retourne les cours qui portent un code donné, toutes sessions confondues.
+     *
+     * @param code Le code du cours, par exemple {@code IFT1025}
+     * @return La liste immuable des cours portant ce code, vide si le code est
+     *         inconnu
+     */
+    public List<Course> getCoursesByCode(String code) {
+        reloadIfModified();
+        List<Course> courses = snapshot.byCode.get(code);
+        return courses != null ? courses : Collections.<Course>emptyList();
+    }
+
+    /**
+     * Retourne le cours du catalogue qui porte un code donné pendant une
+     * session.
+     *
+     * @param session La session du cours
+     * @param code    Le code du cours
+     * @return Le cours, ou {@code null} s'il n'est pas offert pendant cette
+     *         session
+     */
+    public Course find(String session, String code) {
+        for (Course course : getCoursesByCode(code)) {
+            if (course.getSession().equals(session)) {
+                return course;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cherche des cours par préfixe de code ou par mots du nom. L'index de
+     * recherche d'un instantané est construit à la première recherche.
+     *
+     * @param session La session dans laquelle chercher, ou {@code null} pour
+     *                toutes les sessions
+     * @param text    Le texte recherché
+     * @param offset  La position du premier résultat voulu
+     * @param limit   Le nombre de résultats voulus, ramené à
+     *                {@link #MAX_PAGE_SIZE} au plus ({@link #DEFAULT_PAGE_SIZE}
+     *                s'il n'est pas positif)
+     * @return La page de résultats, dans l'ordre du fichier des cours
+     */
+    public CoursePage search(String session, String text, int offset, int limit) {
+        reloadIfModified();
+        if (limit <= 0) {
+            limit = DEFAULT_PAGE_SIZE;
+        }
+        return snapshot.searchIndex().search(session, text, Math.max(0, offset), Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Retourne la version de l'instantané courant. La version augmente à chaque
+     * rechargement du catalogue, ce qui permet d'invalider les données qui en
+     * sont dérivées.
+     *
+     * @return La version du catalogue
+     */
+    public long getVersion() {
+        reloadIfModified();
+        return snapshot.version;
+    }
+
+    /**
+     * Recharge le catalogue si la date de modification du fichier a changé
+     * depuis le dernier chargement. La vérification est faite au plus une fois
+     * par intervalle, par le seul fil qui a repoussé l'échéance suivante; les
+     * autres continuent de lire l'instantané courant sans attendre. En cas
+     * d'erreur, l'instantané courant est conservé.
+     *
+     * @return {@code true} si un nouvel instantané a été installé
+     */
+    public boolean reloadIfModified() {
+        long now = System.currentTimeMillis();
+        long next = nextCheck.get();
+        if (now < next || !nextCheck.compareAndSet(next, now + checkInterval)) {
+            return false;
+        }
+        try {
+            if (!Files.getLastModifiedTime(path).equals(snapshot.modified)) {
+                reload();
+                return true;
+            }
+        } catch (IOException e) {
+            LOG.error("Erreur lors du rechargement du catalogue des cours", e, "file", path);
+        }
+        return false;
+    }
+
+    /**
+     * Relit le fichier des cours et remplace l'instantané courant.
+     *
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    public synchronized void reload() throws IOException {
+        snapshot = load(snapshot.version + 1);
+        LOG.info("Catalogue des cours chargé", "courses", snapshot.courses.size(), "version", snapshot.version);
+    }
+
+    /**
+     * Lit le fichier des cours et construit les index par session et par code.
+     * Le fichier est projeté en mémoire et parcouru par {@link CourseFile}; au
+     * delà de {@code minPartSize} octets par fil, ses parties sont analysées en
+     * parallèle.
+     *
+     * @param version La version à attribuer à l'instantané
+     * @return L'instantané construit
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    private Snapshot load(long version) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        Map<String, String> strings = new ConcurrentHashMap<>();
+        Builder builder = new Builder(strings);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long partSize = Math.max(minPartSize, channel.size() / parallelism + 1);
+            long[] bounds = CourseFile.split(channel, Math.min(partSize, CourseFile.MAX_REGION));
+            if (pool == null || bounds.length <= 2) {
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    CourseFile.scan(channel, bounds[i], bounds[i + 1], builder);
+                }
+            } else {
+                for (Builder part : loadParts(channel, bounds, strings)) {
+                    builder.merge(part);
+                }
+            }
+        }
+        builder.courses.trimToSize();
+        return new Snapshot(version, modified, Collections.unmodifiableList(builder.courses),
+                freeze(builder.bySession), freeze(builder.byCode));
+    }
+
+    /**
+     * Analyse chaque partie du fichier dans le {@code ForkJoinPool}.
+     *
+     * @param strings Les chaînes partagées par toutes les parties
+     * @return Les index partiels, dans l'ordre des parties
+     */
+    private List<Builder> loadParts(FileChannel channel, long[] bounds, Map<String, String> strings)
+            throws IOException {
+        List<Callable<Builder>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            tasks.add(() -> {
+                Builder part = new Builder(strings);
+                CourseFile.scan(channel, start, end, part);
+                return part;
+            });
+        }
+
+        List<Builder> parts = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Builder> future : pool.invokeAll(tasks)) {
+                parts.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Chargement du catalogue interrompu.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return parts;
+    }
+
+    private static Map<String, List<Course>> freeze(Map<String, List<Course>> index) {
+        for (Map.Entry<String, List<Course>> entry : index.entrySet()) {
+            ((ArrayList<Course>) entry.getValue()).trimToSize();
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Construit les index à partir des lignes du fichier.
+     *
+     * Les codes et les sessions se répètent d'une ligne à l'autre: ils passent
+     * par une table de chaînes partagée par toutes les parties du chargement,
+     * de sorte que tous les cours d'une session, et toutes les sections d'un
+     * même cours, référencent la même chaîne. Les sessions, peu nombreuses, ne
+     * sont décodées qu'une fois par partie. Cela réduit aussi les réponses en
+     * objets Java sérialisés, où une chaîne déjà envoyée n'est qu'une référence.
+     */
+    private static class Builder implements CourseFile.RowHandler {
+        private final Map<String, String> strings;
+        private final Map<String, List<Course>> bySession = new HashMap<>();
+        private final Map<String, List<Course>> byCode = new HashMap<>();
+        private final ArrayList<Course> courses = new ArrayList<>();
+        private final List<byte[]> sessionBytes = new ArrayList<>();
+        private final List<String> sessionNames = new ArrayList<>();
+
+        private Builder(Map<String, String> strings) {
+            this.strings = strings;
+        }
+
+        @Override
+        public void row(CourseFile.Row row) {
+            String session = session(row);
+            String code = canonical(row.code());
+            Course course = new Course(row.name(), code, session);
+            bySession.computeIfAbsent(session, k -> new ArrayList<>()).add(course);
+            byCode.computeIfAbsent(code, k -> new ArrayList<>()).add(course);
+            courses.add(course);
+        }
+
+        /**
+         * Ajoute à la fin de ces index ceux d'une partie qui suit dans le
+         * fichier.
+         */
+        private void merge(Builder part) {
+            for (Map.Entry<String, List<Course>> entry : part.bySession.entrySet()) {
+                bySession.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            for (Map.Entry<String, List<Course>> entry : part.byCode.entrySet()) {
+                byCode.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            courses.addAll(part.courses);
+        }
+
+        private String session(CourseFile.Row row) {
+            for (int i = 0; i < sessionBytes.size(); i++) {
+                if (row.sessionEquals(sessionBytes.get(i))) {
+                    return sessionNames.get(i);
+                }
+            }
+            String session = canonical(row.session());
+            sessionBytes.add(session.getBytes(StandardCharsets.UTF_8));
+            sessionNames.add(session);
+            return session;
+        }
+
+        private String canonical(String value) {
+            String existing = strings.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+    }
+
+    /**
+     * Un état complet et immuable du catalogue à un moment donné.
+     */
+    private static class Snapshot {
+        private final long version;
+        private final FileTime modified;
+        private final List<Course> courses;
+        private final Map<String, List<Course>> bySession;
+        private final Map<String, List<Course>> byCode;
+        private volatile SearchIndex searchIndex;
+
+        private Snapshot(long version, FileTime modified, List<Course> courses,
+                Map<String, List<Course>> bySession, Map<String, List<Course>> byCode) {
+            this.version = version;
+            this.modified = modified;
+            this.courses = courses;
+            this.bySession = bySession;
+            this.byCode = byCode;
+        }
+
+        private SearchIndex searchIndex() {
+            SearchIndex index = searchIndex;
+            if (index == null) {
+                synchronized (this) {
+                    index = searchIndex;
+                    if (index == null) {
+                        index = SearchIndex.build(courses);
+                        searchIndex = index;
+                    }
+                }
+            }
+            return index;
+        }
+    }
+}
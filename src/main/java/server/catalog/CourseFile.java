@@ -0,0 +1,279 @@
+package server.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import server.models.Course;
+
+/**
+ * Lecture du fichier des cours par projection en mémoire.
+ *
+ * Le fichier est projeté avec {@code FileChannel.map} et parcouru octet par
+ * octet: les tabulations et les fins de ligne sont repérées directement dans
+ * la projection, sans {@code BufferedReader} ni {@code String.split}. Une
+ * ligne n'est décodée en chaînes que si elle intéresse l'appelant, de sorte
+ * que la lecture d'une seule session ne crée aucun objet pour les lignes des
+ * autres sessions.
+ *
+ * Chaque ligne contient le code, le nom et la session séparés par des
+ * tabulations, entourés au besoin d'espaces; les lignes qui n'ont pas
+ * exactement trois champs sont ignorées.
+ */
+public final class CourseFile {
+
+    /** Taille maximale d'une projection, limitée par l'indexation des tampons. */
+    final static long MAX_REGION = Integer.MAX_VALUE;
+
+    private final static int BOUNDARY_PROBE = 4096;
+
+    /**
+     * Reçoit les lignes valides du fichier des cours.
+     */
+    @FunctionalInterface
+    interface RowHandler {
+        void row(Row row);
+    }
+
+    private CourseFile() {
+    }
+
+    /**
+     * Lit les cours d'une seule session. Seules les lignes de cette session
+     * sont décodées.
+     *
+     * @param path    Le chemin du fichier des cours
+     * @param session La session recherchée
+     * @return Les cours de la session, dans l'ordre du fichier
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    public static List<Course> readSession(Path path, String session) throws IOException {
+        byte[] wanted = session.getBytes(StandardCharsets.UTF_8);
+        List<Course> courses = new ArrayList<>();
+        scan(path, row -> {
+            if (row.sessionEquals(wanted)) {
+                courses.add(new Course(row.name(), row.code(), session));
+            }
+        });
+        return courses;
+    }
+
+    /**
+     * Parcourt toutes les lignes valides du fichier, dans l'ordre.
+     *
+     * @param path    Le chemin du fichier des cours
+     * @param handler Le destinataire des lignes
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    static void scan(Path path, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = split(channel, MAX_REGION);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                scan(channel, bounds[i], bounds[i + 1], handler);
+            }
+        }
+    }
+
+    /**
+     * Projette une partie du fichier et en parcourt les lignes. La partie doit
+     * commencer au début d'une ligne et finir après une fin de ligne ou à la
+     * fin du fichier.
+     *
+     * @param channel Le canal du fichier des cours
+     * @param start   La position du début de la partie
+     * @param end     La position de la fin de la partie, exclue
+     * @param handler Le destinataire des lignes
+     * @throws IOException Si une erreur se produit lors de la projection
+     */
+    static void scan(FileChannel channel, long start, long end, RowHandler handler) throws IOException {
+        if (end <= start) {
+            return;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        scan(buffer, handler);
+    }
+
+    /**
+     * Parcourt les lignes d'un tampon, de sa position à sa limite.
+     *
+     * @param buffer  Le tampon qui contient des lignes entières
+     * @param handler Le destinataire des lignes
+     */
+    static void scan(ByteBuffer buffer, RowHandler handler) {
+        Row row = new Row(buffer);
+        int limit = buffer.limit();
+        int lineStart = buffer.position();
+        while (lineStart < limit) {
+            int firstTab = -1;
+            int secondTab = -1;
+            boolean extra = false;
+            int i = lineStart;
+            for (; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == '\t') {
+                    if (firstTab < 0) {
+                        firstTab = i;
+                    } else if (secondTab < 0) {
+                        secondTab = i;
+                    } else {
+                        extra = true;
+                    }
+                }
+            }
+            if (secondTab >= 0 && !extra) {
+                row.set(lineStart, firstTab, secondTab, i);
+                if (row.sessionStart < row.sessionEnd) {
+                    handler.row(row);
+                }
+            }
+            lineStart = i + 1;
+        }
+    }
+
+    /**
+     * Découpe le fichier en parties d'au plus {@code maxPart} octets, chacune
+     * alignée sur un début de ligne.
+     *
+     * @param channel Le canal du fichier des cours
+     * @param maxPart La taille maximale d'une partie
+     * @return Les bornes des parties: la partie {@code i} va de
+     *         {@code bounds[i]} à {@code bounds[i + 1]}
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    static long[] split(FileChannel channel, long maxPart) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long start = 0;
+        while (size - start > maxPart) {
+            long end = lineStartBefore(channel, start, start + maxPart);
+            if (end < 0) {
+                throw new IOException("Ligne trop longue dans le fichier des cours à la position " + start);
+            }
+            bounds.add(end);
+            start = end;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Cherche, en reculant depuis {@code target}, la position qui suit la
+     * dernière fin de ligne de l'intervalle {@code (start, target]}.
+     *
+     * @return La position trouvée, ou -1 si l'intervalle ne contient aucune fin
+     *         de ligne
+     */
+    private static long lineStartBefore(FileChannel channel, long start, long target) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE);
+        long blockEnd = target;
+        while (blockEnd > start) {
+            long blockStart = Math.max(start, blockEnd - BOUNDARY_PROBE);
+            probe.clear();
+            probe.limit((int) (blockEnd - blockStart));
+            while (probe.hasRemaining()) {
+                if (channel.read(probe, blockStart + probe.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = probe.position() - 1; i >= 0; i--) {
+                if (probe.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return -1;
+    }
+
+    /**
+     * Une ligne valide du fichier, réutilisée d'une ligne à l'autre. Les champs
+     * ne sont décodés qu'à la demande.
+     */
+    static final class Row {
+        private final ByteBuffer buffer;
+        private int codeStart;
+        private int codeEnd;
+        private int nameStart;
+        private int nameEnd;
+        private int sessionStart;
+        private int sessionEnd;
+
+        private Row(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void set(int lineStart, int firstTab, int secondTab, int lineEnd) {
+            codeStart = trimStart(lineStart, firstTab);
+            codeEnd = trimEnd(codeStart, firstTab);
+            nameStart = trimStart(firstTab + 1, secondTab);
+            nameEnd = trimEnd(nameStart, secondTab);
+            sessionStart = trimStart(secondTab + 1, lineEnd);
+            sessionEnd = trimEnd(sessionStart, lineEnd);
+        }
+
+        String code() {
+            return decode(codeStart, codeEnd);
+        }
+
+        String name() {
+            return decode(nameStart, nameEnd);
+        }
+
+        String session() {
+            return decode(sessionStart, sessionEnd);
+        }
+
+        /**
+         * @param encoded Une session encodée en UTF-8
+         * @return {@code true} si la session de la ligne est celle-là
+         */
+        boolean sessionEquals(byte[] encoded) {
+            if (sessionEnd - sessionStart != encoded.length) {
+                return false;
+            }
+            for (int i = 0; i < encoded.length; i++) {
+                if (buffer.get(sessionStart + i) != encoded[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int trimStart(int from, int to) {
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimEnd(int from, int to) {
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            return to;
+        }
+
+        private String decode(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(from + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package server.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import server.models.Course;
+import server.models.CoursePage;
+import server.protocol.BinaryCodec;
+import server.protocol.Protocol;
+import server.protocol.WireFormat;
+
+/**
+ * La classe ResponseCache garde, pour chaque session et chaque format
+ * d'échange, la réponse à {@code CHARGER} déjà encodée, ainsi que les pages
+ * de {@value #PAGE_SIZE} cours envoyées l'une après l'autre en réponse à
+ * {@code CHARGER_PAGES}. Les pages sont accompagnées de l'étiquette de la
+ * liste, que le client renvoie avec {@code CHARGER_SI_MODIFIE} pour ne
+ * recevoir la liste que si elle a changé.
+ *
+ * La liste des cours d'une session n'est encodée qu'une fois par version du
+ * catalogue; les requêtes suivantes recopient simplement les octets sur le
+ * socket. Le cache est vidé à la première lecture qui suit un rechargement
+ * du catalogue.
+ *
+ * Seules les sessions du catalogue ont une entrée: une session inconnue, que
+ * n'importe quel client peut demander, reçoit une réponse vide encodée une
+ * fois pour toutes et partagée, de sorte que la taille du cache reste bornée
+ * par le nombre de sessions du catalogue.
+ */
+public class ResponseCache {
+
+    /** Longueur de l'en-tête écrit par un {@code ObjectOutputStream} neuf. */
+    private final static int STREAM_HEADER_LENGTH = 4;
+
+    /** Le nombre de cours des pages mises en cache. */
+    public final static int PAGE_SIZE = 200;
+
+    private final CourseCatalog catalog;
+    private final Map<WireFormat, ConcurrentMap<String, Entry>> entries = new EnumMap<>(WireFormat.class);
+    private final Map<WireFormat, ConcurrentMap<String, EncodedPages>> pages = new EnumMap<>(WireFormat.class);
+    private final Map<WireFormat, byte[]> emptyCourses = new EnumMap<>(WireFormat.class);
+    private final Map<WireFormat, EncodedPages> emptyPages = new EnumMap<>(WireFormat.class);
+    private volatile long cachedVersion;
+
+    /**
+     * Constructeur de la classe {@code ResponseCache}.
+     *
+     * @param catalog Le catalogue dont les réponses sont mises en cache
+     * @throws IOException Si une erreur se produit lors de l'encodage des
+     *                     réponses vides
+     */
+    public ResponseCache(CourseCatalog catalog) throws IOException {
+        this.catalog = catalog;
+        this.cachedVersion = catalog.getVersion();
+        List<Course> none = Collections.emptyList();
+        for (WireFormat format : WireFormat.values()) {
+            entries.put(format, new ConcurrentHashMap<>());
+            pages.put(format, new ConcurrentHashMap<>());
+            emptyCourses.put(format, encode(none, format));
+            emptyPages.put(format, new EncodedPages(0, tag(none),
+                    Collections.singletonList(encodePage(CoursePage.slice(none, 0, PAGE_SIZE), format))));
+        }
+    }
+
+    /**
+     * Retourne la liste des cours d'une session encodée dans un format
+     * d'échange. Pour un flux d'objets, les octets ne contiennent pas l'en-tête
+     * du flux et peuvent être écrits tels quels dans un flux déjà ouvert dont la
+     * table des références vient d'être réinitialisée; pour le protocole
+     * binaire, ils forment une trame complète.
+     *
+     * @param session La session demandée, éventuellement inconnue ou
+     *                {@code null}
+     * @param format  Le format d'échange du client
+     * @return Les octets de la réponse; le tableau est partagé et ne doit pas être
+     *         modifié
+     * @throws IOException Si une erreur se produit lors de l'encodage
+     */
+    public byte[] getEncodedCourses(String session, WireFormat format) throws IOException {
+        // La version est lue avant la liste: au pire, une liste plus récente est
+        // associée à une version plus ancienne et sera simplement réencodée.
+        long version = currentVersion();
+        if (session == null) {
+            return emptyCourses.get(format);
+        }
+        ConcurrentMap<String, Entry> formatEntries = entries.get(format);
+        Entry entry = formatEntries.get(session);
+        if (entry == null || entry.version != version) {
+            List<Course> courses = catalog.getCourses(session);
+            if (courses.isEmpty()) {
+                return emptyCourses.get(format);
+            }
+            entry = new Entry(version, encode(courses, format));
+            formatEntries.put(session, entry);
+        }
+        return entry.payload;
+    }
+
+    /**
+     * Retourne la liste des cours d'une session découpée en pages de
+     * {@link #PAGE_SIZE} cours, chacune encodée dans un format d'échange comme
+     * une réponse distincte, avec l'étiquette de la liste. Une session vide
+     * donne une seule page vide.
+     *
+     * @param session La session demandée, éventuellement inconnue ou
+     *                {@code null}
+     * @param format  Le format d'échange du client
+     * @return Les pages encodées et leur étiquette
+     * @throws IOException Si une erreur se produit lors de l'encodage
+     */
+    public EncodedPages getEncodedPages(String session, WireFormat format) throws IOException {
+        long version = currentVersion();
+        if (session == null) {
+            return emptyPages.get(format);
+        }
+        ConcurrentMap<String, EncodedPages> formatPages = pages.get(format);
+        EncodedPages entry = formatPages.get(session);
+        if (entry == null || entry.version != version) {
+            List<Course> courses = catalog.getCourses(session);
+            if (courses.isEmpty()) {
+                return emptyPages.get(format);
+            }
+            List<byte[]> payloads = new ArrayList<>();
+            int offset = 0;
+            do {
+                payloads.add(encodePage(CoursePage.slice(courses, offset, PAGE_SIZE), format));
+                offset += PAGE_SIZE;
+            } while (offset < courses.size());
+            entry = new EncodedPages(version, tag(courses), Collections.unmodifiableList(payloads));
+            formatPages.put(session, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Retourne la version du catalogue et vide le cache si elle a changé depuis
+     * la dernière lecture, pour oublier les sessions retirées du catalogue.
+     */
+    private long currentVersion() {
+        long version = catalog.getVersion();
+        if (version != cachedVersion) {
+            synchronized (this) {
+                if (version > cachedVersion) {
+                    invalidate();
+                    cachedVersion = version;
+                }
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Vide le cache. Les entrées seront reconstruites à la prochaine lecture.
+     */
+    private void invalidate() {
+        for (ConcurrentMap<String, Entry> formatEntries : entries.values()) {
+            formatEntries.clear();
+        }
+        for (ConcurrentMap<String, EncodedPages> formatPages : pages.values()) {
+            formatPages.clear();
+        }
+    }
+
+    /**
+     * Encode une liste de cours dans un format d'échange.
+     *
+     * @param courses La liste à encoder
+     * @param format  Le format d'échange
+     * @return Les octets de la réponse
+     * @throws IOException Si une erreur se produit lors de l'encodage
+     */
+    static byte[] encode(List<Course> courses, WireFormat format) throws IOException {
+        if (format == WireFormat.BINARY) {
+            return BinaryCodec.frame(Protocol.COURSES, out -> BinaryCodec.writeCourses(out, courses));
+        }
+        return serialize(courses);
+    }
+
+    /**
+     * Encode une page de cours dans un format d'échange.
+     *
+     * @param page   La page à encoder
+     * @param format Le format d'échange
+     * @return Les octets de la réponse
+     * @throws IOException Si une erreur se produit lors de l'encodage
+     */
+    static byte[] encodePage(CoursePage page, WireFormat format) throws IOException {
+        if (format == WireFormat.BINARY) {
+            return BinaryCodec.frame(Protocol.PAGE, out -> BinaryCodec.writeCoursePage(out, page));
+        }
+        return serialize(page);
+    }
+
+    /**
+     * Calcule l'étiquette d'une liste de cours: les huit premiers octets, en
+     * hexadécimal, de l'empreinte SHA-256 de son encodage binaire. L'étiquette
+     * ne dépend ni du format d'échange ni de la version du catalogue.
+     *
+     * @param courses La liste de cours
+     * @return L'étiquette de la liste
+     * @throws IOException Si une erreur se produit lors de l'encodage
+     */
+    static String tag(List<Course> courses) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            BinaryCodec.writeCourses(out, courses);
+        }
+        byte[] hash = digest.digest();
+        StringBuilder tag = new StringBuilder(16);
+        for (int i = 0; i < 8; i++) {
+            tag.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Sérialise un objet sans l'en-tête du flux d'objets.
+     */
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        byte[] stream = bytes.toByteArray();
+        return Arrays.copyOfRange(stream, STREAM_HEADER_LENGTH, stream.length);
+    }
+
+    /**
+     * Les pages encodées de la liste des cours d'une session, pour une version
+     * du catalogue, et l'étiquette de cette liste.
+     */
+    public static final class EncodedPages {
+        private final long version;
+        private final String tag;
+        private final List<byte[]> payloads;
+
+        private EncodedPages(long version, String tag, List<byte[]> payloads) {
+            this.version = version;
+            this.tag = tag;
+            this.payloads = payloads;
+        }
+
+        /**
+         * @return L'étiquette de la liste des cours
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * @return Les octets de chaque page, dans l'ordre; la liste et ses
+         *         tableaux sont partagés et ne doivent pas être modifiés
+         */
+        public List<byte[]> getPayloads() {
+            return payloads;
+        }
+    }
+
+    private static class Entry {
+        private final long version;
+        private final byte[] payload;
+
+        private Entry(long version, byte[] payload) {
+            this.version = version;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package server.catalog;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import server.models.Course;
+import server.models.CoursePage;
+
+/**
+ * Index de recherche des cours d'un instantané du catalogue.
+ *
+ * Les codes des cours et les mots de leurs noms, normalisés en minuscules
+ * sans accents, forment un vocabulaire trié; chaque mot du vocabulaire
+ * pointe vers la liste des cours qui le contiennent. Un mot recherché est
+ * traité comme un préfixe: une recherche dichotomique donne l'intervalle des
+ * mots du vocabulaire qui commencent par lui, dont on réunit les listes. Les
+ * cours qui correspondent à tous les mots recherchés sont renvoyés dans
+ * l'ordre du fichier des cours.
+ */
+final class SearchIndex {
+
+    private final List<Course> courses;
+    private final String[] vocabulary;
+    private final int[][] postings;
+    private final Map<String, BitSet> sessions;
+
+    private SearchIndex(List<Course> courses, String[] vocabulary, int[][] postings, Map<String, BitSet> sessions) {
+        this.courses = courses;
+        this.vocabulary = vocabulary;
+        this.postings = postings;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Construit l'index des cours donnés.
+     *
+     * @param courses Tous les cours du catalogue, dans l'ordre du fichier
+     * @return L'index construit
+     */
+    static SearchIndex build(List<Course> courses) {
+        Map<String, IntList> terms = new TreeMap<>();
+        Map<String, BitSet> sessions = new HashMap<>();
+        for (int id = 0; id < courses.size(); id++) {
+            Course course = courses.get(id);
+            sessions.computeIfAbsent(course.getSession(), k -> new BitSet()).set(id);
+            add(terms, normalize(course.getCode()), id);
+            for (String word : tokenize(course.getName())) {
+                add(terms, word, id);
+            }
+        }
+
+        String[] vocabulary = new String[terms.size()];
+        int[][] postings = new int[terms.size()][];
+        int i = 0;
+        for (Map.Entry<String, IntList> entry : terms.entrySet()) {
+            vocabulary[i] = entry.getKey();
+            postings[i] = entry.getValue().toArray();
+            i++;
+        }
+        return new SearchIndex(courses, vocabulary, postings, sessions);
+    }
+
+    private static void add(Map<String, IntList> terms, String term, int id) {
+        if (!term.isEmpty()) {
+            terms.computeIfAbsent(term, k -> new IntList()).add(id);
+        }
+    }
+
+    /**
+     * Cherche les cours qui correspondent à un texte.
+     *
+     * @param session La session dans laquelle chercher, ou {@code null} pour
+     *                toutes les sessions
+     * @param text    Le texte recherché
+     * @param offset  La position du premier résultat voulu
+     * @param limit   Le nombre maximal de résultats
+     * @return La page de résultats demandée
+     */
+    CoursePage search(String session, String text, int offset, int limit) {
+        BitSet matches;
+        if (session != null) {
+            BitSet inSession = sessions.get(session);
+            matches = inSession != null ? (BitSet) inSession.clone() : new BitSet();
+        } else {
+            matches = new BitSet(courses.size());
+            matches.set(0, courses.size());
+        }
+        for (String word : tokenize(text)) {
+            if (matches.isEmpty()) {
+                break;
+            }
+            matches.and(prefixMatches(word));
+        }
+
+        int total = matches.cardinality();
+        List<Course> page = new ArrayList<>(Math.min(limit, Math.max(0, total - offset)));
+        int skipped = 0;
+        for (int id = matches.nextSetBit(0); id >= 0 && page.size() < limit; id = matches.nextSetBit(id + 1)) {
+            if (skipped++ >= offset) {
+                page.add(courses.get(id));
+            }
+        }
+        return new CoursePage(Collections.unmodifiableList(page), offset, total);
+    }
+
+    /**
+     * @return Les cours dont le code ou un mot du nom commence par le mot
+     */
+    private BitSet prefixMatches(String prefix) {
+        BitSet result = new BitSet(courses.size());
+        int from = lowerBound(prefix);
+        for (int i = from; i < vocabulary.length && vocabulary[i].startsWith(prefix); i++) {
+            for (int id : postings[i]) {
+                result.set(id);
+            }
+        }
+        return result;
+    }
+
+    private int lowerBound(String key) {
+        int index = Arrays.binarySearch(vocabulary, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Découpe un texte en mots normalisés. Les séparateurs sont tous les
+     * caractères qui ne sont ni des lettres ni des chiffres, y compris
+     * {@code _}.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Liste d'entiers extensible, sans objets enveloppes.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
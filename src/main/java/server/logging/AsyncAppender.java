@@ -0,0 +1,125 @@
+package server.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Écrit les messages du journal depuis un fil dédié.
+ *
+ * Les fils qui émettent des messages ne font que les déposer dans un tampon
+ * circulaire borné, sans jamais attendre la console ou le fichier: si le
+ * tampon est plein, le message est perdu et compté, et le nombre de messages
+ * perdus est signalé dans le journal dès que le fil d'écriture a rattrapé son
+ * retard. Le fil d'écriture vide le tampon par lots et ne force l'écriture
+ * qu'une fois le tampon vide.
+ */
+public class AsyncAppender implements Closeable {
+
+    private final static int BATCH_SIZE = 256;
+    private final static long POLL_TIMEOUT = 100;
+
+    private final BlockingQueue<LogEvent> buffer;
+    private final Writer out;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Constructeur de la classe {@code AsyncAppender}.
+     * Démarre le fil d'écriture.
+     *
+     * @param out      La destination des messages
+     * @param capacity Le nombre de messages que le tampon peut contenir
+     */
+    public AsyncAppender(Writer out, int capacity) {
+        this.out = out;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Dépose un message dans le tampon sans attendre.
+     *
+     * @param event Le message
+     * @return {@code false} si le tampon était plein et que le message est perdu
+     */
+    boolean append(LogEvent event) {
+        if (!running || !buffer.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Le nombre de messages perdus depuis le démarrage parce que le
+     *         tampon était plein
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<LogEvent> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder text = new StringBuilder();
+        long reported = 0;
+        while (running || !buffer.isEmpty()) {
+            try {
+                LogEvent first = buffer.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                for (LogEvent event : batch) {
+                    event.format(text);
+                }
+                long lost = dropped.sum();
+                if (lost != reported) {
+                    text.append("Journal: ").append(lost - reported).append(" messages perdus (tampon plein)")
+                            .append(System.lineSeparator());
+                    reported = lost;
+                }
+                out.write(text.toString());
+                if (buffer.isEmpty()) {
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // la destination du journal n'est plus utilisable; il ne reste que la console
+                System.err.println("Erreur lors de l'écriture du journal: " + e.getMessage());
+            } finally {
+                batch.clear();
+                text.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Écrit les messages en attente puis ferme la destination.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.flush();
+        out.close();
+    }
+}
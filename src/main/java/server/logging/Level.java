@@ -0,0 +1,11 @@
+package server.logging;
+
+/**
+ * Les niveaux des messages du journal, du plus détaillé au plus grave.
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR
+}
@@ -0,0 +1,103 @@
+package server.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Point d'entrée du journal du serveur.
+ *
+ * Tous les journaux partagent un même {@link AsyncAppender}, créé à la
+ * première utilisation et configuré par les propriétés système
+ * {@code server.log.level} (par défaut {@code INFO}), {@code server.log.file}
+ * (par défaut la sortie standard) et {@code server.log.bufferSize} (par défaut
+ * 8192 messages). Les messages en attente sont écrits à l'arrêt de la machine
+ * virtuelle, après les tâches inscrites par {@link #addShutdownTask(Runnable)}.
+ */
+public final class Log {
+
+    public final static int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static volatile AsyncAppender appender;
+    private static volatile Level threshold;
+    private final static List<Runnable> shutdownTasks = new CopyOnWriteArrayList<>();
+
+    private Log() {
+    }
+
+    /**
+     * @param type La classe qui écrit dans le journal
+     * @return Le journal nommé d'après la classe
+     */
+    public static Logger getLogger(Class<?> type) {
+        AsyncAppender shared = appender();
+        return new Logger(type.getSimpleName(), shared, threshold);
+    }
+
+    /**
+     * Inscrit une tâche à exécuter à l'arrêt de la machine virtuelle, avant la
+     * fermeture du journal. Les crochets d'arrêt de la machine virtuelle
+     * s'exécutent sans ordre garanti; une tâche inscrite ici peut donc encore
+     * écrire dans le journal.
+     *
+     * @param task La tâche à exécuter
+     */
+    public static void addShutdownTask(Runnable task) {
+        appender();
+        shutdownTasks.add(task);
+    }
+
+    /**
+     * @return L'écrivain partagé, pour consulter le nombre de messages perdus
+     */
+    public static AsyncAppender appender() {
+        AsyncAppender current = appender;
+        if (current == null) {
+            synchronized (Log.class) {
+                current = appender;
+                if (current == null) {
+                    threshold = Level.valueOf(System.getProperty("server.log.level", Level.INFO.name())
+                            .toUpperCase());
+                    current = new AsyncAppender(open(System.getProperty("server.log.file")),
+                            Integer.getInteger("server.log.bufferSize", DEFAULT_BUFFER_SIZE));
+                    AsyncAppender closing = current;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        try {
+                            for (Runnable task : shutdownTasks) {
+                                task.run();
+                            }
+                        } finally {
+                            try {
+                                closing.close();
+                            } catch (IOException e) {
+                                // la machine virtuelle s'arrête; il n'y a plus où le signaler
+                            }
+                        }
+                    }, "log-shutdown"));
+                    appender = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Writer open(String file) {
+        if (file == null || file.isEmpty()) {
+            return new BufferedWriter(new OutputStreamWriter(System.out));
+        }
+        try {
+            return Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
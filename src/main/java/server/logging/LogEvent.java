@@ -0,0 +1,67 @@
+package server.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+
+/**
+ * Un message du journal tel qu'il a été émis. Le message n'est mis en forme
+ * que par le fil d'écriture, pour que le fil qui l'émet ne fasse que le
+ * déposer dans le tampon.
+ */
+final class LogEvent {
+
+    private final long timestamp;
+    private final Level level;
+    private final String thread;
+    private final String logger;
+    private final String message;
+    private final Object[] fields;
+    private final Throwable error;
+
+    LogEvent(long timestamp, Level level, String thread, String logger, String message, Object[] fields,
+            Throwable error) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.thread = thread;
+        this.logger = logger;
+        this.message = message;
+        this.fields = fields;
+        this.error = error;
+    }
+
+    /**
+     * Met le message en forme sur une ligne: horodatage, niveau, fil, nom du
+     * journal, message puis champs {@code clé=valeur}. La pile d'une exception
+     * suit sur les lignes suivantes.
+     *
+     * @param out La destination de la ligne
+     */
+    void format(StringBuilder out) {
+        out.append(Instant.ofEpochMilli(timestamp)).append(' ');
+        out.append(level);
+        for (int i = level.name().length(); i < 5; i++) {
+            out.append(' ');
+        }
+        out.append(" [").append(thread).append("] ").append(logger).append(": ").append(message);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            out.append(' ').append(fields[i]).append('=');
+            appendValue(out, fields[i + 1]);
+        }
+        out.append(System.lineSeparator());
+        if (error != null) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            out.append(trace);
+        }
+    }
+
+    private static void appendValue(StringBuilder out, Object value) {
+        String text = String.valueOf(value);
+        if (text.isEmpty() || text.indexOf(' ') >= 0 || text.indexOf('"') >= 0) {
+            out.append('"').append(text.replace("\"", "\\\"")).append('"');
+        } else {
+            out.append(text);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package server.logging;
+
+/**
+ * Journal nommé, obtenu par {@link Log#getLogger(Class)}.
+ *
+ * Chaque message peut porter des champs structurés, passés comme une suite de
+ * paires clé, valeur:
+ *
+ * <pre>
+ * log.info("Commande traitée", "command", cmd, "latency_us", latency);
+ * </pre>
+ *
+ * Un message d'un niveau inférieur au seuil est ignoré sans être mis en forme.
+ */
+public class Logger {
+
+    private final String name;
+    private final AsyncAppender appender;
+    private final Level threshold;
+
+    Logger(String name, AsyncAppender appender, Level threshold) {
+        this.name = name;
+        this.appender = appender;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param level Le niveau d'un message
+     * @return {@code true} si les messages de ce niveau sont écrits
+     */
+    public boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    public void debug(String message, Object... fields) {
+        log(Level.DEBUG, message, null, fields);
+    }
+
+    public void info(String message, Object... fields) {
+        log(Level.INFO, message, null, fields);
+    }
+
+    public void warn(String message, Object... fields) {
+        log(Level.WARN, message, null, fields);
+    }
+
+    public void warn(String message, Throwable error, Object... fields) {
+        log(Level.WARN, message, error, fields);
+    }
+
+    public void error(String message, Object... fields) {
+        log(Level.ERROR, message, null, fields);
+    }
+
+    public void error(String message, Throwable error, Object... fields) {
+        log(Level.ERROR, message, error, fields);
+    }
+
+    /**
+     * Dépose un message dans le tampon du journal.
+     *
+     * @param level   Le niveau du message
+     * @param message Le message
+     * @param error   L'exception à joindre au message, ou {@code null}
+     * @param fields  Les champs structurés, en paires clé, valeur
+     */
+    public void log(Level level, String message, Throwable error, Object... fields) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        appender.append(new LogEvent(System.currentTimeMillis(), level, Thread.currentThread().getName(), name,
+                message, fields, error));
+    }
+}
@@ -0,0 +1,78 @@
+package server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures d'une commande du serveur: nombre de commandes traitées, nombre de
+ * traitements qui ont échoué et histogramme des durées de traitement.
+ */
+public class CommandMetrics implements CommandMetricsMBean {
+
+    private final String command;
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    CommandMetrics(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Enregistre le traitement d'une commande.
+     *
+     * @param nanos La durée du traitement, en nanosecondes
+     */
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * Compte un traitement qui a échoué ou une requête refusée.
+     */
+    public void fail() {
+        failures.increment();
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getMeanLatency() {
+        return latency.getMean() / 1000;
+    }
+
+    @Override
+    public long getLatencyP50() {
+        return micros(latency.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getLatencyP99() {
+        return micros(latency.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getLatencyP999() {
+        return micros(latency.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return micros(latency.getMax());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,22 @@
+package server.metrics;
+
+/**
+ * Interface JMX des mesures d'une commande du serveur. Les latences sont en
+ * microsecondes.
+ */
+public interface CommandMetricsMBean {
+
+    long getCount();
+
+    long getFailures();
+
+    double getMeanLatency();
+
+    long getLatencyP50();
+
+    long getLatencyP99();
+
+    long getLatencyP999();
+
+    long getMaxLatency();
+}
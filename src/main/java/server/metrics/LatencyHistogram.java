@@ -0,0 +1,142 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences à précision relative constante, dans l'esprit
+ * d'HdrHistogram.
+ *
+ * Les valeurs inférieures à 128 ont chacune leur compartiment; au-delà, chaque
+ * puissance de deux est découpée en 64 compartiments, ce qui garde l'erreur
+ * relative sous 1,6 % quelle que soit la grandeur de la valeur. L'histogramme
+ * occupe une taille fixe et l'enregistrement d'une valeur ne prend aucun
+ * verrou, ce qui permet de le laisser actif en production et de le partager
+ * entre plusieurs fils.
+ */
+public class LatencyHistogram {
+
+    private final static int SUB_BUCKET_BITS = 7;
+    private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private final static int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private final static int BUCKET_COUNT = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Enregistre une valeur. Les valeurs négatives sont comptées comme zéro.
+     *
+     * @param value La valeur à enregistrer, par exemple une durée en
+     *              nanosecondes
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return Le nombre de valeurs enregistrées
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return La moyenne des valeurs enregistrées, ou 0 si aucune ne l'a été
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return La plus grande valeur enregistrée
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Retourne la valeur sous laquelle se trouve le pourcentage demandé des
+     * valeurs enregistrées, arrondie à la borne supérieure de son compartiment.
+     *
+     * @param percentile Le centile, entre 0 et 100
+     * @return La valeur au centile, ou 0 si aucune valeur n'a été enregistrée
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Ajoute à cet histogramme les valeurs d'un autre histogramme.
+     *
+     * @param other L'histogramme à ajouter
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long n = other.counts.get(i);
+            if (n != 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    /**
+     * Efface toutes les valeurs enregistrées.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        long next = (subBucket + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
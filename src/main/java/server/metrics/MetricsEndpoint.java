@@ -0,0 +1,64 @@
+package server.metrics;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import server.logging.Log;
+import server.logging.Logger;
+
+/**
+ * Port d'administration qui renvoie les mesures du serveur en texte.
+ *
+ * Chaque connexion reçoit la liste des mesures puis est fermée, de sorte que
+ * {@code nc localhost 6001} ou un collecteur de mesures suffisent pour les
+ * lire. Le port n'écoute que sur l'interface locale.
+ */
+public class MetricsEndpoint implements Runnable {
+
+    private final static Logger LOG = Log.getLogger(MetricsEndpoint.class);
+
+    private final ServerMetrics metrics;
+    private final ServerSocket server;
+
+    /**
+     * Constructeur de la classe {@code MetricsEndpoint}.
+     * Ouvre le port d'administration sur l'interface locale.
+     *
+     * @param metrics Les mesures à exposer
+     * @param port    Le port d'administration
+     * @throws IOException Si une erreur se produit lors de l'ouverture du port
+     */
+    public MetricsEndpoint(ServerMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        this.server = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Démarre le fil qui sert le port d'administration.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "metrics-endpoint");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (!server.isClosed()) {
+            try (Socket client = server.accept()) {
+                PrintWriter out = new PrintWriter(
+                        new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8));
+                metrics.writeText(out);
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    LOG.warn("Erreur sur le port d'administration", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package server.metrics;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Mesures du serveur: commandes traitées et leurs latences, connexions
+ * acceptées et actives, octets échangés et profondeur de la file du journal
+ * des inscriptions.
+ *
+ * Les compteurs sont des {@code LongAdder} et les latences des
+ * {@link LatencyHistogram}: l'enregistrement ne prend aucun verrou et peut
+ * rester actif en production. Les mesures sont exposées par JMX, sous le
+ * domaine {@code server}, et en texte par un {@link MetricsEndpoint}.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+
+    public final static String JMX_DOMAIN = "server";
+
+    private final long startTime = System.currentTimeMillis();
+    private volatile Map<String, CommandMetrics> commands;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder active = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final IntSupplier journalQueueDepth;
+
+    /**
+     * Constructeur de la classe {@code ServerMetrics}.
+     *
+     * @param journalQueueDepth La source de la profondeur de la file du journal
+     *                          des inscriptions
+     * @param commands          Les commandes à mesurer; les autres commandes
+     *                          sont ignorées pour qu'un client ne puisse pas
+     *                          faire grossir la table
+     */
+    public ServerMetrics(IntSupplier journalQueueDepth, String... commands) {
+        this.journalQueueDepth = journalQueueDepth;
+        Map<String, CommandMetrics> map = new LinkedHashMap<>();
+        for (String command : commands) {
+            map.put(command, new CommandMetrics(command));
+        }
+        this.commands = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Ajoute une commande aux commandes mesurées, par exemple lorsqu'elle est
+     * inscrite après le démarrage du serveur. La table est recopiée pour que
+     * les lectures restent sans verrou. Les mesures d'une commande ajoutée
+     * après {@link #registerMBeans()} ne sont exposées que sur le port
+     * d'administration.
+     *
+     * @param command Le nom de la commande
+     * @return Les mesures de la commande
+     */
+    public synchronized CommandMetrics addCommand(String command) {
+        CommandMetrics existing = commands.get(command);
+        if (existing != null) {
+            return existing;
+        }
+        Map<String, CommandMetrics> map = new LinkedHashMap<>(commands);
+        CommandMetrics metrics = new CommandMetrics(command);
+        map.put(command, metrics);
+        commands = Collections.unmodifiableMap(map);
+        return metrics;
+    }
+
+    /**
+     * @param command Le nom de la commande
+     * @return Les mesures de la commande, ou {@code null} si elle n'est pas
+     *         mesurée
+     */
+    public CommandMetrics command(String command) {
+        return commands.get(command);
+    }
+
+    public Collection<CommandMetrics> getCommands() {
+        return commands.values();
+    }
+
+    /**
+     * Compte une connexion acceptée, qui devient active.
+     */
+    public void connectionOpened() {
+        accepted.increment();
+        active.increment();
+    }
+
+    /**
+     * Compte une requête refusée par le contrôle d'admission.
+     */
+    public void requestRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * Compte la fermeture d'une connexion active.
+     */
+    public void connectionClosed() {
+        active.decrement();
+    }
+
+    public void bytesRead(long count) {
+        bytesRead.add(count);
+    }
+
+    public void bytesWritten(long count) {
+        bytesWritten.add(count);
+    }
+
+    /**
+     * Enveloppe le flux d'entrée d'un socket pour compter les octets lus.
+     *
+     * @param in Le flux d'entrée
+     * @return Le flux qui compte les octets
+     */
+    public InputStream countBytesRead(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesRead.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesRead.add(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Enveloppe le flux de sortie d'un socket pour compter les octets écrits.
+     *
+     * @param out Le flux de sortie
+     * @return Le flux qui compte les octets
+     */
+    public OutputStream countBytesWritten(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesWritten.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesWritten.add(len);
+            }
+        };
+    }
+
+    /**
+     * @return Le temps écoulé depuis le démarrage, en secondes
+     */
+    @Override
+    public long getUptime() {
+        return (System.currentTimeMillis() - startTime) / 1000;
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return Le nombre moyen de connexions acceptées par seconde depuis le
+     *         démarrage
+     */
+    @Override
+    public double getAcceptRate() {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed <= 0 ? 0 : accepted.sum() * 1000.0 / elapsed;
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return active.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getRejectedRequests() {
+        return rejected.sum();
+    }
+
+    @Override
+    public int getJournalQueueDepth() {
+        return journalQueueDepth.getAsInt();
+    }
+
+    /**
+     * Inscrit les mesures auprès du serveur JMX de la plateforme, sous les noms
+     * {@code server:type=Server} et {@code server:type=Command,name=<commande>}.
+     *
+     * @throws JMException Si l'inscription échoue
+     */
+    public void registerMBeans() throws JMException {
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        register(mbeans, new ObjectName(JMX_DOMAIN, "type", "Server"), this);
+        for (CommandMetrics metrics : commands.values()) {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=Command,name=" + metrics.getCommand());
+            register(mbeans, name, metrics);
+        }
+    }
+
+    private static void register(MBeanServer mbeans, ObjectName name, Object mbean) throws JMException {
+        if (mbeans.isRegistered(name)) {
+            mbeans.unregisterMBean(name);
+        }
+        mbeans.registerMBean(mbean, name);
+    }
+
+    /**
+     * Écrit toutes les mesures en texte, une par ligne, dans le format
+     * d'exposition de Prometheus. Les latences sont en microsecondes.
+     *
+     * @param out La destination du texte
+     */
+    public void writeText(PrintWriter out) {
+        out.printf(Locale.ROOT, "server_uptime_seconds %d%n", getUptime());
+        out.printf(Locale.ROOT, "server_connections_accepted_total %d%n", getAcceptedConnections());
+        out.printf(Locale.ROOT, "server_connections_accept_rate %.3f%n", getAcceptRate());
+        out.printf(Locale.ROOT, "server_connections_active %d%n", getActiveConnections());
+        out.printf(Locale.ROOT, "server_bytes_read_total %d%n", getBytesRead());
+        out.printf(Locale.ROOT, "server_bytes_written_total %d%n", getBytesWritten());
+        out.printf(Locale.ROOT, "server_journal_queue_depth %d%n", getJournalQueueDepth());
+        out.printf(Locale.ROOT, "server_requests_rejected_total %d%n", getRejectedRequests());
+        for (CommandMetrics metrics : commands.values()) {
+            String label = "{command=\"" + metrics.getCommand() + "\"";
+            out.printf(Locale.ROOT, "server_commands_total%s} %d%n", label, metrics.getCount());
+            out.printf(Locale.ROOT, "server_command_failures_total%s} %d%n", label, metrics.getFailures());
+            out.printf(Locale.ROOT, "server_command_latency_us%s,quantile=\"0.5\"} %d%n", label, metrics.getLatencyP50());
+            out.printf(Locale.ROOT, "server_command_latency_us%s,quantile=\"0.99\"} %d%n", label, metrics.getLatencyP99());
+            out.printf(Locale.ROOT, "server_command_latency_us%s,quantile=\"0.999\"} %d%n", label, metrics.getLatencyP999());
+            out.printf(Locale.ROOT, "server_command_latency_us_max%s} %d%n", label, metrics.getMaxLatency());
+            out.printf(Locale.ROOT, "server_command_latency_us_mean%s} %.1f%n", label, metrics.getMeanLatency());
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,23 @@
+package server.metrics;
+
+/**
+ * Interface JMX des mesures globales du serveur.
+ */
+public interface ServerMetricsMBean {
+
+    long getUptime();
+
+    long getAcceptedConnections();
+
+    double getAcceptRate();
+
+    long getActiveConnections();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    int getJournalQueueDepth();
+
+    long getRejectedRequests();
+}
@@ -0,0 +1,75 @@
+package server.models;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Une demande d'inscription à plusieurs cours envoyée avec la commande
+ * {@code INSCRIRE_LOT}: l'identité de l'étudiant, donnée une seule fois, et la
+ * liste des cours.
+ */
+public class BatchRegistrationForm implements Serializable {
+
+    private final static long serialVersionUID = 4817502554859449606L;
+
+    private final String prenom;
+    private final String nom;
+    private final String email;
+    private final String matricule;
+    private final List<Course> courses;
+
+    /**
+     * @param prenom    Le prénom de l'étudiant
+     * @param nom       Le nom de l'étudiant
+     * @param email     Le courriel de l'étudiant
+     * @param matricule Le matricule de l'étudiant
+     * @param courses   Les cours auxquels l'étudiant veut s'inscrire
+     */
+    public BatchRegistrationForm(String prenom, String nom, String email, String matricule, List<Course> courses) {
+        this.prenom = prenom;
+        this.nom = nom;
+        this.email = email;
+        this.matricule = matricule;
+        this.courses = courses != null ? new ArrayList<>(courses) : null;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getMatricule() {
+        return matricule;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    /**
+     * @param course Un des cours de la demande
+     * @return Le formulaire d'inscription de l'étudiant à ce cours
+     */
+    public RegistrationForm toRegistrationForm(Course course) {
+        return new RegistrationForm(prenom, nom, email, matricule, course);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchRegistrationForm{" +
+                "prenom=" + prenom +
+                ", nom=" + nom +
+                ", email=" + email +
+                ", matricule=" + matricule +
+                ", courses=" + courses +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package server.models;
+
+import java.io.Serializable;
+
+/**
+ * La réponse du serveur à la commande {@code CHARGER_SI_MODIFIE}: l'étiquette
+ * de la liste des cours d'une session et l'indication qu'elle diffère de celle
+ * que le client a en cache.
+ *
+ * L'étiquette est calculée à partir du contenu de la liste; elle ne change que
+ * si les cours de la session changent et reste la même d'un redémarrage du
+ * serveur à l'autre. Si la liste est modifiée, ses pages suivent cette réponse.
+ */
+public class CatalogVersion implements Serializable {
+
+    private final static long serialVersionUID = -2004512385650474716L;
+
+    private final String tag;
+    private final boolean modified;
+
+    /**
+     * @param tag      L'étiquette de la liste des cours actuelle
+     * @param modified {@code true} si l'étiquette diffère de celle du client
+     */
+    public CatalogVersion(String tag, boolean modified) {
+        this.tag = tag;
+        this.modified = modified;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogVersion{" +
+                "tag=" + tag +
+                ", modified=" + modified +
+                '}';
+    }
+}
@@ -2,11 +2,23 @@ package server.models;
 
 import java.io.Serializable;
 
+/**
+ * Un cours offert pendant une session. Les instances sont immuables: le
+ * catalogue les partage entre toutes les requêtes des clients.
+ *
+ * Les trois champs restent des chaînes pour que la forme sérialisée soit
+ * celle qu'attendent les clients existants; c'est le catalogue qui fait
+ * partager aux cours les chaînes des codes et des sessions. L'identifiant de
+ * sérialisation est celui que calculait la version d'origine de la classe,
+ * avec ses mutateurs.
+ */
 public class Course implements Serializable {
 
-    private String name;
-    private String code;
-    private String session;
+    private final static long serialVersionUID = 5759227763763930791L;
+
+    private final String name;
+    private final String code;
+    private final String session;
 
     public Course(String name, String code, String session) {
         this.name = name;
@@ -18,26 +30,14 @@ public class Course implements Serializable {
         return name;
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
-
     public String getCode() {
         return code;
     }
 
-    public void setCode(String code) {
-        this.code = code;
-    }
-
     public String getSession() {
         return session;
     }
 
-    public void setSession(String session) {
-        this.session = session;
-    }
-
     @Override
     public String toString() {
         return "Course{" +
@@ -0,0 +1,63 @@
+package server.models;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Une page de résultats: une partie d'une liste de cours, sa position dans la
+ * liste et la taille totale de la liste.
+ */
+public class CoursePage implements Serializable {
+
+    private final static long serialVersionUID = 1818496338908882077L;
+
+    private final List<Course> courses;
+    private final int offset;
+    private final int total;
+
+    /**
+     * @param courses Les cours de la page
+     * @param offset  La position du premier cours de la page dans la liste
+     * @param total   Le nombre total de cours de la liste
+     */
+    public CoursePage(List<Course> courses, int offset, int total) {
+        this.courses = courses;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    /**
+     * Extrait une page d'une liste de cours. Les cours de la page sont copiés
+     * dans une liste sérialisable.
+     *
+     * @param courses La liste complète
+     * @param offset  La position du premier cours de la page
+     * @param limit   Le nombre maximal de cours de la page
+     * @return La page extraite, vide si la position dépasse la fin de la liste
+     */
+    public static CoursePage slice(List<Course> courses, int offset, int limit) {
+        int from = Math.min(Math.max(0, offset), courses.size());
+        int to = (int) Math.min((long) from + limit, courses.size());
+        return new CoursePage(new ArrayList<>(courses.subList(from, to)), from, courses.size());
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return {@code true} si d'autres cours suivent cette page
+     */
+    public boolean hasMore() {
+        return offset + courses.size() < total;
+    }
+}
@@ -3,6 +3,8 @@ package server.models;
 import java.io.Serializable;
 
 public class RegistrationForm implements Serializable {
+    private final static long serialVersionUID = -5408701580579926283L;
+
     private String prenom;
     private String nom;
     private String email;
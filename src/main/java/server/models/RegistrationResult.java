@@ -0,0 +1,49 @@
+package server.models;
+
+import java.io.Serializable;
+
+/**
+ * Le résultat de l'inscription à un des cours d'une commande
+ * {@code INSCRIRE_LOT}: le cours, l'indication que l'inscription a été
+ * acceptée et le message du serveur.
+ */
+public class RegistrationResult implements Serializable {
+
+    private final static long serialVersionUID = -3209540791309546083L;
+
+    private final Course course;
+    private final boolean accepted;
+    private final String message;
+
+    /**
+     * @param course   Le cours demandé
+     * @param accepted {@code true} si l'inscription au cours est enregistrée
+     * @param message  La confirmation ou la raison du refus
+     */
+    public RegistrationResult(Course course, boolean accepted, String message) {
+        this.course = course;
+        this.accepted = accepted;
+        this.message = message;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistrationResult{" +
+                "course=" + course +
+                ", accepted=" + accepted +
+                ", message=" + message +
+                '}';
+    }
+}
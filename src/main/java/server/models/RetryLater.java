@@ -0,0 +1,46 @@
+package server.models;
+
+import java.io.Serializable;
+
+/**
+ * La réponse du serveur à une requête qu'il ne peut pas traiter tout de
+ * suite, parce qu'il est surchargé ou que le client a dépassé son débit
+ * permis. La requête n'a pas été traitée: le client peut la renvoyer sans
+ * risque après le délai indiqué.
+ *
+ * Elle n'est envoyée qu'aux clients du protocole binaire: un client d'objets
+ * sérialisés reçoit seulement le message, comme une autre erreur.
+ */
+public class RetryLater implements Serializable {
+
+    private final static long serialVersionUID = 5466329612370692682L;
+
+    private final long retryAfter;
+    private final String message;
+
+    /**
+     * @param retryAfter Le délai, en millisecondes, avant de renvoyer la
+     *                   requête
+     * @param message    Le message expliquant le refus
+     */
+    public RetryLater(long retryAfter, String message) {
+        this.retryAfter = retryAfter;
+        this.message = message;
+    }
+
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryLater{" +
+                "retryAfter=" + retryAfter +
+                ", message=" + message +
+                '}';
+    }
+}
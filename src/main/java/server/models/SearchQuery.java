@@ -0,0 +1,62 @@
+package server.models;
+
+import java.io.Serializable;
+
+/**
+ * Une recherche de cours envoyée avec la commande {@code RECHERCHER}: un
+ * texte, la session dans laquelle chercher et la page de résultats voulue.
+ *
+ * Le texte est découpé en mots; un cours correspond si chaque mot est le
+ * début de son code ou d'un mot de son nom, sans tenir compte des majuscules
+ * ni des accents. Un texte vide correspond à tous les cours de la session.
+ */
+public class SearchQuery implements Serializable {
+
+    private final static long serialVersionUID = 4779079472416572964L;
+
+    private final String session;
+    private final String text;
+    private final int offset;
+    private final int limit;
+
+    /**
+     * @param session La session dans laquelle chercher, ou {@code null} pour
+     *                toutes les sessions
+     * @param text    Le texte recherché, par exemple {@code IFT2} ou
+     *                {@code algorithmique}
+     * @param offset  La position du premier résultat voulu
+     * @param limit   Le nombre maximal de résultats voulus
+     */
+    public SearchQuery(String session, String text, int offset, int limit) {
+        this.session = session;
+        this.text = text;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public String getSession() {
+        return session;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchQuery{" +
+                "session=" + session +
+                ", text=" + text +
+                ", offset=" + offset +
+                ", limit=" + limit +
+                '}';
+    }
+}
@@ -0,0 +1,259 @@
+package server.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import server.FramedConnection;
+import server.protocol.Frame;
+import server.protocol.Protocol;
+
+/**
+ * Connexion non bloquante d'un client servie par le {@link NioServer}.
+ *
+ * Le fil du sélecteur lit les octets disponibles et découpe les trames
+ * complètes; elles sont ensuite traitées une à une, dans l'ordre, par un fil
+ * du bassin de travail. Les réponses sont mises en file et écrites par le fil
+ * du sélecteur lorsque le socket est prêt.
+ */
+class NioConnection extends FramedConnection {
+
+    private final static int INITIAL_BUFFER_SIZE = 4096;
+    private final static int HEADER_LENGTH = 5;
+    private final static int MAX_QUEUED_FRAMES = 64;
+
+    private final SocketChannel channel;
+    private final NioServer engine;
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Frame> inbound = new ArrayDeque<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private SelectionKey key;
+    private boolean negotiated;
+    private boolean processing;
+    private boolean suspended;
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    NioConnection(SocketChannel channel, NioServer engine) {
+        super(channel.socket());
+        this.channel = channel;
+        this.engine = engine;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    boolean hasPendingWrites() {
+        return !outbound.isEmpty();
+    }
+
+    /**
+     * Lit les octets disponibles sur le canal, termine la négociation au besoin
+     * et met en file les trames complètes. Appelée par le fil du sélecteur.
+     *
+     * @throws IOException Si le client a fermé la connexion ou envoyé des
+     *                     données invalides
+     */
+    void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            throw new EOFException();
+        }
+        engine.getMetrics().bytesRead(read);
+        lastActivity = System.currentTimeMillis();
+        readBuffer.flip();
+
+        if (!negotiated) {
+            if (readBuffer.remaining() < 2) {
+                readBuffer.compact();
+                return;
+            }
+            if (readBuffer.get() != Protocol.MAGIC) {
+                throw new ProtocolException("Seul le protocole binaire est servi par ce moteur.");
+            }
+            byte accepted = Protocol.acceptVersion(readBuffer.get());
+            writeEncoded(new byte[] { accepted });
+            if (accepted == 0) {
+                throw new ProtocolException("Version du protocole non prise en charge.");
+            }
+            negotiated = true;
+        }
+        takeFrames();
+    }
+
+    /**
+     * Reprend la lecture d'une connexion suspendue: les trames complètes
+     * restées dans le tampon sont mises en file, puis le canal est de nouveau
+     * surveillé. Appelée par le fil du sélecteur.
+     *
+     * @throws IOException Si les données du tampon sont invalides
+     */
+    void resumeReading() throws IOException {
+        readBuffer.flip();
+        takeFrames();
+    }
+
+    /**
+     * Découpe les trames complètes du tampon et les met en file. Lorsque
+     * {@value #MAX_QUEUED_FRAMES} trames attendent déjà d'être traitées, le
+     * découpage s'arrête et le canal n'est plus lu: un client qui envoie plus
+     * vite qu'il n'est servi attend dans son propre socket plutôt que dans la
+     * mémoire du serveur. Le tampon est en mode lecture à l'appel et en mode
+     * écriture au retour.
+     */
+    private void takeFrames() throws IOException {
+        boolean received = false;
+        boolean full = false;
+        while (readBuffer.remaining() >= HEADER_LENGTH) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 0 || length > Protocol.MAX_FRAME_LENGTH) {
+                throw new ProtocolException("Longueur de trame invalide: " + length);
+            }
+            if (readBuffer.remaining() < HEADER_LENGTH + length) {
+                grow(HEADER_LENGTH + length);
+                break;
+            }
+            synchronized (inbound) {
+                if (inbound.size() >= MAX_QUEUED_FRAMES) {
+                    suspended = true;
+                    full = true;
+                    break;
+                }
+            }
+            readBuffer.getInt();
+            byte opcode = readBuffer.get();
+            byte[] body = new byte[length];
+            readBuffer.get(body);
+            synchronized (inbound) {
+                inbound.add(new Frame(opcode, body));
+            }
+            received = true;
+        }
+        readBuffer.compact();
+
+        if (full) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        } else {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+        if (received) {
+            schedule();
+        }
+    }
+
+    /**
+     * Agrandit le tampon de lecture lorsqu'il est plein d'une trame encore
+     * incomplète. Sa capacité double au plus à chaque fois: elle suit les
+     * octets réellement reçus plutôt que la longueur annoncée par le client.
+     * Le tampon est en mode lecture à l'appel et le reste.
+     */
+    private void grow(int frameLength) {
+        if (readBuffer.remaining() < readBuffer.capacity()) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.min(frameLength, readBuffer.capacity() * 2));
+        larger.put(readBuffer);
+        larger.flip();
+        readBuffer = larger;
+    }
+
+    /**
+     * Confie le traitement des trames reçues au bassin de travail, sauf si un
+     * fil s'en occupe déjà.
+     */
+    private void schedule() {
+        synchronized (inbound) {
+            if (processing) {
+                return;
+            }
+            processing = true;
+        }
+        engine.execute(this::process);
+    }
+
+    /**
+     * Traite les trames reçues dans l'ordre jusqu'à ce que la file soit vide,
+     * puis demande la reprise de la lecture si elle avait été suspendue.
+     * Exécutée par un fil du bassin de travail.
+     */
+    private void process() {
+        boolean emptied = false;
+        try {
+            while (true) {
+                Frame frame;
+                boolean resume = false;
+                synchronized (inbound) {
+                    frame = inbound.poll();
+                    if (frame == null) {
+                        processing = false;
+                        emptied = true;
+                        resume = suspended;
+                        suspended = false;
+                    }
+                }
+                if (frame == null) {
+                    if (resume) {
+                        engine.requestRead(this);
+                    }
+                    return;
+                }
+                if (!engine.dispatch(this, frame)) {
+                    return;
+                }
+            }
+        } finally {
+            if (!emptied) {
+                // connexion fermée ou erreur inattendue: un prochain traitement doit rester possible
+                synchronized (inbound) {
+                    processing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Écrit les réponses en attente tant que le canal les accepte. Appelée par
+     * le fil du sélecteur.
+     *
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    void onWritable() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = outbound.peek()) != null) {
+            engine.getMetrics().bytesWritten(channel.write(buffer));
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            outbound.poll();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Met une réponse en file; elle sera écrite par le fil du sélecteur.
+     */
+    @Override
+    public void writeEncoded(byte[] payload) {
+        outbound.add(ByteBuffer.wrap(payload));
+        engine.requestWrite(this);
+    }
+
+    @Override
+    protected void closeStreams() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,380 @@
+package server.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.util.Pair;
+import server.Server;
+import server.logging.Log;
+import server.logging.Logger;
+import server.metrics.ServerMetrics;
+import server.protocol.Frame;
+
+/**
+ * Moteur non bloquant du serveur, construit sur un {@code Selector}.
+ *
+ * Un seul fil surveille toutes les connexions: il accepte les clients, lit et
+ * découpe les trames, puis écrit les réponses. Seul le traitement des
+ * commandes occupe un fil du bassin de travail, de sorte que des milliers de
+ * sessions ouvertes mais inactives ne coûtent qu'un tampon chacune.
+ *
+ * Ce moteur ne sert que le protocole binaire; les anciens clients qui
+ * envoient des objets Java sérialisés doivent utiliser le moteur bloquant.
+ *
+ * À l'arrêt, le sélecteur cesse d'accepter et de lire, laisse les fils de
+ * travail finir les trames déjà reçues et écrit leurs réponses avant de
+ * fermer les connexions.
+ */
+public class NioServer {
+
+    private final static long SELECT_TIMEOUT = 1000;
+    private final static Logger LOG = Log.getLogger(NioServer.class);
+
+    private final Server server;
+    private final ServerMetrics metrics;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final int idleTimeout;
+    private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final Queue<NioConnection> pendingReads = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean started;
+    private volatile boolean stopping;
+    private volatile boolean forced;
+    private boolean draining;
+    private long nextIdleCheck;
+
+    /**
+     * Constructeur de la classe {@code NioServer}.
+     * Ouvre le canal d'écoute sur le port spécifié.
+     *
+     * @param server      Le serveur dont les gestionnaires d'événements traitent
+     *                    les commandes
+     * @param port        Le numéro de port sur lequel écouter
+     * @param backlog     La taille de la file des connexions en attente
+     *                    d'acceptation
+     * @param workers     Le nombre de fils qui traitent les commandes
+     * @param idleTimeout Le délai d'inactivité, en millisecondes, après lequel
+     *                    une connexion est fermée (0 pour aucun délai)
+     * @throws IOException Si une erreur se produit lors de l'ouverture du canal
+     */
+    public NioServer(Server server, int port, int backlog, int workers, int idleTimeout) throws IOException {
+        this.server = server;
+        this.metrics = server.getMetrics();
+        this.idleTimeout = idleTimeout;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(port), backlog);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "nio-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Boucle du sélecteur. Cette méthode est bloquante et ne retourne qu'après
+     * {@link #stop(long)}, une fois les connexions fermées.
+     */
+    public void run() {
+        started = true;
+        try {
+            while (!stopping || !drained()) {
+                try {
+                    selector.select(SELECT_TIMEOUT);
+                    if (stopping) {
+                        stopReading();
+                    }
+                    applyPendingWrites();
+                    applyPendingReads();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        NioConnection connection = (NioConnection) key.attachment();
+                        try {
+                            if (key.isReadable() && !draining) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        } catch (IOException e) {
+                            close(connection);
+                        }
+                    }
+                    closeIdleConnections();
+                } catch (IOException e) {
+                    LOG.error("Erreur dans la boucle du sélecteur", e);
+                }
+            }
+        } finally {
+            closeAll();
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Arrête le moteur: plus aucune connexion n'est acceptée ni lue, les
+     * trames déjà reçues sont traitées et leurs réponses écrites, puis les
+     * connexions sont fermées. Passé l'échéance, les connexions sont fermées
+     * sans attendre.
+     *
+     * @param deadline L'échéance, selon {@link System#nanoTime()}
+     * @return {@code true} si toutes les réponses ont été écrites avant
+     *         l'échéance
+     * @throws InterruptedException Si le fil est interrompu pendant l'attente
+     */
+    public boolean stop(long deadline) throws InterruptedException {
+        stopping = true;
+        if (!started) {
+            workers.shutdown();
+            closeAll();
+            return true;
+        }
+        selector.wakeup();
+        // le sélecteur ne voit pas les fils de travail se terminer: il faut le réveiller
+        if (workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            selector.wakeup();
+        }
+        if (terminated.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        LOG.warn("Délai d'arrêt dépassé, connexions fermées", "connections", selector.keys().size());
+        forced = true;
+        workers.shutdownNow();
+        selector.wakeup();
+        terminated.await(SELECT_TIMEOUT, TimeUnit.MILLISECONDS);
+        return false;
+    }
+
+    /**
+     * @return Le port sur lequel le moteur écoute
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Ferme le canal d'écoute et cesse de lire les connexions, puis refuse de
+     * nouvelles tâches au bassin de travail. Seul le fil du sélecteur confie
+     * des tâches au bassin, de sorte qu'aucune trame déjà lue n'est perdue.
+     */
+    private void stopReading() throws IOException {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        serverChannel.close();
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof NioConnection) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * @return {@code true} si les trames reçues ont été traitées et toutes les
+     *         réponses écrites, ou si l'échéance de l'arrêt est passée
+     */
+    private boolean drained() {
+        if (forced) {
+            return true;
+        }
+        if (!workers.isTerminated()) {
+            return false;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof NioConnection
+                    && ((NioConnection) key.attachment()).hasPendingWrites()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void closeAll() {
+        if (!selector.isOpen()) {
+            return;
+        }
+        try {
+            serverChannel.close();
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) {
+                    close((NioConnection) key.attachment());
+                }
+            }
+            selector.close();
+        } catch (IOException e) {
+            LOG.warn("Erreur lors de la fermeture du sélecteur", e);
+        }
+    }
+
+    /**
+     * Accepte les connexions en attente et les inscrit auprès du sélecteur.
+     *
+     * @throws IOException Si une erreur se produit lors de l'acceptation
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            NioConnection connection = new NioConnection(channel, this);
+            connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            metrics.connectionOpened();
+            LOG.info("Client connecté", "client", connection.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Décode et traite une trame reçue. Appelée par un fil du bassin de travail.
+     *
+     * @param connection La connexion qui a reçu la trame
+     * @param frame      La trame reçue
+     * @return {@code false} si la connexion a été fermée
+     */
+    boolean dispatch(NioConnection connection, Frame frame) {
+        try {
+            Pair<String, String> parts = connection.decodeCommand(frame);
+            if (parts.getKey().equals(Server.CLOSE_COMMAND)) {
+                close(connection);
+                return false;
+            }
+            server.dispatch(connection, parts.getKey(), parts.getValue());
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Trame invalide", e, "client", connection.getRemoteAddress());
+            close(connection);
+            return false;
+        } catch (RuntimeException e) {
+            // comme le moteur bloquant: la connexion est fermée, le serveur continue
+            LOG.error("Erreur sur la connexion", e, "client", connection.getRemoteAddress());
+            close(connection);
+            return false;
+        }
+    }
+
+    ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    void execute(Runnable task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            // le bassin est arrêté de force: la connexion sera fermée avec les autres
+            LOG.warn("Trame ignorée, serveur en cours d'arrêt");
+        }
+    }
+
+    /**
+     * Demande au fil du sélecteur de surveiller l'écriture sur une connexion qui
+     * a des réponses en attente.
+     *
+     * @param connection La connexion à surveiller
+     */
+    void requestWrite(NioConnection connection) {
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Demande au fil du sélecteur de reprendre la lecture d'une connexion dont
+     * la file de trames s'est vidée.
+     *
+     * @param connection La connexion à reprendre
+     */
+    void requestRead(NioConnection connection) {
+        pendingReads.add(connection);
+        selector.wakeup();
+    }
+
+    private void applyPendingReads() {
+        NioConnection connection;
+        while ((connection = pendingReads.poll()) != null) {
+            // à l'arrêt, les trames encore en tampon ne sont plus traitées
+            if (draining || !connection.getKey().isValid()) {
+                continue;
+            }
+            try {
+                connection.resumeReading();
+            } catch (IOException e) {
+                close(connection);
+            }
+        }
+    }
+
+    private void applyPendingWrites() {
+        NioConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            SelectionKey key = connection.getKey();
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Ferme les connexions restées inactives plus longtemps que le délai
+     * configuré. La vérification est faite au plus une fois par seconde.
+     */
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (idleTimeout <= 0 || now < nextIdleCheck) {
+            return;
+        }
+        nextIdleCheck = now + SELECT_TIMEOUT;
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof NioConnection
+                    && now - ((NioConnection) attachment).getLastActivity() > idleTimeout) {
+                LOG.info("Délai d'inactivité dépassé", "client", ((NioConnection) attachment).getRemoteAddress());
+                close((NioConnection) attachment);
+            }
+        }
+    }
+
+    private void close(NioConnection connection) {
+        // le fil du sélecteur et un fil de travail peuvent fermer la même connexion
+        synchronized (connection) {
+            if (!connection.getKey().isValid()) {
+                return;
+            }
+            connection.getKey().cancel();
+        }
+        metrics.connectionClosed();
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOG.warn("Erreur lors de la fermeture d'une connexion", e);
+        }
+        LOG.info("Client déconnecté", "client", connection.getRemoteAddress());
+    }
+}
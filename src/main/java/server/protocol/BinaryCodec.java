@@ -0,0 +1,313 @@
+package server.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import server.models.BatchRegistrationForm;
+import server.models.CatalogVersion;
+import server.models.Course;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.RetryLater;
+import server.models.SearchQuery;
+
+/**
+ * Encodage et décodage binaires des messages échangés avec les clients.
+ *
+ * Les chaînes sont écrites en UTF-8 précédées de leur longueur sur quatre
+ * octets ({@code -1} pour {@code null}); les listes sont précédées de leur
+ * nombre d'éléments.
+ *
+ * Le nombre d'éléments annoncé par le client n'est qu'une promesse: il est
+ * borné par le nombre d'éléments de taille minimale que peut contenir une
+ * trame, et une liste décodée ne grandit qu'à mesure que ses éléments sont
+ * effectivement lus.
+ */
+public final class BinaryCodec {
+
+    /** Taille minimale d'un cours encodé: trois chaînes vides. */
+    private final static int MIN_COURSE_LENGTH = 3 * 4;
+    /** Taille minimale d'un formulaire d'inscription encodé. */
+    private final static int MIN_FORM_LENGTH = 4 * 4 + MIN_COURSE_LENGTH;
+    /** Taille minimale d'un résultat d'inscription encodé. */
+    private final static int MIN_RESULT_LENGTH = MIN_COURSE_LENGTH + 1 + 4;
+    /** Capacité initiale d'une liste décodée. */
+    private final static int INITIAL_LIST_CAPACITY = 16;
+
+    /**
+     * Écrit le corps d'une trame dans un flux de données.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private BinaryCodec() {
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > Protocol.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Chaîne trop longue: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lit le nombre d'éléments d'une liste et vérifie qu'une trame peut les
+     * contenir.
+     *
+     * @param in        Le flux de données
+     * @param minLength La taille minimale d'un élément encodé
+     * @param error     Le début du message d'erreur
+     * @return Le nombre d'éléments
+     * @throws IOException Si la lecture échoue ou que le nombre est invalide
+     */
+    private static int readCount(DataInput in, int minLength, String error) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > Protocol.MAX_FRAME_LENGTH / minLength) {
+            throw new ProtocolException(error + count);
+        }
+        return count;
+    }
+
+    public static void writeCourse(DataOutput out, Course course) throws IOException {
+        writeString(out, course.getCode());
+        writeString(out, course.getName());
+        writeString(out, course.getSession());
+    }
+
+    public static Course readCourse(DataInput in) throws IOException {
+        String code = readString(in);
+        String name = readString(in);
+        String session = readString(in);
+        return new Course(name, code, session);
+    }
+
+    public static void writeCourses(DataOutput out, List<Course> courses) throws IOException {
+        out.writeInt(courses.size());
+        for (Course course : courses) {
+            writeCourse(out, course);
+        }
+    }
+
+    public static List<Course> readCourses(DataInput in) throws IOException {
+        int count = readCount(in, MIN_COURSE_LENGTH, "Nombre de cours invalide: ");
+        List<Course> courses = new ArrayList<>(Math.min(count, INITIAL_LIST_CAPACITY));
+        String lastSession = null;
+        for (int i = 0; i < count; i++) {
+            String code = readString(in);
+            String name = readString(in);
+            String session = readString(in);
+            // les cours d'une liste sont presque toujours de la même session
+            if (session != null && session.equals(lastSession)) {
+                session = lastSession;
+            }
+            lastSession = session;
+            courses.add(new Course(name, code, session));
+        }
+        return courses;
+    }
+
+    public static void writeRegistrationForm(DataOutput out, RegistrationForm form) throws IOException {
+        writeString(out, form.getPrenom());
+        writeString(out, form.getNom());
+        writeString(out, form.getEmail());
+        writeString(out, form.getMatricule());
+        writeCourse(out, form.getCourse());
+    }
+
+    public static RegistrationForm readRegistrationForm(DataInput in) throws IOException {
+        String prenom = readString(in);
+        String nom = readString(in);
+        String email = readString(in);
+        String matricule = readString(in);
+        Course course = readCourse(in);
+        return new RegistrationForm(prenom, nom, email, matricule, course);
+    }
+
+    public static void writeRegistrationForms(DataOutput out, List<RegistrationForm> forms) throws IOException {
+        out.writeInt(forms.size());
+        for (RegistrationForm form : forms) {
+            writeRegistrationForm(out, form);
+        }
+    }
+
+    public static List<RegistrationForm> readRegistrationForms(DataInput in) throws IOException {
+        int count = readCount(in, MIN_FORM_LENGTH, "Nombre d'inscriptions invalide: ");
+        List<RegistrationForm> forms = new ArrayList<>(Math.min(count, INITIAL_LIST_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            forms.add(readRegistrationForm(in));
+        }
+        return forms;
+    }
+
+    public static void writeBatchRegistrationForm(DataOutput out, BatchRegistrationForm form) throws IOException {
+        writeString(out, form.getPrenom());
+        writeString(out, form.getNom());
+        writeString(out, form.getEmail());
+        writeString(out, form.getMatricule());
+        writeCourses(out, form.getCourses());
+    }
+
+    public static BatchRegistrationForm readBatchRegistrationForm(DataInput in) throws IOException {
+        String prenom = readString(in);
+        String nom = readString(in);
+        String email = readString(in);
+        String matricule = readString(in);
+        List<Course> courses = readCourses(in);
+        return new BatchRegistrationForm(prenom, nom, email, matricule, courses);
+    }
+
+    public static void writeRegistrationResults(DataOutput out, List<RegistrationResult> results)
+            throws IOException {
+        out.writeInt(results.size());
+        for (RegistrationResult result : results) {
+            writeCourse(out, result.getCourse());
+            out.writeBoolean(result.isAccepted());
+            writeString(out, result.getMessage());
+        }
+    }
+
+    public static List<RegistrationResult> readRegistrationResults(DataInput in) throws IOException {
+        int count = readCount(in, MIN_RESULT_LENGTH, "Nombre de résultats invalide: ");
+        List<RegistrationResult> results = new ArrayList<>(Math.min(count, INITIAL_LIST_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            Course course = readCourse(in);
+            boolean accepted = in.readBoolean();
+            String message = readString(in);
+            results.add(new RegistrationResult(course, accepted, message));
+        }
+        return results;
+    }
+
+    public static void writeSearchQuery(DataOutput out, SearchQuery query) throws IOException {
+        writeString(out, query.getSession());
+        writeString(out, query.getText());
+        out.writeInt(query.getOffset());
+        out.writeInt(query.getLimit());
+    }
+
+    public static SearchQuery readSearchQuery(DataInput in) throws IOException {
+        String session = readString(in);
+        String text = readString(in);
+        int offset = in.readInt();
+        int limit = in.readInt();
+        return new SearchQuery(session, text, offset, limit);
+    }
+
+    public static void writeCoursePage(DataOutput out, CoursePage page) throws IOException {
+        out.writeInt(page.getOffset());
+        out.writeInt(page.getTotal());
+        writeCourses(out, page.getCourses());
+    }
+
+    public static CoursePage readCoursePage(DataInput in) throws IOException {
+        int offset = in.readInt();
+        int total = in.readInt();
+        List<Course> courses = readCourses(in);
+        return new CoursePage(courses, offset, total);
+    }
+
+    public static void writeRetryLater(DataOutput out, RetryLater retry) throws IOException {
+        out.writeLong(retry.getRetryAfter());
+        writeString(out, retry.getMessage());
+    }
+
+    public static RetryLater readRetryLater(DataInput in) throws IOException {
+        long retryAfter = in.readLong();
+        String message = readString(in);
+        return new RetryLater(retryAfter, message);
+    }
+
+    public static void writeCatalogVersion(DataOutput out, CatalogVersion version) throws IOException {
+        writeString(out, version.getTag());
+        out.writeBoolean(version.isModified());
+    }
+
+    public static CatalogVersion readCatalogVersion(DataInput in) throws IOException {
+        String tag = readString(in);
+        boolean modified = in.readBoolean();
+        return new CatalogVersion(tag, modified);
+    }
+
+    /**
+     * Construit une trame complète, en-tête compris, prête à être écrite sur un
+     * socket.
+     *
+     * @param opcode Le code d'opération de la trame
+     * @param body   L'écriture du corps de la trame
+     * @return Les octets de la trame
+     * @throws IOException Si une erreur se produit lors de l'encodage
+     */
+    public static byte[] frame(byte opcode, BodyWriter body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(opcode);
+        body.write(out);
+        out.flush();
+
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - 5;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    /**
+     * Écrit une trame dans un flux de données.
+     *
+     * @param out    Le flux de sortie
+     * @param opcode Le code d'opération de la trame
+     * @param body   L'écriture du corps de la trame
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    public static void writeFrame(DataOutput out, byte opcode, BodyWriter body) throws IOException {
+        out.write(frame(opcode, body));
+    }
+
+    /**
+     * Lit la prochaine trame d'un flux de données.
+     *
+     * @param in Le flux d'entrée
+     * @return La trame lue
+     * @throws IOException Si la trame est mal formée ou si une erreur se produit
+     *                     lors de la lecture
+     */
+    public static Frame readFrame(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > Protocol.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Longueur de trame invalide: " + length);
+        }
+        byte opcode = in.readByte();
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return new Frame(opcode, body);
+    }
+}
@@ -0,0 +1,34 @@
+package server.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+
+/**
+ * Une trame du protocole binaire: un code d'opération et son corps.
+ */
+public class Frame {
+
+    private final byte opcode;
+    private final byte[] body;
+
+    public Frame(byte opcode, byte[] body) {
+        this.opcode = opcode;
+        this.body = body;
+    }
+
+    public byte getOpcode() {
+        return opcode;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return Un flux de lecture sur le corps de la trame
+     */
+    public DataInput input() {
+        return new DataInputStream(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,104 @@
+package server.protocol;
+
+/**
+ * Constantes du protocole binaire entre les clients et le serveur.
+ *
+ * Un client binaire commence par envoyer {@link #MAGIC} suivi de la version
+ * qu'il parle; le serveur répond avec la version retenue. Le premier octet
+ * d'un flux d'objets Java étant {@code 0xAC}, le serveur distingue ainsi les
+ * anciens clients, qui continuent d'utiliser la sérialisation Java.
+ *
+ * Chaque message est ensuite une trame: la longueur du corps sur quatre
+ * octets, le code d'opération sur un octet, puis le corps.
+ */
+public final class Protocol {
+
+    public final static byte MAGIC = (byte) 0x55;
+    public final static byte VERSION = 1;
+    public final static int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /** Demande la liste des cours d'une session; corps: la session. */
+    public final static byte LOAD = 0x01;
+    /** Demande une inscription; corps: le formulaire d'inscription. */
+    public final static byte REGISTER = 0x02;
+    /** Termine la session; corps vide. */
+    public final static byte CLOSE = 0x03;
+    /** Cherche des cours; corps: la requête de recherche. */
+    public final static byte SEARCH = 0x04;
+    /**
+     * Demande la liste des cours d'une session par pages, à partir d'une
+     * position; corps: une requête de recherche dont le texte est ignoré. Le
+     * serveur répond par des trames {@link #PAGE} consécutives, jusqu'à la
+     * dernière page.
+     */
+    public final static byte LOAD_PAGES = 0x05;
+    /**
+     * Demande la liste des cours d'une session si elle diffère de celle que le
+     * client a en cache; corps: la session, puis l'étiquette de la liste en
+     * cache (vide s'il n'y en a pas). Le serveur répond par une trame
+     * {@link #CATALOG_VERSION}, suivie des trames {@link #PAGE} de la liste si elle a
+     * été modifiée.
+     */
+    public final static byte LOAD_IF_MODIFIED = 0x06;
+    /**
+     * Demande l'inscription d'un étudiant à plusieurs cours; corps: la demande
+     * d'inscription groupée.
+     */
+    public final static byte REGISTER_BATCH = 0x07;
+    /**
+     * Demande l'annulation d'une inscription; corps: un formulaire
+     * d'inscription dont seuls le matricule, la session et le code du cours
+     * sont utilisés. Le serveur répond par {@link #MESSAGE} ou {@link #ERROR}.
+     */
+    public final static byte CANCEL_REGISTRATION = 0x08;
+    /**
+     * Demande la liste des inscriptions à un cours; corps: la session, puis le
+     * code du cours. Le serveur répond par {@link #REGISTRATIONS}.
+     */
+    public final static byte LIST_COURSE_REGISTRATIONS = 0x09;
+    /**
+     * Demande la liste des inscriptions d'un étudiant; corps: le matricule. Le
+     * serveur répond par {@link #REGISTRATIONS}.
+     */
+    public final static byte LIST_STUDENT_REGISTRATIONS = 0x0A;
+
+    /** Réponse à {@link #LOAD}; corps: la liste des cours. */
+    public final static byte COURSES = 0x11;
+    /** Réponse textuelle; corps: le message. */
+    public final static byte MESSAGE = 0x12;
+    /** Refus d'une requête; corps: le message expliquant le refus. */
+    public final static byte ERROR = 0x13;
+    /** Réponse à {@link #SEARCH} et à {@link #LOAD_PAGES}; corps: une page de cours. */
+    public final static byte PAGE = 0x14;
+    /**
+     * Réponse à {@link #LOAD_IF_MODIFIED}; corps: l'étiquette de la liste
+     * actuelle, puis un octet qui vaut {@code 1} si elle a été modifiée.
+     */
+    public final static byte CATALOG_VERSION = 0x15;
+    /** Réponse à {@link #REGISTER_BATCH}; corps: le résultat de chaque cours. */
+    public final static byte RESULTS = 0x16;
+    /**
+     * Réponse à {@link #LIST_COURSE_REGISTRATIONS} et à
+     * {@link #LIST_STUDENT_REGISTRATIONS}; corps: les formulaires d'inscription.
+     */
+    public final static byte REGISTRATIONS = 0x17;
+    /**
+     * Refus temporaire d'une requête qui n'a pas été traitée, parce que le
+     * serveur est surchargé ou que le client a dépassé son débit; corps: le
+     * délai en millisecondes avant de la renvoyer, puis un message.
+     */
+    public final static byte RETRY_LATER = 0x18;
+
+    private Protocol() {
+    }
+
+    /**
+     * Choisit la version du protocole à utiliser avec un client.
+     *
+     * @param requested La version demandée par le client
+     * @return La version retenue, ou {@code 0} si aucune version commune n'existe
+     */
+    public static byte acceptVersion(byte requested) {
+        return requested >= VERSION ? VERSION : 0;
+    }
+}
@@ -0,0 +1,11 @@
+package server.protocol;
+
+/**
+ * Les formats d'échange qu'un client peut négocier avec le serveur.
+ */
+public enum WireFormat {
+    /** Sérialisation Java des objets, conservée pour les anciens clients. */
+    OBJECT_STREAM,
+    /** Trames binaires décrites dans {@link Protocol}. */
+    BINARY
+}
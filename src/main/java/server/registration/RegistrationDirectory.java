@@ -0,0 +1,156 @@
+package server.registration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * La classe RegistrationDirectory garde en mémoire les inscriptions écrites au
+ * journal, indexées par cours et par matricule, pour répondre aux questions
+ * « qui est inscrit à ce cours? » et « à quels cours cet étudiant est-il
+ * inscrit? » sans relire le journal.
+ *
+ * Chaque entrée des index garde ses inscriptions dans l'ordre où elles ont
+ * été écrites: un ajout ou un retrait se fait en temps logarithmique, sans
+ * recopier l'entrée, même pour un cours populaire en pleine période
+ * d'inscription. Une consultation ne prend aucun verrou et ne bloque donc
+ * jamais une inscription: elle reçoit une copie non modifiable de l'entrée,
+ * construite à la première lecture qui suit une modification puis partagée
+ * par les lectures suivantes. Une modification faite pendant la copie peut y
+ * figurer ou non; la liste obtenue ne change plus ensuite.
+ */
+public class RegistrationDirectory {
+
+    private final Map<String, Entry> byCourse = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byStudent = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Ajoute une inscription aux index. Une inscription déjà présente pour le
+     * même cours et le même matricule est remplacée, et passe à la fin de
+     * l'ordre d'écriture.
+     *
+     * @param form Le formulaire de l'inscription écrite au journal
+     */
+    public void add(RegistrationForm form) {
+        Course course = form.getCourse();
+        String courseKey = courseKey(course.getSession(), course.getCode());
+        byCourse.compute(courseKey, (k, entry) -> with(entry, form.getMatricule(), form));
+        byStudent.compute(form.getMatricule(), (k, entry) -> with(entry, courseKey, form));
+    }
+
+    /**
+     * Retire une inscription des index, par exemple après son annulation.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     */
+    public void remove(String session, String code, String matricule) {
+        String courseKey = courseKey(session, code);
+        byCourse.computeIfPresent(courseKey,
+                (k, entry) -> entry.remove(matricule, writes.incrementAndGet()) ? null : entry);
+        byStudent.computeIfPresent(matricule,
+                (k, entry) -> entry.remove(courseKey, writes.incrementAndGet()) ? null : entry);
+    }
+
+    /**
+     * @param session La session du cours
+     * @param code    Le code du cours
+     * @return Les inscriptions au cours, dans l'ordre où elles ont été
+     *         écrites; la liste n'est pas modifiable
+     */
+    public List<RegistrationForm> findByCourse(String session, String code) {
+        return snapshot(byCourse.get(courseKey(session, code)));
+    }
+
+    /**
+     * @param matricule Le matricule de l'étudiant
+     * @return Les inscriptions de l'étudiant, toutes sessions confondues, dans
+     *         l'ordre où elles ont été écrites; la liste n'est pas modifiable
+     */
+    public List<RegistrationForm> findByStudent(String matricule) {
+        return snapshot(byStudent.get(matricule));
+    }
+
+    private Entry with(Entry entry, String key, RegistrationForm form) {
+        if (entry == null) {
+            entry = new Entry();
+        }
+        entry.put(key, form, writes.incrementAndGet());
+        return entry;
+    }
+
+    private static List<RegistrationForm> snapshot(Entry entry) {
+        return entry != null ? entry.snapshot() : Collections.emptyList();
+    }
+
+    private static String courseKey(String session, String code) {
+        return session + '\t' + code;
+    }
+
+    /**
+     * Les inscriptions d'un cours, indexées par matricule, ou celles d'un
+     * étudiant, indexées par cours, rangées selon leur numéro d'écriture. Les
+     * modifications se font dans un {@code compute} de la table, qui les
+     * sérialise; les lectures se font sans verrou.
+     */
+    private static class Entry {
+        private final Map<String, Long> positions = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<Long, RegistrationForm> forms = new ConcurrentSkipListMap<>();
+        private volatile long version;
+        private volatile Snapshot snapshot;
+
+        private void put(String key, RegistrationForm form, long write) {
+            Long previous = positions.put(key, write);
+            if (previous != null) {
+                forms.remove(previous);
+            }
+            forms.put(write, form);
+            version = write;
+        }
+
+        /**
+         * @return {@code true} si l'entrée est vide et doit être retirée de la
+         *         table
+         */
+        private boolean remove(String key, long write) {
+            Long previous = positions.remove(key);
+            if (previous != null) {
+                forms.remove(previous);
+                version = write;
+            }
+            return positions.isEmpty();
+        }
+
+        private List<RegistrationForm> snapshot() {
+            // chaque numéro d'écriture n'est utilisé qu'une fois: une copie
+            // faite pour la version courante reste à jour
+            long current = version;
+            Snapshot cached = snapshot;
+            if (cached != null && cached.version == current) {
+                return cached.forms;
+            }
+            List<RegistrationForm> copy = Collections.unmodifiableList(new ArrayList<>(forms.values()));
+            snapshot = new Snapshot(current, copy);
+            return copy;
+        }
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final List<RegistrationForm> forms;
+
+        private Snapshot(long version, List<RegistrationForm> forms) {
+            this.version = version;
+            this.forms = forms;
+        }
+    }
+}
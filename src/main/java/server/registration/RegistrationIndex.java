@@ -0,0 +1,231 @@
+package server.registration;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * La classe RegistrationIndex garde en mémoire les inscriptions, indexées par
+ * (session, code du cours, matricule).
+ *
+ * Elle permet de refuser en temps constant une inscription en double et de
+ * faire respecter la capacité de chaque cours sans relire le journal des
+ * inscriptions. Chaque vérification et réservation d'une place se
+ * fait dans un {@code compute} de la table concurrente: deux étudiants qui
+ * s'inscrivent au même cours sont sérialisés, alors que les inscriptions à
+ * des cours différents se font en parallèle.
+ *
+ * Une inscription réservée reste en attente jusqu'à ce qu'elle soit écrite
+ * dans le journal et confirmée par {@link #confirm(String, String, String)};
+ * une annulation la remet en attente le temps de son écriture. Une
+ * inscription en attente ne peut pas être annulée: l'annulation d'un étudiant
+ * ne peut donc pas être écrite dans le journal avant son inscription, ni deux
+ * fois.
+ */
+public class RegistrationIndex {
+
+    /**
+     * Le résultat d'une demande de réservation ou d'annulation.
+     */
+    public enum Result {
+        ACCEPTED,
+        DUPLICATE,
+        FULL,
+        NOT_REGISTERED,
+        PENDING
+    }
+
+    /** Capacité qui signifie qu'un cours n'a pas de limite d'inscriptions. */
+    public final static int UNLIMITED = 0;
+
+    private final Map<CourseKey, Enrollment> enrollments = new ConcurrentHashMap<>();
+    private final Map<CourseKey, Integer> capacities = new ConcurrentHashMap<>();
+    private final int defaultCapacity;
+
+    /**
+     * Constructeur de la classe {@code RegistrationIndex}.
+     *
+     * @param defaultCapacity La capacité des cours qui n'en ont pas reçu une
+     *                        explicitement, ou {@link #UNLIMITED}
+     */
+    public RegistrationIndex(int defaultCapacity) {
+        this.defaultCapacity = defaultCapacity;
+    }
+
+    /**
+     * Ajoute une inscription déjà enregistrée, relue au démarrage, sans
+     * vérifier la capacité du cours.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     */
+    public void restore(String session, String code, String matricule) {
+        enrollments.compute(new CourseKey(session, code), (k, enrollment) -> {
+            if (enrollment == null) {
+                enrollment = new Enrollment();
+            }
+            enrollment.students.add(matricule);
+            return enrollment;
+        });
+    }
+
+    /**
+     * Fixe la capacité d'un cours pour une session.
+     *
+     * @param session  La session du cours
+     * @param code     Le code du cours
+     * @param capacity Le nombre maximal d'inscriptions, ou {@link #UNLIMITED}
+     */
+    public void setCapacity(String session, String code, int capacity) {
+        capacities.put(new CourseKey(session, code), capacity);
+    }
+
+    /**
+     * Réserve une place dans un cours pour un étudiant, si l'étudiant n'y est
+     * pas déjà inscrit et que le cours n'est pas complet. La place reste en
+     * attente jusqu'à sa confirmation ou sa libération.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     * @return Le résultat de la réservation
+     */
+    public Result reserve(String session, String code, String matricule) {
+        CourseKey key = new CourseKey(session, code);
+        int capacity = capacities.getOrDefault(key, defaultCapacity);
+        Result[] result = new Result[1];
+        enrollments.compute(key, (k, enrollment) -> {
+            if (enrollment == null) {
+                enrollment = new Enrollment();
+            }
+            if (enrollment.students.contains(matricule)) {
+                result[0] = Result.DUPLICATE;
+            } else if (capacity != UNLIMITED && enrollment.students.size() >= capacity) {
+                result[0] = Result.FULL;
+            } else {
+                enrollment.students.add(matricule);
+                enrollment.pending.add(matricule);
+                result[0] = Result.ACCEPTED;
+            }
+            return enrollment;
+        });
+        return result[0];
+    }
+
+    /**
+     * Met en attente l'inscription d'un étudiant à un cours le temps d'écrire
+     * son annulation dans le journal. L'annulation est refusée si l'étudiant
+     * n'est pas inscrit, ou si son inscription ou une autre annulation est
+     * encore en attente.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     * @return {@link Result#ACCEPTED} si l'annulation peut être écrite,
+     *         {@link Result#NOT_REGISTERED} ou {@link Result#PENDING} sinon
+     */
+    public Result beginCancellation(String session, String code, String matricule) {
+        Result[] result = new Result[1];
+        enrollments.compute(new CourseKey(session, code), (k, enrollment) -> {
+            if (enrollment == null || !enrollment.students.contains(matricule)) {
+                result[0] = Result.NOT_REGISTERED;
+            } else if (!enrollment.pending.add(matricule)) {
+                result[0] = Result.PENDING;
+            } else {
+                result[0] = Result.ACCEPTED;
+            }
+            return enrollment;
+        });
+        return result[0];
+    }
+
+    /**
+     * Confirme une inscription en attente: son inscription a été écrite dans
+     * le journal, ou son annulation a échoué et l'étudiant reste inscrit.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     */
+    public void confirm(String session, String code, String matricule) {
+        enrollments.computeIfPresent(new CourseKey(session, code), (k, enrollment) -> {
+            enrollment.pending.remove(matricule);
+            return enrollment;
+        });
+    }
+
+    /**
+     * Libère une place réservée, par exemple lorsque l'écriture de
+     * l'inscription a échoué ou que l'inscription a été annulée.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     */
+    public void release(String session, String code, String matricule) {
+        enrollments.computeIfPresent(new CourseKey(session, code), (k, enrollment) -> {
+            enrollment.students.remove(matricule);
+            enrollment.pending.remove(matricule);
+            return enrollment;
+        });
+    }
+
+    /**
+     * @param session La session du cours
+     * @param code    Le code du cours
+     * @return Le nombre d'étudiants inscrits au cours
+     */
+    public int getEnrollment(String session, String code) {
+        Enrollment enrollment = enrollments.get(new CourseKey(session, code));
+        return enrollment != null ? enrollment.students.size() : 0;
+    }
+
+    /**
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     * @return {@code true} si l'étudiant est inscrit au cours
+     */
+    public boolean isRegistered(String session, String code, String matricule) {
+        Enrollment enrollment = enrollments.get(new CourseKey(session, code));
+        return enrollment != null && enrollment.students.contains(matricule);
+    }
+
+    /**
+     * Les étudiants inscrits à un cours, et parmi eux ceux dont l'inscription
+     * ou l'annulation attend d'être écrite dans le journal. Les ensembles ne
+     * sont modifiés que dans un {@code compute} de la table.
+     */
+    private static class Enrollment {
+        private final Set<String> students = ConcurrentHashMap.newKeySet();
+        private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Clé d'un cours dans une session.
+     */
+    private static class CourseKey {
+        private final String session;
+        private final String code;
+
+        private CourseKey(String session, String code) {
+            this.session = session;
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CourseKey)) {
+                return false;
+            }
+            CourseKey other = (CourseKey) o;
+            return session.equals(other.session) && code.equals(other.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * session.hashCode() + code.hashCode();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package server.registration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import server.logging.Log;
+import server.logging.Logger;
+import server.models.RegistrationForm;
+
+/**
+ * La classe RegistrationJournal ajoute les inscriptions et leurs annulations à
+ * un {@link RegistrationStore} par lots (« group commit »).
+ *
+ * Les fils qui traitent les requêtes ne touchent pas au support: ils déposent
+ * leur opération encodée dans une file et reçoivent un
+ * {@code CompletableFuture}. Un seul fil d'écriture regroupe les opérations en
+ * attente, les écrit en une opération, force au besoin leur écriture sur le
+ * disque, puis complète les futurs du lot. Un client ne reçoit donc sa
+ * confirmation qu'une fois son inscription durable, et les écritures de
+ * plusieurs clients ne peuvent plus s'entremêler.
+ *
+ * Le dépôt d'une opération et la fermeture du journal sont exclus l'un de
+ * l'autre par un verrou en lecture et écriture: une opération déposée avant
+ * la fermeture est écrite par le fil d'écriture avant qu'il s'arrête, et une
+ * opération déposée après est refusée. Aucun futur ne reste sans réponse.
+ */
+public class RegistrationJournal implements Closeable {
+
+    public final static int DEFAULT_BATCH_SIZE = 256;
+    public final static long DEFAULT_LINGER = 2;
+
+    private final static long POLL_TIMEOUT = 100;
+    private final static Logger LOG = Log.getLogger(RegistrationJournal.class);
+
+    private final RegistrationStore store;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    /**
+     * Constructeur de la classe {@code RegistrationJournal}.
+     * Ouvre le fichier texte des inscriptions en ajout et démarre le fil
+     * d'écriture.
+     *
+     * @param path      Le chemin du fichier des inscriptions
+     * @param batchSize Le nombre maximal d'inscriptions écrites en un lot
+     * @param linger    Le délai, en millisecondes, pendant lequel le fil
+     *                  d'écriture attend d'autres inscriptions avant d'écrire un
+     *                  lot incomplet
+     * @param force     {@code true} pour forcer l'écriture sur le disque à
+     *                  chaque lot
+     * @throws IOException Si une erreur se produit lors de l'ouverture du fichier
+     */
+    public RegistrationJournal(Path path, int batchSize, long linger, boolean force) throws IOException {
+        this(new TextRegistrationStore(path, force), batchSize, linger);
+    }
+
+    /**
+     * Constructeur de la classe {@code RegistrationJournal}.
+     * Démarre le fil d'écriture sur un support déjà ouvert, que le journal
+     * fermera.
+     *
+     * @param store     Le support des inscriptions
+     * @param batchSize Le nombre maximal d'opérations écrites en un lot
+     * @param linger    Le délai, en millisecondes, pendant lequel le fil
+     *                  d'écriture attend d'autres opérations avant d'écrire un
+     *                  lot incomplet
+     */
+    public RegistrationJournal(RegistrationStore store, int batchSize, long linger) {
+        this.store = store;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(linger);
+        this.writer = new Thread(this::run, "registration-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return {@code true} si les lots doivent être forcés sur le disque, selon
+     *         la propriété système {@code server.journal.force}
+     */
+    public static boolean forceFromSystemProperties() {
+        return Boolean.parseBoolean(System.getProperty("server.journal.force", "true"));
+    }
+
+    /**
+     * Crée un journal sur un support, configuré par les propriétés système
+     * {@code server.journal.batchSize} et {@code server.journal.linger}.
+     *
+     * @param store Le support des inscriptions
+     * @return Le journal démarré
+     */
+    public static RegistrationJournal fromSystemProperties(RegistrationStore store) {
+        return new RegistrationJournal(store,
+                Integer.getInteger("server.journal.batchSize", DEFAULT_BATCH_SIZE),
+                Long.getLong("server.journal.linger", DEFAULT_LINGER));
+    }
+
+    /**
+     * Formate une inscription comme une ligne du fichier texte des
+     * inscriptions.
+     *
+     * @param form Le formulaire d'inscription
+     * @return La ligne à écrire, fin de ligne comprise
+     * @see TextRegistrationStore#format(RegistrationForm)
+     */
+    public static String format(RegistrationForm form) {
+        return TextRegistrationStore.format(form);
+    }
+
+    /**
+     * Dépose une inscription dans la file du journal.
+     *
+     * @param form Le formulaire d'inscription
+     * @return Un futur complété lorsque le lot qui contient l'inscription est
+     *         écrit, ou en erreur si l'écriture a échoué
+     */
+    public CompletableFuture<Void> append(RegistrationForm form) {
+        try {
+            return enqueue(new Pending(store.encodeRegistration(form)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Dépose plusieurs inscriptions dans la file du journal comme une seule
+     * entrée: leurs lignes sont toujours écrites ensemble, dans la même
+     * opération, et partagent le même futur.
+     *
+     * @param forms Les formulaires d'inscription
+     * @return Un futur complété lorsque le lot qui contient les inscriptions est
+     *         écrit, ou en erreur si l'écriture a échoué
+     */
+    public CompletableFuture<Void> append(List<RegistrationForm> forms) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            for (RegistrationForm form : forms) {
+                records.writeBytes(store.encodeRegistration(form));
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return enqueue(new Pending(records.toByteArray()));
+    }
+
+    /**
+     * Dépose l'annulation d'une inscription dans la file du journal.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     * @return Un futur complété lorsque le lot qui contient l'annulation est
+     *         écrit, ou en erreur si l'écriture a échoué ou si le support ne
+     *         prend pas en charge les annulations
+     */
+    public CompletableFuture<Void> cancel(String session, String code, String matricule) {
+        try {
+            return enqueue(new Pending(store.encodeCancellation(session, code, matricule)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        closing.readLock().lock();
+        try {
+            if (!running) {
+                pending.done.completeExceptionally(new IOException("Le journal des inscriptions est fermé."));
+                return pending.done;
+            }
+            queue.add(pending);
+            return pending.done;
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Le nombre d'inscriptions en attente d'écriture
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Boucle du fil d'écriture: forme un lot dès qu'une inscription arrive, le
+     * complète pendant au plus le délai d'attente, puis l'écrit.
+     */
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Écrit un lot en une seule opération puis complète ses futurs.
+     *
+     * @param batch Les inscriptions du lot
+     */
+    private void commit(List<Pending> batch) {
+        int size = 0;
+        for (Pending pending : batch) {
+            size += pending.line.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Pending pending : batch) {
+            buffer.put(pending.line);
+        }
+        buffer.flip();
+
+        try {
+            store.write(buffer);
+            for (Pending pending : batch) {
+                pending.done.complete(null);
+            }
+        } catch (IOException e) {
+            LOG.error("Erreur lors de l'écriture d'un lot d'inscriptions", e, "batch", batch.size());
+            for (Pending pending : batch) {
+                pending.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Refuse les nouvelles inscriptions, écrit celles qui sont en attente puis
+     * ferme le support.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        closing.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new IOException("Le journal des inscriptions est fermé."));
+        }
+        store.close();
+    }
+
+    private static class Pending {
+        private final byte[] line;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(byte[] line) {
+            this.line = line;
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package server.registration;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import server.logging.Log;
+import server.logging.Logger;
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * La classe RegistrationLog enregistre les inscriptions et leurs annulations
+ * dans un journal binaire en ajout seulement, découpé en segments.
+ *
+ * Chaque enregistrement commence par la longueur de son corps et la somme de
+ * contrôle CRC-32 de ce corps, sur quatre octets chacune; le corps contient le
+ * type de l'opération puis ses champs. Les enregistrements sont écrits à la
+ * suite dans le segment actif, {@code segment-N.log}; lorsqu'il dépasse la
+ * taille prévue, le segment est scellé et le suivant est ouvert.
+ *
+ * Un lot dont l'écriture échoue est retiré du segment actif, qui retrouve sa
+ * taille d'avant le lot: les lots suivants ne sont jamais écrits après des
+ * octets invalides. Si ce retrait échoue lui aussi, le journal refuse toute
+ * nouvelle écriture.
+ *
+ * Au démarrage, le dernier instantané puis les segments qui le suivent sont
+ * relus dans l'ordre pour reconstruire l'état. Un enregistrement incomplet ou
+ * dont la somme de contrôle est fausse à la fin du dernier segment, sans aucun
+ * enregistrement valide après lui, provient d'une écriture interrompue: le
+ * segment est tronqué juste avant lui. Ailleurs, une telle erreur empêche le
+ * démarrage plutôt que de perdre des inscriptions.
+ *
+ * Dès que plusieurs segments sont scellés, un fil en arrière-plan les fusionne
+ * avec l'instantané précédent en un nouvel instantané,
+ * {@code snapshot-N.snap}, qui ne contient que les inscriptions encore
+ * valides; les segments fusionnés sont ensuite supprimés. Le démarrage ne
+ * relit donc jamais plus que l'instantané et quelques segments.
+ */
+public class RegistrationLog implements RegistrationStore {
+
+    /**
+     * Reçoit les opérations relues du journal, dans l'ordre où elles ont été
+     * écrites.
+     */
+    public interface Replay {
+        void registered(RegistrationForm form);
+
+        void cancelled(String session, String code, String matricule);
+    }
+
+    public final static long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public final static int DEFAULT_COMPACTION_THRESHOLD = 4;
+
+    final static byte REGISTER = 1;
+    final static byte CANCEL = 2;
+
+    private final static int HEADER_LENGTH = 8;
+    private final static int MAX_RECORD_LENGTH = 1024 * 1024;
+    private final static String SEGMENT_PREFIX = "segment-";
+    private final static String SEGMENT_SUFFIX = ".log";
+    private final static String SNAPSHOT_PREFIX = "snapshot-";
+    private final static String SNAPSHOT_SUFFIX = ".snap";
+    private final static String TEMP_SUFFIX = ".tmp";
+    private final static Logger LOG = Log.getLogger(RegistrationLog.class);
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean force;
+    private final int compactionThreshold;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private FileChannel active;
+    private long activeId;
+    private long activeSize;
+    private volatile long snapshotId;
+    private boolean empty;
+    private IOException failure;
+
+    private RegistrationLog(Path directory, long segmentSize, boolean force, int compactionThreshold) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.force = force;
+        this.compactionThreshold = compactionThreshold;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "registration-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ouvre le journal d'un répertoire en relisant son contenu.
+     *
+     * @param directory           Le répertoire des segments et des instantanés,
+     *                            créé au besoin
+     * @param segmentSize         La taille, en octets, à partir de laquelle le
+     *                            segment actif est scellé
+     * @param force               {@code true} pour forcer l'écriture sur le
+     *                            disque à chaque lot
+     * @param compactionThreshold Le nombre de segments scellés qui déclenche la
+     *                            création d'un instantané
+     * @param replay              Reçoit les opérations relues
+     * @return Le journal ouvert, prêt à recevoir de nouvelles opérations
+     * @throws IOException Si le journal est illisible ou corrompu ailleurs qu'à
+     *                     la fin du dernier segment
+     */
+    public static RegistrationLog open(Path directory, long segmentSize, boolean force, int compactionThreshold,
+            Replay replay) throws IOException {
+        Files.createDirectories(directory);
+        RegistrationLog log = new RegistrationLog(directory, segmentSize, force, compactionThreshold);
+        log.recover(replay);
+        return log;
+    }
+
+    /**
+     * Ouvre le journal d'un répertoire configuré par les propriétés système
+     * {@code server.registration.segmentSize},
+     * {@code server.registration.compactAfter} et {@code server.journal.force}.
+     *
+     * @param directory Le répertoire des segments et des instantanés
+     * @param replay    Reçoit les opérations relues
+     * @return Le journal ouvert
+     * @throws IOException Si le journal est illisible ou corrompu
+     */
+    public static RegistrationLog fromSystemProperties(Path directory, Replay replay) throws IOException {
+        return open(directory,
+                Long.getLong("server.registration.segmentSize", DEFAULT_SEGMENT_SIZE),
+                RegistrationJournal.forceFromSystemProperties(),
+                Integer.getInteger("server.registration.compactAfter", DEFAULT_COMPACTION_THRESHOLD),
+                replay);
+    }
+
+    /**
+     * @return {@code true} si le journal ne contenait aucune opération à
+     *         l'ouverture
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Importe les inscriptions du fichier texte historique dans un journal
+     * vide. Les lignes mal formées sont ignorées. Doit être appelée avant de
+     * confier le journal à un {@link RegistrationJournal}.
+     *
+     * @param text   Le fichier texte des inscriptions
+     * @param replay Reçoit les inscriptions importées
+     * @return Le nombre d'inscriptions importées
+     * @throws IOException Si une erreur se produit lors de la lecture ou de
+     *                     l'écriture
+     */
+    public int importText(Path text, Replay replay) throws IOException {
+        List<RegistrationForm> forms = new ArrayList<>();
+        TextRegistrationStore.replay(text, new Replay() {
+            @Override
+            public void registered(RegistrationForm form) {
+                forms.add(form);
+                replay.registered(form);
+            }
+
+            @Override
+            public void cancelled(String session, String code, String matricule) {
+                replay.cancelled(session, code, matricule);
+            }
+        });
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (RegistrationForm form : forms) {
+            records.writeBytes(encodeRegistration(form));
+        }
+        ByteBuffer batch = ByteBuffer.wrap(records.toByteArray());
+        while (batch.hasRemaining()) {
+            active.write(batch);
+        }
+        active.force(false);
+        activeSize = active.size();
+        return forms.size();
+    }
+
+    @Override
+    public byte[] encodeRegistration(RegistrationForm form) throws IOException {
+        Course course = form.getCourse();
+        return encode(REGISTER, course.getSession(), course.getCode(), form.getMatricule(), form.getPrenom(),
+                form.getNom(), form.getEmail());
+    }
+
+    @Override
+    public byte[] encodeCancellation(String session, String code, String matricule) throws IOException {
+        return encode(CANCEL, session, code, matricule);
+    }
+
+    /**
+     * Écrit un lot d'enregistrements à la fin du segment actif. Si l'écriture
+     * échoue, le segment est ramené à sa taille d'avant le lot.
+     *
+     * @param batch Les enregistrements du lot
+     * @throws IOException Si le lot n'a pas pu être écrit; aucune de ses
+     *                     opérations n'est alors conservée
+     */
+    @Override
+    public void write(ByteBuffer batch) throws IOException {
+        if (failure != null) {
+            throw new IOException("Le journal des inscriptions refuse les écritures après un échec.", failure);
+        }
+        long start = activeSize;
+        try {
+            while (batch.hasRemaining()) {
+                active.write(batch);
+            }
+            if (force) {
+                active.force(false);
+            }
+        } catch (IOException e) {
+            rollBack(start, e);
+            throw e;
+        }
+        activeSize = active.position();
+        if (activeSize >= segmentSize) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                // le lot est écrit; seul le passage au segment suivant a échoué
+                LOG.error("Erreur lors du passage au segment suivant", e, "segment", activeId);
+            }
+        }
+    }
+
+    /**
+     * Retire du segment actif la partie écrite d'un lot qui a échoué.
+     */
+    private void rollBack(long start, IOException cause) {
+        try {
+            active.truncate(start);
+            active.position(start);
+            if (force) {
+                active.force(false);
+            }
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+            LOG.error("Le segment actif n'a pas pu être rétabli après un échec d'écriture", e, "segment", activeId,
+                    "position", start);
+        }
+    }
+
+    /**
+     * Attend la fin d'une création d'instantané en cours puis ferme le segment
+     * actif.
+     *
+     * @throws IOException Si une erreur se produit lors de la fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        active.force(false);
+        active.close();
+    }
+
+    /**
+     * Relit le dernier instantané et les segments qui le suivent, tronque la
+     * fin du dernier segment si elle est incomplète, puis ouvre le segment
+     * actif.
+     */
+    private void recover(Replay replay) throws IOException {
+        List<Long> snapshots = new ArrayList<>();
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                    snapshots.add(parseId(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX));
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(parseId(name, SEGMENT_PREFIX, SEGMENT_SUFFIX));
+                }
+            }
+        }
+        Collections.sort(snapshots);
+        Collections.sort(segments);
+
+        empty = true;
+        if (!snapshots.isEmpty()) {
+            snapshotId = snapshots.get(snapshots.size() - 1);
+            Path snapshot = snapshotPath(snapshotId);
+            if (replay(snapshot, replay) != Files.size(snapshot)) {
+                throw new IOException("Instantané des inscriptions corrompu: " + snapshot);
+            }
+            empty = false;
+            for (long older : snapshots.subList(0, snapshots.size() - 1)) {
+                Files.delete(snapshotPath(older));
+            }
+        }
+
+        List<Long> remaining = new ArrayList<>();
+        for (long id : segments) {
+            if (id <= snapshotId) {
+                // déjà fusionné dans l'instantané; la suppression a été interrompue
+                Files.delete(segmentPath(id));
+            } else {
+                remaining.add(id);
+            }
+        }
+        for (int i = 0; i < remaining.size(); i++) {
+            Path segment = segmentPath(remaining.get(i));
+            long size = Files.size(segment);
+            long valid = replay(segment, replay);
+            if (valid > 0) {
+                empty = false;
+            }
+            if (valid < size) {
+                if (i < remaining.size() - 1 || hasRecordAfter(segment, valid)) {
+                    throw new IOException("Segment des inscriptions corrompu à la position " + valid + ": " + segment);
+                }
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(true);
+                }
+                LOG.warn("Fin de segment incomplète tronquée", "segment", segment.getFileName(), "position", valid,
+                        "bytes", size - valid);
+            }
+        }
+
+        activeId = remaining.isEmpty() ? snapshotId + 1 : remaining.get(remaining.size() - 1);
+        active = FileChannel.open(segmentPath(activeId), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        activeSize = active.size();
+        active.position(activeSize);
+        LOG.info("Journal des inscriptions ouvert", "snapshot", snapshotId, "segments", remaining.size(),
+                "active", activeId);
+        maybeCompact();
+    }
+
+    /**
+     * Cherche un enregistrement valide après une position où la relecture
+     * s'est arrêtée. S'il y en a un, les octets invalides ne sont pas la fin
+     * d'une écriture interrompue et tronquer le segment perdrait des
+     * inscriptions.
+     *
+     * @param segment  Le segment relu
+     * @param position La position du premier enregistrement invalide
+     * @return {@code true} si un enregistrement complet, de somme de contrôle
+     *         exacte, commence après cette position
+     */
+    static boolean hasRecordAfter(Path segment, long position) throws IOException {
+        byte[] tail;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - position));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            tail = buffer.array();
+        }
+        ByteBuffer fields = ByteBuffer.wrap(tail);
+        CRC32 crc = new CRC32();
+        for (int offset = 1; offset + HEADER_LENGTH < tail.length; offset++) {
+            int length = fields.getInt(offset);
+            if (length <= 0 || length > MAX_RECORD_LENGTH || length > tail.length - offset - HEADER_LENGTH) {
+                continue;
+            }
+            crc.reset();
+            crc.update(tail, offset + HEADER_LENGTH, length);
+            if ((int) crc.getValue() == fields.getInt(offset + 4)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scelle le segment actif et ouvre le suivant. Le segment suivant est
+     * ouvert d'abord: en cas d'échec, le segment actif reste utilisable.
+     */
+    private void rotate() throws IOException {
+        FileChannel next = FileChannel.open(segmentPath(activeId + 1), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileChannel sealed = active;
+        active = next;
+        activeId++;
+        activeSize = 0;
+        try {
+            sealed.force(false);
+        } finally {
+            sealed.close();
+        }
+        maybeCompact();
+    }
+
+    /**
+     * Lance la création d'un instantané en arrière-plan si assez de segments
+     * sont scellés et qu'aucune création n'est en cours.
+     */
+    private void maybeCompact() {
+        long sealed = activeId - 1;
+        if (sealed - snapshotId >= compactionThreshold && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact(sealed);
+                } catch (IOException e) {
+                    LOG.error("Erreur lors de la création d'un instantané des inscriptions", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Fusionne l'instantané courant et les segments scellés jusqu'à
+     * {@code upTo} en un nouvel instantané, puis supprime les fichiers
+     * fusionnés. L'instantané est écrit dans un fichier temporaire, forcé sur le
+     * disque puis renommé: un arrêt brutal laisse toujours l'ancien ou le
+     * nouvel instantané complet.
+     *
+     * @param upTo Le dernier segment scellé à fusionner
+     */
+    void compact(long upTo) throws IOException {
+        long previous = snapshotId;
+        Map<String, RegistrationForm> live = new LinkedHashMap<>();
+        Replay collector = new Replay() {
+            @Override
+            public void registered(RegistrationForm form) {
+                live.put(key(form.getCourse().getSession(), form.getCourse().getCode(), form.getMatricule()), form);
+            }
+
+            @Override
+            public void cancelled(String session, String code, String matricule) {
+                live.remove(key(session, code, matricule));
+            }
+        };
+        if (previous > 0) {
+            replay(snapshotPath(previous), collector);
+        }
+        for (long id = previous + 1; id <= upTo; id++) {
+            replay(segmentPath(id), collector);
+        }
+
+        Path temp = directory.resolve(SNAPSHOT_PREFIX + upTo + TEMP_SUFFIX);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            for (RegistrationForm form : live.values()) {
+                chunk.writeBytes(encodeRegistration(form));
+                if (chunk.size() >= 64 * 1024) {
+                    writeFully(out, chunk);
+                }
+            }
+            writeFully(out, chunk);
+            out.force(true);
+        }
+        Files.move(temp, snapshotPath(upTo), StandardCopyOption.ATOMIC_MOVE);
+        snapshotId = upTo;
+
+        if (previous > 0) {
+            Files.deleteIfExists(snapshotPath(previous));
+        }
+        for (long id = previous + 1; id <= upTo; id++) {
+            Files.deleteIfExists(segmentPath(id));
+        }
+        LOG.info("Instantané des inscriptions créé", "snapshot", upTo, "registrations", live.size());
+    }
+
+    private static void writeFully(FileChannel out, ByteArrayOutputStream chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk.toByteArray());
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        chunk.reset();
+    }
+
+    /**
+     * Relit les enregistrements d'un fichier jusqu'au premier enregistrement
+     * incomplet ou invalide.
+     *
+     * @param file   Le segment ou l'instantané à relire
+     * @param replay Reçoit les opérations relues
+     * @return La position qui suit le dernier enregistrement valide
+     */
+    static long replay(Path file, Replay replay) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            return replay(in, replay);
+        }
+    }
+
+    static long replay(InputStream input, Replay replay) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        CRC32 crc = new CRC32();
+        byte[] header = new byte[HEADER_LENGTH];
+        long position = 0;
+        while (true) {
+            int read = in.readNBytes(header, 0, HEADER_LENGTH);
+            if (read < HEADER_LENGTH) {
+                return position;
+            }
+            ByteBuffer fields = ByteBuffer.wrap(header);
+            int length = fields.getInt();
+            int checksum = fields.getInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return position;
+            }
+            byte[] body = new byte[length];
+            if (in.readNBytes(body, 0, length) < length) {
+                return position;
+            }
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return position;
+            }
+            try {
+                decode(body, replay);
+            } catch (EOFException e) {
+                return position;
+            }
+            position += HEADER_LENGTH + length;
+        }
+    }
+
+    private static void decode(byte[] body, Replay replay) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        String session = in.readUTF();
+        String code = in.readUTF();
+        String matricule = in.readUTF();
+        if (type == REGISTER) {
+            String prenom = in.readUTF();
+            String nom = in.readUTF();
+            String email = in.readUTF();
+            replay.registered(new RegistrationForm(prenom, nom, email, matricule, new Course("", code, session)));
+        } else if (type == CANCEL) {
+            replay.cancelled(session, code, matricule);
+        } else {
+            throw new IOException("Type d'enregistrement inconnu: " + type);
+        }
+    }
+
+    /**
+     * Encode un enregistrement: longueur du corps, somme de contrôle du corps,
+     * puis le corps (type et champs en UTF-8 modifié).
+     */
+    static byte[] encode(byte type, String... fields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeByte(type);
+        for (String field : fields) {
+            out.writeUTF(field != null ? field : "");
+        }
+        out.flush();
+
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_LENGTH;
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_LENGTH, length);
+        ByteBuffer header = ByteBuffer.wrap(record, 0, HEADER_LENGTH);
+        header.putInt(length);
+        header.putInt((int) crc.getValue());
+        return record;
+    }
+
+    private static String key(String session, String code, String matricule) {
+        return session + '\t' + code + '\t' + matricule;
+    }
+
+    private static long parseId(String name, String prefix, String suffix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, id, SNAPSHOT_SUFFIX));
+    }
+}
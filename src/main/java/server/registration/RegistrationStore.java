@@ -0,0 +1,47 @@
+package server.registration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import server.models.RegistrationForm;
+
+/**
+ * Le support sur lequel le {@link RegistrationJournal} écrit les inscriptions.
+ *
+ * Le journal encode chaque opération dans le fil qui la demande, regroupe les
+ * octets de plusieurs opérations, puis les confie au support en un seul appel
+ * à {@link #write(ByteBuffer)} depuis son fil d'écriture. Le support n'est
+ * donc jamais écrit par deux fils à la fois.
+ */
+public interface RegistrationStore extends Closeable {
+
+    /**
+     * Encode une inscription.
+     *
+     * @param form Le formulaire d'inscription
+     * @return Les octets à écrire
+     * @throws IOException Si l'inscription ne peut pas être encodée
+     */
+    byte[] encodeRegistration(RegistrationForm form) throws IOException;
+
+    /**
+     * Encode l'annulation d'une inscription.
+     *
+     * @param session   La session du cours
+     * @param code      Le code du cours
+     * @param matricule Le matricule de l'étudiant
+     * @return Les octets à écrire
+     * @throws IOException Si le support ne prend pas en charge les annulations
+     */
+    byte[] encodeCancellation(String session, String code, String matricule) throws IOException;
+
+    /**
+     * Écrit un lot d'opérations encodées. Au retour, le lot est écrit, et
+     * forcé sur le disque si le support est configuré pour le faire.
+     *
+     * @param batch Les octets du lot
+     * @throws IOException Si une erreur se produit lors de l'écriture
+     */
+    void write(ByteBuffer batch) throws IOException;
+}
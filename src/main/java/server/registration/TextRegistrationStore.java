@@ -0,0 +1,107 @@
+package server.registration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+/**
+ * Le fichier texte historique des inscriptions, {@code inscription.txt}: une
+ * ligne par inscription, champs séparés par des tabulations. Ce format n'a ni
+ * somme de contrôle ni annulation; il reste disponible avec la propriété
+ * système {@code server.registration.store=texte}.
+ */
+public class TextRegistrationStore implements RegistrationStore {
+
+    private final FileChannel channel;
+    private final boolean force;
+
+    /**
+     * Ouvre le fichier en ajout.
+     *
+     * @param path  Le chemin du fichier des inscriptions
+     * @param force {@code true} pour forcer l'écriture sur le disque à chaque
+     *              lot
+     * @throws IOException Si une erreur se produit lors de l'ouverture du fichier
+     */
+    public TextRegistrationStore(Path path, boolean force) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.force = force;
+    }
+
+    /**
+     * Formate une inscription comme une ligne du fichier des inscriptions:
+     * session, code du cours, matricule, prénom, nom et courriel séparés par des
+     * tabulations.
+     *
+     * @param form Le formulaire d'inscription
+     * @return La ligne à écrire, fin de ligne comprise
+     */
+    public static String format(RegistrationForm form) {
+        return String.format("%s\t%s\t%s\t%s\t%s\t%s%n", form.getCourse().getSession(),
+                form.getCourse().getCode(), form.getMatricule(), form.getPrenom(), form.getNom(),
+                form.getEmail());
+    }
+
+    /**
+     * Relit les inscriptions d'un fichier texte. Les lignes mal formées sont
+     * ignorées.
+     *
+     * @param path   Le chemin du fichier des inscriptions
+     * @param replay Reçoit chaque inscription relue
+     * @return Le nombre d'inscriptions relues, ou {@code 0} si le fichier
+     *         n'existe pas
+     * @throws IOException Si une erreur se produit lors de la lecture du fichier
+     */
+    public static int replay(Path path, RegistrationLog.Replay replay) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 6) {
+                    replay.registered(new RegistrationForm(parts[3], parts[4], parts[5], parts[2],
+                            new Course("", parts[1], parts[0])));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public byte[] encodeRegistration(RegistrationForm form) {
+        return format(form).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] encodeCancellation(String session, String code, String matricule) throws IOException {
+        throw new IOException("Le fichier texte des inscriptions ne prend pas en charge les annulations.");
+    }
+
+    @Override
+    public void write(ByteBuffer batch) throws IOException {
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,65 @@
+package client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.Server;
+import server.models.Course;
+import server.models.RegistrationForm;
+
+public class ServerConnectionTest
+{
+    private final static int IDLE_TIMEOUT = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Server server;
+
+    @Before
+    public void startServer() throws Exception
+    {
+        System.setProperty("server.registration.dir", folder.newFolder("inscriptions").toString());
+        server = new Server(0, Server.DEFAULT_BACKLOG, 2, IDLE_TIMEOUT, Server.Engine.BLOCKING);
+        server.start();
+    }
+
+    @After
+    public void stopServer()
+    {
+        server.stop(5000);
+        System.clearProperty("server.registration.dir");
+    }
+
+    @Test
+    public void onlyReadsAreReplayedAfterTheServerClosedTheConnection() throws Exception
+    {
+        RegistrationForm form = new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", "12345678",
+                new Course("Programmation1", "IFT1015", "Automne"));
+        try (ServerConnection client = ServerConnection.open("localhost", server.getPort(), 5000)) {
+            Thread.sleep(IDLE_TIMEOUT * 5);
+            assertFalse(client.loadCourses("Automne").isEmpty());
+
+            Thread.sleep(IDLE_TIMEOUT * 5);
+            try {
+                client.registerForCourse(form);
+                fail("L'inscription n'aurait pas dû être renvoyée");
+            } catch (IOException e) {
+                // attendu: le serveur avait fermé la connexion inactive
+            }
+            assertEquals(0, server.getRegistrations().getEnrollment("Automne", "IFT1015"));
+
+            client.registerForCourse(form);
+            assertEquals(1, server.getRegistrations().getEnrollment("Automne", "IFT1015"));
+        }
+    }
+}
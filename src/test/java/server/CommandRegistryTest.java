@@ -0,0 +1,80 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CommandRegistryTest
+{
+    @Test
+    public void dispatchesEachCommandToItsOwnHandler() throws Exception
+    {
+        CommandRegistry registry = new CommandRegistry();
+        List<String> calls = new ArrayList<>();
+        registry.register("CHARGER", (connection, cmd, arg) -> calls.add("charger " + arg));
+        registry.register("INSCRIRE", (connection, cmd, arg) -> calls.add("inscrire"));
+
+        assertTrue(registry.dispatch(null, "CHARGER", "Automne"));
+        assertFalse(registry.dispatch(null, "INCONNUE", ""));
+        assertEquals(List.of("charger Automne"), calls);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesASecondHandlerForTheSameCommand()
+    {
+        CommandRegistry registry = new CommandRegistry();
+        registry.register("CHARGER", (connection, cmd, arg) -> {
+        });
+        registry.register("CHARGER", (connection, cmd, arg) -> {
+        });
+    }
+
+    @Test
+    public void interceptorsWrapTheHandlerAndCanStopIt() throws Exception
+    {
+        CommandRegistry registry = new CommandRegistry();
+        List<String> calls = new ArrayList<>();
+        registry.register("INSCRIRE", (connection, cmd, arg) -> calls.add("handler"));
+        registry.addInterceptor(new Recorder("a", calls, true));
+        registry.addInterceptor(new Recorder("b", calls, true));
+        registry.dispatch(null, "INSCRIRE", "");
+        assertEquals(List.of("before a", "before b", "handler", "after b", "after a"), calls);
+
+        calls.clear();
+        registry.addInterceptor(new Recorder("c", calls, false));
+        assertTrue(registry.dispatch(null, "INSCRIRE", ""));
+        assertEquals(List.of("before a", "before b", "before c", "refused c", "refused b", "refused a"), calls);
+    }
+
+    private static class Recorder implements CommandRegistry.Interceptor
+    {
+        private final String name;
+        private final List<String> calls;
+        private final boolean proceed;
+
+        private Recorder(String name, List<String> calls, boolean proceed)
+        {
+            this.name = name;
+            this.calls = calls;
+            this.proceed = proceed;
+        }
+
+        @Override
+        public boolean before(ClientConnection connection, String cmd, String arg)
+        {
+            calls.add("before " + name);
+            return proceed;
+        }
+
+        @Override
+        public void after(ClientConnection connection, String cmd, String arg, boolean handled, long elapsed)
+        {
+            calls.add((handled ? "after " : "refused ") + name);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import client.ServerConnection;
+import server.models.Course;
+import server.models.RegistrationForm;
+import server.registration.RegistrationLog;
+
+public class ServerLifecycleTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clearRegistrationDir()
+    {
+        System.clearProperty("server.registration.dir");
+    }
+
+    @Test
+    public void blockingEngineDrainsIdleConnectionsAndFlushesRegistrations() throws Exception
+    {
+        stopWhileAClientIsConnected(Server.Engine.BLOCKING);
+    }
+
+    @Test
+    public void nioEngineDrainsIdleConnectionsAndFlushesRegistrations() throws Exception
+    {
+        stopWhileAClientIsConnected(Server.Engine.NIO);
+    }
+
+    private void stopWhileAClientIsConnected(Server.Engine engine) throws Exception
+    {
+        Path dir = folder.newFolder("inscriptions").toPath();
+        System.setProperty("server.registration.dir", dir.toString());
+        Server server = new Server(0, Server.DEFAULT_BACKLOG, 2, Server.DEFAULT_IDLE_TIMEOUT, engine);
+        server.start();
+        long version = server.getCatalogVersion();
+        assertEquals(version + 1, server.reloadCatalog());
+
+        try (ServerConnection client = ServerConnection.open("localhost", server.getPort(), 5000)) {
+            client.registerForCourse(new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", "12345678",
+                    new Course("Programmation1", "IFT1015", "Automne")));
+
+            // la connexion reste ouverte et inactive: l'arrêt ne doit pas attendre l'échéance
+            long start = System.nanoTime();
+            assertTrue(server.stop(10000));
+            assertTrue(System.nanoTime() - start < 5_000_000_000L);
+            assertTrue(server.isStopped());
+        }
+
+        List<String> replayed = new ArrayList<>();
+        RegistrationLog.open(dir, 1024 * 1024, false, 4, new RegistrationLog.Replay() {
+            @Override
+            public void registered(RegistrationForm form)
+            {
+                replayed.add(form.getMatricule() + " " + form.getCourse().getCode());
+            }
+
+            @Override
+            public void cancelled(String session, String code, String matricule)
+            {
+            }
+        }).close();
+        assertTrue(replayed.contains("12345678 IFT1015"));
+        assertEquals(replayed.size(), replayed.stream().distinct().count());
+    }
+}
@@ -0,0 +1,114 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.metrics.CommandMetrics;
+import server.models.Course;
+import server.models.RegistrationForm;
+
+public class ServerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Server server;
+
+    @Before
+    public void startServer() throws Exception
+    {
+        System.setProperty("server.registration.dir", folder.newFolder("inscriptions").toString());
+        server = new Server(0, Server.DEFAULT_BACKLOG, 2, Server.DEFAULT_IDLE_TIMEOUT, Server.Engine.BLOCKING);
+        server.start();
+    }
+
+    @After
+    public void stopServer()
+    {
+        server.stop(5000);
+        System.clearProperty("server.registration.dir");
+    }
+
+    @Test
+    public void unreadableRegistrationIsAnsweredWithAnError() throws Exception
+    {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(10000);
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.writeObject(Server.REGISTER_COMMAND);
+            out.writeObject("pas un formulaire");
+            out.flush();
+
+            ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+            assertTrue(((String) in.readObject()).startsWith("Erreur"));
+
+            out.writeObject(Server.LOAD_COMMAND + " Automne");
+            out.flush();
+            assertFalse(((List<?>) in.readObject()).isEmpty());
+        }
+    }
+
+    @Test
+    public void coursesMissingFromTheCatalogAreRefused() throws Exception
+    {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(10000);
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.writeObject(Server.REGISTER_COMMAND);
+            out.writeObject(new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", "12345678",
+                    new Course("Inconnu", "XYZ9999", "Automne")));
+            out.flush();
+
+            ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+            assertTrue(((String) in.readObject()).startsWith("Erreur"));
+            assertEquals(0, server.getRegistrations().getEnrollment("Automne", "XYZ9999"));
+        }
+    }
+
+    @Test
+    public void objectStreamClientsAreThrottledWithAPlainMessage() throws Exception
+    {
+        System.setProperty("server.admission.clientRate", "0.001");
+        System.setProperty("server.admission.clientBurst", "1");
+        Server throttled = new Server(0, Server.DEFAULT_BACKLOG, 2, Server.DEFAULT_IDLE_TIMEOUT, Server.Engine.BLOCKING);
+        try {
+            throttled.start();
+            try (Socket socket = new Socket("localhost", throttled.getPort())) {
+                socket.setSoTimeout(10000);
+                ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+                out.writeObject(Server.LOAD_COMMAND + " Automne");
+                out.writeObject(Server.LOAD_COMMAND + " Automne");
+                out.flush();
+
+                ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                assertFalse(((List<?>) in.readObject()).isEmpty());
+                assertTrue(((String) in.readObject()).startsWith("Erreur"));
+            }
+
+            // le refus est compté comme un échec, sans durée de traitement
+            CommandMetrics load = throttled.getMetrics().command(Server.LOAD_COMMAND);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (load.getFailures() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, load.getFailures());
+            assertEquals(1, load.getCount());
+        } finally {
+            throttled.stop(5000);
+            System.clearProperty("server.admission.clientRate");
+            System.clearProperty("server.admission.clientBurst");
+        }
+    }
+}
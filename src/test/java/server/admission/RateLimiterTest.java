@@ -0,0 +1,43 @@
+package server.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest
+{
+    private final static long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void allowsABurstThenTheSteadyRate()
+    {
+        RateLimiter limiter = new RateLimiter(2, 3, 100);
+        long now = 1000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        }
+        long wait = limiter.tryAcquire("10.0.0.1", now);
+        assertEquals(SECOND / 2, wait);
+        // les autres clients ont leur propre seau
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", now));
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now + wait));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now + wait) > 0);
+    }
+
+    @Test
+    public void forgetsIdleClientsWhenTheTableIsFull()
+    {
+        RateLimiter limiter = new RateLimiter(1, 1, 2);
+        long now = 1000 * SECOND;
+        limiter.tryAcquire("a", now);
+        limiter.tryAcquire("b", now + SECOND / 2);
+        limiter.tryAcquire("c", now + SECOND);
+        // le seau de « a » s'est rempli et a été retiré; celui de « b » ne l'est pas encore
+        assertEquals(2, limiter.size());
+        assertTrue(limiter.tryAcquire("b", now + SECOND) > 0);
+    }
+}
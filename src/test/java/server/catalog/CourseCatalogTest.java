@@ -0,0 +1,112 @@
+package server.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.models.Course;
+
+public class CourseCatalogTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(File file, String content) throws IOException
+    {
+        return Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void indexesCoursesBySessionAndCode() throws IOException
+    {
+        Path path = write(folder.newFile("cours.txt"),
+                "IFT1015\tProgrammation1\tAutomne\nIFT1025\tProgrammation2\tHiver\n"
+                        + "ligne invalide\nIFT2255\tGenie_Logiciel\tAutomne\n");
+        CourseCatalog catalog = new CourseCatalog(path);
+
+        List<Course> automne = catalog.getCourses("Automne");
+        assertEquals(2, automne.size());
+        assertEquals("IFT1015", automne.get(0).getCode());
+        assertEquals("Programmation1", automne.get(0).getName());
+        assertEquals("IFT2255", automne.get(1).getCode());
+
+        assertEquals("Hiver", catalog.getCoursesByCode("IFT1025").get(0).getSession());
+        assertTrue(catalog.getCourses("Ete").isEmpty());
+        assertEquals("Programmation2", catalog.find("Hiver", "IFT1025").getName());
+        assertNull(catalog.find("Automne", "IFT1025"));
+    }
+
+    @Test
+    public void reloadsWhenFileChanges() throws IOException
+    {
+        Path path = write(folder.newFile("cours.txt"), "IFT1015\tProgrammation1\tAutomne\n");
+        CourseCatalog catalog = new CourseCatalog(path, 0);
+        assertEquals(1, catalog.getCourses("Automne").size());
+
+        write(path.toFile(), "IFT1015\tProgrammation1\tAutomne\nIFT1227\tArchitecture\tAutomne\n");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        assertEquals(2, catalog.getCourses("Automne").size());
+    }
+
+    @Test
+    public void parallelLoadKeepsFileOrder() throws IOException
+    {
+        String[] sessions = { "Automne", "Hiver", "Ete" };
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append("IFT").append(i % 700).append("\tCours ").append(i).append('\t')
+                    .append(sessions[i % 3]).append('\n');
+        }
+        Path path = write(folder.newFile("cours.txt"), content.toString());
+
+        CourseCatalog sequential = new CourseCatalog(path, CourseCatalog.DEFAULT_CHECK_INTERVAL, 1);
+        CourseCatalog parallel = new CourseCatalog(path, CourseCatalog.DEFAULT_CHECK_INTERVAL, 4, 1024);
+        for (String session : sessions) {
+            assertEquals(names(sequential.getCourses(session)), names(parallel.getCourses(session)));
+        }
+        assertEquals(names(sequential.getCoursesByCode("IFT42")), names(parallel.getCoursesByCode("IFT42")));
+        assertEquals(1667, parallel.getCourses("Automne").size());
+    }
+
+    @Test
+    public void sharesCodeAndSessionStrings() throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append("IFT").append(i % 10).append("\tSection ").append(i).append('\t')
+                    .append(i % 2 == 0 ? "Automne" : "Hiver").append('\n');
+        }
+        Path path = write(folder.newFile("cours.txt"), content.toString());
+        CourseCatalog catalog = new CourseCatalog(path, CourseCatalog.DEFAULT_CHECK_INTERVAL, 4, 1024);
+
+        List<Course> automne = catalog.getCourses("Automne");
+        assertSame(automne.get(0).getSession(), automne.get(automne.size() - 1).getSession());
+        List<Course> sections = catalog.getCoursesByCode("IFT3");
+        assertEquals(200, sections.size());
+        assertSame(sections.get(0).getCode(), sections.get(sections.size() - 1).getCode());
+    }
+
+    private static List<String> names(List<Course> courses)
+    {
+        List<String> names = new ArrayList<>();
+        for (Course course : courses) {
+            names.add(course.getName());
+        }
+        return names;
+    }
+}
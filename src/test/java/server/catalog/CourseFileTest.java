@@ -0,0 +1,77 @@
+package server.catalog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.models.Course;
+
+public class CourseFileTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String content) throws IOException
+    {
+        return Files.write(folder.newFile().toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readsOnlyTheRequestedSession() throws IOException
+    {
+        Path path = write("IFT1015\tProgrammation1\tAutomne\r\n"
+                + " IFT1025 \t Programmation 2 \t Hiver \n"
+                + "trop\tde\tchamps\tici\n"
+                + "\n"
+                + "IFT2255\tGénie logiciel\tAutomne");
+
+        List<Course> automne = CourseFile.readSession(path, "Automne");
+        assertEquals(2, automne.size());
+        assertEquals("IFT1015", automne.get(0).getCode());
+        assertEquals("Programmation1", automne.get(0).getName());
+        assertEquals("Génie logiciel", automne.get(1).getName());
+
+        List<Course> hiver = CourseFile.readSession(path, "Hiver");
+        assertEquals(1, hiver.size());
+        assertEquals("IFT1025", hiver.get(0).getCode());
+        assertEquals("Programmation 2", hiver.get(0).getName());
+    }
+
+    @Test
+    public void splitsOnLineBoundaries() throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append("IFT").append(i).append("\tCours ").append(i).append("\tAutomne\n");
+        }
+        Path path = write(content.toString());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = CourseFile.split(channel, 1000);
+            assertEquals(0, bounds[0]);
+            assertEquals(channel.size(), bounds[bounds.length - 1]);
+
+            List<String> codes = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                assertEquals(true, bounds[i + 1] - bounds[i] <= 1000);
+                CourseFile.scan(channel, bounds[i], bounds[i + 1], row -> codes.add(row.code()));
+            }
+            List<String> expected = new ArrayList<>();
+            CourseFile.scan(path, row -> expected.add(row.code()));
+            assertEquals(500, codes.size());
+            assertArrayEquals(expected.toArray(), codes.toArray());
+        }
+    }
+}
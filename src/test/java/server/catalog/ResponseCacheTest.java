@@ -0,0 +1,143 @@
+package server.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.ObjectStreamConnection;
+import server.models.Course;
+import server.models.CoursePage;
+import server.protocol.BinaryCodec;
+import server.protocol.Frame;
+import server.protocol.Protocol;
+import server.protocol.WireFormat;
+
+public class ResponseCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void encodedPayloadIsReadLikeAnyOtherObject() throws Exception
+    {
+        Path path = folder.newFile("cours.txt").toPath();
+        Files.write(path, "IFT1015\tProgrammation1\tAutomne\nIFT2255\tGenie_Logiciel\tAutomne\n"
+                .getBytes(StandardCharsets.UTF_8));
+        ResponseCache cache = new ResponseCache(new CourseCatalog(path));
+        byte[] payload = cache.getEncodedCourses("Automne", WireFormat.OBJECT_STREAM);
+        assertSame(payload, cache.getEncodedCourses("Automne", WireFormat.OBJECT_STREAM));
+
+        try (ServerSocket listener = new ServerSocket(0);
+                Socket socket = new Socket("localhost", listener.getLocalPort())) {
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.flush();
+            Socket accepted = listener.accept();
+            try (ObjectStreamConnection connection = new ObjectStreamConnection(accepted,
+                    accepted.getInputStream(), accepted.getOutputStream())) {
+                ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+
+                connection.writeObject("avant");
+                connection.writeEncoded(payload);
+                connection.writeObject("entre");
+                connection.writeEncoded(payload);
+
+                assertEquals("avant", in.readObject());
+                List<Course> courses = (List<Course>) in.readObject();
+                assertEquals(2, courses.size());
+                assertEquals("IFT2255", courses.get(1).getCode());
+                assertEquals("entre", in.readObject());
+                assertEquals("Programmation1", ((List<Course>) in.readObject()).get(0).getName());
+            }
+        }
+    }
+
+    @Test
+    public void pagesCoverTheSessionInOrder() throws Exception
+    {
+        StringBuilder rows = new StringBuilder();
+        int count = ResponseCache.PAGE_SIZE * 2 + 5;
+        for (int i = 0; i < count; i++) {
+            rows.append("IFT").append(i).append("\tCours").append(i).append("\tHiver\n");
+        }
+        Path path = folder.newFile("cours.txt").toPath();
+        Files.write(path, rows.toString().getBytes(StandardCharsets.UTF_8));
+        ResponseCache cache = new ResponseCache(new CourseCatalog(path));
+
+        List<byte[]> payloads = cache.getEncodedPages("Hiver", WireFormat.BINARY).getPayloads();
+        assertSame(payloads, cache.getEncodedPages("Hiver", WireFormat.BINARY).getPayloads());
+        assertEquals(3, payloads.size());
+        int next = 0;
+        for (byte[] payload : payloads) {
+            Frame frame = BinaryCodec.readFrame(new DataInputStream(new ByteArrayInputStream(payload)));
+            assertEquals(Protocol.PAGE, frame.getOpcode());
+            CoursePage page = BinaryCodec.readCoursePage(frame.input());
+            assertEquals(next, page.getOffset());
+            assertEquals(count, page.getTotal());
+            assertEquals("IFT" + next, page.getCourses().get(0).getCode());
+            next += page.getCourses().size();
+        }
+        assertEquals(count, next);
+
+        List<byte[]> empty = cache.getEncodedPages("Ete", WireFormat.BINARY).getPayloads();
+        assertEquals(1, empty.size());
+        CoursePage page = BinaryCodec.readCoursePage(BinaryCodec.readFrame(
+                new DataInputStream(new ByteArrayInputStream(empty.get(0)))).input());
+        assertTrue(page.getCourses().isEmpty());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void unknownSessionsShareOneEmptyReply() throws Exception
+    {
+        Path path = folder.newFile("cours.txt").toPath();
+        Files.write(path, "IFT1015\tProgrammation1\tAutomne\n".getBytes(StandardCharsets.UTF_8));
+        ResponseCache cache = new ResponseCache(new CourseCatalog(path));
+
+        byte[] empty = cache.getEncodedCourses("Ete", WireFormat.BINARY);
+        assertSame(empty, cache.getEncodedCourses("Session" + System.nanoTime(), WireFormat.BINARY));
+        assertSame(empty, cache.getEncodedCourses(null, WireFormat.BINARY));
+        assertTrue(BinaryCodec.readCourses(BinaryCodec.readFrame(
+                new DataInputStream(new ByteArrayInputStream(empty))).input()).isEmpty());
+        assertSame(cache.getEncodedPages("Ete", WireFormat.OBJECT_STREAM),
+                cache.getEncodedPages(null, WireFormat.OBJECT_STREAM));
+    }
+
+    @Test
+    public void tagChangesOnlyWithTheSessionCourses() throws Exception
+    {
+        Path before = folder.newFile("avant.txt").toPath();
+        Files.write(before, "IFT1015\tProgrammation1\tAutomne\nIFT1025\tProgrammation2\tHiver\n"
+                .getBytes(StandardCharsets.UTF_8));
+        Path after = folder.newFile("apres.txt").toPath();
+        Files.write(after, "IFT1015\tProgrammation1\tAutomne\nIFT1025\tProgrammation_2\tHiver\n"
+                .getBytes(StandardCharsets.UTF_8));
+        ResponseCache first = new ResponseCache(new CourseCatalog(before));
+        ResponseCache second = new ResponseCache(new CourseCatalog(after));
+
+        String tag = first.getEncodedPages("Automne", WireFormat.BINARY).getTag();
+        assertEquals(16, tag.length());
+        assertEquals(tag, first.getEncodedPages("Automne", WireFormat.OBJECT_STREAM).getTag());
+        assertEquals(tag, second.getEncodedPages("Automne", WireFormat.BINARY).getTag());
+        assertNotEquals(first.getEncodedPages("Hiver", WireFormat.BINARY).getTag(),
+                second.getEncodedPages("Hiver", WireFormat.BINARY).getTag());
+    }
+}
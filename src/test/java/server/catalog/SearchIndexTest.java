@@ -0,0 +1,67 @@
+package server.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import server.models.Course;
+import server.models.CoursePage;
+
+public class SearchIndexTest
+{
+    private final SearchIndex index = SearchIndex.build(Arrays.asList(
+            new Course("Programmation1", "IFT1015", "Automne"),
+            new Course("Programmation2", "IFT1025", "Hiver"),
+            new Course("Genie_Logiciel", "IFT2255", "Automne"),
+            new Course("Algorithmique et structures de données", "IFT2015", "Automne"),
+            new Course("Algèbre linéaire", "MAT1600", "Automne")));
+
+    @Test
+    public void matchesCodePrefixes()
+    {
+        assertEquals(Arrays.asList("IFT2255", "IFT2015"), codes(index.search("Automne", "ift2", 0, 10)));
+        assertEquals(Arrays.asList("IFT1025"), codes(index.search("Hiver", "IFT", 0, 10)));
+        assertEquals(4, index.search(null, "IFT", 0, 10).getTotal());
+    }
+
+    @Test
+    public void matchesNameWordsWithoutCaseOrAccents()
+    {
+        assertEquals(Arrays.asList("IFT2015"), codes(index.search("Automne", "Algorithmique", 0, 10)));
+        assertEquals(Arrays.asList("IFT2015", "MAT1600"), codes(index.search("Automne", "alg", 0, 10)));
+        assertEquals(Arrays.asList("MAT1600"), codes(index.search("Automne", "algebre LIN", 0, 10)));
+        assertEquals(Arrays.asList("IFT2255"), codes(index.search("Automne", "logiciel", 0, 10)));
+        assertEquals(Arrays.asList("IFT2015"), codes(index.search("Automne", "donnees", 0, 10)));
+        assertTrue(index.search("Automne", "chimie", 0, 10).getCourses().isEmpty());
+        assertTrue(index.search("Ete", "", 0, 10).getCourses().isEmpty());
+    }
+
+    @Test
+    public void paginatesInFileOrder()
+    {
+        CoursePage first = index.search("Automne", "", 0, 3);
+        assertEquals(4, first.getTotal());
+        assertEquals(Arrays.asList("IFT1015", "IFT2255", "IFT2015"), codes(first));
+        assertTrue(first.hasMore());
+
+        CoursePage second = index.search("Automne", "", 3, 3);
+        assertEquals(Arrays.asList("MAT1600"), codes(second));
+        assertEquals(3, second.getOffset());
+        assertFalse(second.hasMore());
+    }
+
+    private static List<String> codes(CoursePage page)
+    {
+        List<String> codes = new ArrayList<>();
+        for (Course course : page.getCourses()) {
+            codes.add(course.getCode());
+        }
+        return codes;
+    }
+}
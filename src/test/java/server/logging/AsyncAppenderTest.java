@@ -0,0 +1,75 @@
+package server.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class AsyncAppenderTest
+{
+    @Test
+    public void writesStructuredFields() throws IOException
+    {
+        StringWriter out = new StringWriter();
+        AsyncAppender appender = new AsyncAppender(out, 16);
+        Logger log = new Logger("Test", appender, Level.INFO);
+
+        log.debug("ignoré");
+        log.info("Commande traitée", "command", "CHARGER", "arg", "Automne", "client", "/127.0.0.1:1");
+        log.warn("Champ vide", "arg", "", "note", "deux mots");
+        appender.close();
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].contains(
+                "INFO  [main] Test: Commande traitée command=CHARGER arg=Automne client=/127.0.0.1:1"));
+        assertTrue(lines[1], lines[1].endsWith("Champ vide arg=\"\" note=\"deux mots\""));
+    }
+
+    @Test
+    public void dropsInsteadOfBlockingWhenFull() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        StringWriter text = new StringWriter();
+        Writer slow = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException
+            {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                text.write(buffer, offset, length);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        AsyncAppender appender = new AsyncAppender(slow, 2);
+        Logger log = new Logger("Test", appender, Level.INFO);
+
+        for (int i = 0; i < 10; i++) {
+            log.info("message", "i", i);
+        }
+        assertTrue(appender.getDropped() >= 10 - 2 - 1);
+
+        release.countDown();
+        appender.close();
+        assertTrue(text.toString(), text.toString().contains("messages perdus"));
+        assertFalse(appender.append(new LogEvent(0, Level.INFO, "t", "Test", "après", new Object[0], null)));
+    }
+}
@@ -0,0 +1,57 @@
+package server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void smallValuesAreExact()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void largeValuesStayWithinRelativePrecision()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1_000_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertRelative(500_000_000L, histogram.getValueAtPercentile(50));
+        assertRelative(990_000_000L, histogram.getValueAtPercentile(99));
+        assertRelative(999_000_000L, histogram.getValueAtPercentile(99.9));
+        assertEquals(1_000_000_000L, histogram.getMax());
+    }
+
+    @Test
+    public void addMergesHistograms()
+    {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(Long.MAX_VALUE);
+        a.add(b);
+        assertEquals(2, a.getCount());
+        assertEquals(Long.MAX_VALUE, a.getValueAtPercentile(100));
+
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getValueAtPercentile(50));
+    }
+
+    private static void assertRelative(long expected, long actual)
+    {
+        assertTrue(actual + " != " + expected, Math.abs(actual - expected) <= expected / 64);
+    }
+}
@@ -0,0 +1,53 @@
+package server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class ServerMetricsTest
+{
+    @Test
+    public void countsBytesThroughWrappedStreams() throws IOException
+    {
+        ServerMetrics metrics = new ServerMetrics(() -> 0);
+        InputStream in = metrics.countBytesRead(new ByteArrayInputStream(new byte[10]));
+        in.read();
+        in.read(new byte[4]);
+        OutputStream out = metrics.countBytesWritten(new ByteArrayOutputStream());
+        out.write(new byte[7]);
+        out.write(1);
+
+        assertEquals(5, metrics.getBytesRead());
+        assertEquals(8, metrics.getBytesWritten());
+    }
+
+    @Test
+    public void writesOnlyConfiguredCommands()
+    {
+        ServerMetrics metrics = new ServerMetrics(() -> 3, "CHARGER");
+        metrics.connectionOpened();
+        metrics.connectionOpened();
+        metrics.connectionClosed();
+        metrics.command("CHARGER").record(2_000_000);
+        assertNull(metrics.command("INCONNUE"));
+
+        StringWriter text = new StringWriter();
+        metrics.writeText(new PrintWriter(text));
+        String dump = text.toString();
+        assertTrue(dump, dump.contains("server_connections_accepted_total 2\n"));
+        assertTrue(dump, dump.contains("server_connections_active 1\n"));
+        assertTrue(dump, dump.contains("server_journal_queue_depth 3\n"));
+        assertTrue(dump, dump.contains("server_commands_total{command=\"CHARGER\"} 1\n"));
+        assertTrue(dump, dump.contains("server_command_latency_us_max{command=\"CHARGER\"} 2000\n"));
+    }
+}
@@ -0,0 +1,52 @@
+package server.models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.util.Base64;
+
+import org.junit.Test;
+
+/**
+ * Les objets envoyés par les clients existants, encodés avec les classes
+ * d'origine, doivent rester lisibles.
+ */
+public class SerializedFormTest
+{
+    private final static String ORIGINAL_COURSE = "rO0ABXNyABRzZXJ2ZXIubW9kZWxzLkNvdXJzZU/s4yMvt2anAgADTAAEY29kZXQAEkxq"
+            + "YXZhL2xhbmcvU3RyaW5nO0wABG5hbWVxAH4AAUwAB3Nlc3Npb25xAH4AAXhwdAAHSUZUMTAxNXQADlByb2dyYW1tYXRp"
+            + "b24xdAAHQXV0b21uZQ==";
+
+    private final static String ORIGINAL_FORM = "rO0ABXNyAB5zZXJ2ZXIubW9kZWxzLlJlZ2lzdHJhdGlvbkZvcm208G6RqXCO9QIA"
+            + "BUwABmNvdXJzZXQAFkxzZXJ2ZXIvbW9kZWxzL0NvdXJzZTtMAAVlbWFpbHQAEkxqYXZhL2xhbmcvU3RyaW5nO0wACW1h"
+            + "dHJpY3VsZXEAfgACTAADbm9tcQB+AAJMAAZwcmVub21xAH4AAnhwc3IAFHNlcnZlci5tb2RlbHMuQ291cnNlT+zjIy+3"
+            + "ZqcCAANMAARjb2RlcQB+AAJMAARuYW1lcQB+AAJMAAdzZXNzaW9ucQB+AAJ4cHQAB0lGVDEwMTV0AA5Qcm9ncmFtbWF0"
+            + "aW9uMXQAB0F1dG9tbmV0ABVjb3VycmllbEB1bW9udHJlYWwuY2F0AAgxMjM0NTY3OHQAA05vbXQABlByZW5vbQ==";
+
+    @Test
+    public void readsACourseEncodedByTheOriginalClass() throws Exception
+    {
+        Course course = (Course) decode(ORIGINAL_COURSE);
+        assertEquals("Programmation1", course.getName());
+        assertEquals("IFT1015", course.getCode());
+        assertEquals("Automne", course.getSession());
+    }
+
+    @Test
+    public void readsARegistrationFormEncodedByTheOriginalClasses() throws Exception
+    {
+        RegistrationForm form = (RegistrationForm) decode(ORIGINAL_FORM);
+        assertEquals("12345678", form.getMatricule());
+        assertEquals("courriel@umontreal.ca", form.getEmail());
+        assertEquals("IFT1015", form.getCourse().getCode());
+    }
+
+    private static Object decode(String base64) throws Exception
+    {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(Base64.getDecoder().decode(base64)))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package server.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.ClientConnection;
+import server.CommandRegistry;
+import server.Server;
+import server.models.Course;
+import server.protocol.BinaryCodec;
+import server.protocol.Frame;
+import server.protocol.Protocol;
+
+public class NioServerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Server server;
+
+    @Before
+    public void startServer() throws Exception
+    {
+        System.setProperty("server.registration.dir", folder.newFolder("inscriptions").toString());
+        // la rafale envoyée par le test dépasse la limite de débit par client
+        System.setProperty("server.admission.clientRate", "0");
+        server = new Server(0, Server.DEFAULT_BACKLOG, 2, Server.DEFAULT_IDLE_TIMEOUT, Server.Engine.NIO);
+        server.start();
+    }
+
+    @After
+    public void stopServer()
+    {
+        server.stop(5000);
+        System.clearProperty("server.registration.dir");
+        System.clearProperty("server.admission.clientRate");
+    }
+
+    @Test
+    public void pipelinedFramesBeyondTheQueueBoundAreAllAnsweredInOrder() throws Exception
+    {
+        try (Socket socket = connect()) {
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            for (int i = 0; i < 500; i++) {
+                String session = i % 2 == 0 ? "Automne" : "Hiver";
+                frames.write(BinaryCodec.frame(Protocol.LOAD, out -> BinaryCodec.writeString(out, session)));
+            }
+            socket.getOutputStream().write(frames.toByteArray());
+            socket.getOutputStream().flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for (int i = 0; i < 500; i++) {
+                Frame reply = BinaryCodec.readFrame(in);
+                assertEquals(Protocol.COURSES, reply.getOpcode());
+                List<Course> courses = BinaryCodec.readCourses(reply.input());
+                assertEquals(i % 2 == 0 ? "Automne" : "Hiver", courses.get(0).getSession());
+            }
+        }
+    }
+
+    @Test
+    public void handlerFailureClosesOnlyItsConnection() throws Exception
+    {
+        server.addInterceptor(new CommandRegistry.Interceptor() {
+            @Override
+            public boolean before(ClientConnection connection, String cmd, String arg)
+            {
+                if ("Panne".equals(arg)) {
+                    throw new IllegalStateException("panne simulée");
+                }
+                return true;
+            }
+        });
+
+        try (Socket failing = connect(); Socket healthy = connect()) {
+            send(failing, "Panne");
+            try {
+                BinaryCodec.readFrame(new DataInputStream(failing.getInputStream()));
+                throw new AssertionError("La connexion aurait dû être fermée");
+            } catch (EOFException e) {
+                // attendu
+            }
+
+            send(healthy, "Automne");
+            Frame reply = BinaryCodec.readFrame(new DataInputStream(healthy.getInputStream()));
+            assertEquals(Protocol.COURSES, reply.getOpcode());
+            assertTrue(!BinaryCodec.readCourses(reply.input()).isEmpty());
+        }
+    }
+
+    private Socket connect() throws Exception
+    {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(10000);
+        OutputStream out = socket.getOutputStream();
+        out.write(new byte[] { Protocol.MAGIC, Protocol.VERSION });
+        out.flush();
+        assertEquals(Protocol.VERSION, (byte) socket.getInputStream().read());
+        return socket;
+    }
+
+    private static void send(Socket socket, String session) throws Exception
+    {
+        socket.getOutputStream().write(BinaryCodec.frame(Protocol.LOAD, out -> BinaryCodec.writeString(out, session)));
+        socket.getOutputStream().flush();
+    }
+}
@@ -0,0 +1,129 @@
+package server.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import server.models.BatchRegistrationForm;
+import server.models.Course;
+import server.models.CoursePage;
+import server.models.RegistrationForm;
+import server.models.RegistrationResult;
+import server.models.SearchQuery;
+
+public class BinaryCodecTest
+{
+    private static DataInputStream read(byte[] bytes)
+    {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void roundTripsCourseListFrame() throws IOException
+    {
+        List<Course> courses = Arrays.asList(new Course("Programmation1", "IFT1015", "Automne"),
+                new Course("Génie logiciel", "IFT2255", "Automne"));
+        byte[] bytes = BinaryCodec.frame(Protocol.COURSES, out -> BinaryCodec.writeCourses(out, courses));
+
+        Frame frame = BinaryCodec.readFrame(read(bytes));
+        assertEquals(Protocol.COURSES, frame.getOpcode());
+        assertEquals(bytes.length - 5, frame.getBody().length);
+
+        List<Course> decoded = BinaryCodec.readCourses(frame.input());
+        assertEquals(2, decoded.size());
+        assertEquals("IFT2255", decoded.get(1).getCode());
+        assertEquals("Génie logiciel", decoded.get(1).getName());
+        assertEquals("Automne", decoded.get(1).getSession());
+    }
+
+    @Test
+    public void roundTripsRegistrationForm() throws IOException
+    {
+        RegistrationForm form = new RegistrationForm("Jean", "Tremblay", null, "12345678",
+                new Course("Programmation2", "IFT1025", "Hiver"));
+        byte[] bytes = BinaryCodec.frame(Protocol.REGISTER, out -> BinaryCodec.writeRegistrationForm(out, form));
+
+        RegistrationForm decoded = BinaryCodec.readRegistrationForm(BinaryCodec.readFrame(read(bytes)).input());
+        assertEquals("Jean", decoded.getPrenom());
+        assertNull(decoded.getEmail());
+        assertEquals("12345678", decoded.getMatricule());
+        assertEquals("IFT1025", decoded.getCourse().getCode());
+    }
+
+    @Test
+    public void roundTripsSearchQueryAndPage() throws IOException
+    {
+        SearchQuery query = new SearchQuery(null, "IFT2", 20, 10);
+        byte[] bytes = BinaryCodec.frame(Protocol.SEARCH, out -> BinaryCodec.writeSearchQuery(out, query));
+        SearchQuery decodedQuery = BinaryCodec.readSearchQuery(BinaryCodec.readFrame(read(bytes)).input());
+        assertNull(decodedQuery.getSession());
+        assertEquals("IFT2", decodedQuery.getText());
+        assertEquals(20, decodedQuery.getOffset());
+        assertEquals(10, decodedQuery.getLimit());
+
+        CoursePage page = new CoursePage(Arrays.asList(new Course("Genie_Logiciel", "IFT2255", "Automne")), 20, 21);
+        bytes = BinaryCodec.frame(Protocol.PAGE, out -> BinaryCodec.writeCoursePage(out, page));
+        CoursePage decodedPage = BinaryCodec.readCoursePage(BinaryCodec.readFrame(read(bytes)).input());
+        assertEquals(20, decodedPage.getOffset());
+        assertEquals(21, decodedPage.getTotal());
+        assertEquals("IFT2255", decodedPage.getCourses().get(0).getCode());
+    }
+
+    @Test
+    public void roundTripsBatchRegistrationAndResults() throws IOException
+    {
+        BatchRegistrationForm form = new BatchRegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", "20231234",
+                Arrays.asList(new Course("Programmation1", "IFT1015", "Automne"),
+                        new Course("Genie_Logiciel", "IFT2255", "Automne")));
+        byte[] bytes = BinaryCodec.frame(Protocol.REGISTER_BATCH,
+                out -> BinaryCodec.writeBatchRegistrationForm(out, form));
+        BatchRegistrationForm decodedForm = BinaryCodec.readBatchRegistrationForm(
+                BinaryCodec.readFrame(read(bytes)).input());
+        assertEquals("20231234", decodedForm.getMatricule());
+        assertEquals(2, decodedForm.getCourses().size());
+        assertEquals("IFT2255", decodedForm.getCourses().get(1).getCode());
+
+        List<RegistrationResult> results = Arrays.asList(
+                new RegistrationResult(form.getCourses().get(0), true, "Félicitations!"),
+                new RegistrationResult(form.getCourses().get(1), false, "Erreur: le cours IFT2255 est complet."));
+        bytes = BinaryCodec.frame(Protocol.RESULTS, out -> BinaryCodec.writeRegistrationResults(out, results));
+        List<RegistrationResult> decodedResults = BinaryCodec.readRegistrationResults(
+                BinaryCodec.readFrame(read(bytes)).input());
+        assertEquals(2, decodedResults.size());
+        assertEquals("Félicitations!", decodedResults.get(0).getMessage());
+        assertFalse(decodedResults.get(1).isAccepted());
+        assertEquals("IFT2255", decodedResults.get(1).getCourse().getCode());
+    }
+
+    @Test
+    public void rejectsCountsThatNoFrameCanHold() throws IOException
+    {
+        byte[] bytes = BinaryCodec.frame(Protocol.COURSES, out -> out.writeInt(Protocol.MAX_FRAME_LENGTH));
+        try {
+            BinaryCodec.readCourses(BinaryCodec.readFrame(read(bytes)).input());
+            fail("Le nombre de cours aurait dû être refusé");
+        } catch (ProtocolException e) {
+            // attendu
+        }
+
+        // un nombre plausible sans les éléments annoncés échoue à la lecture
+        byte[] truncated = BinaryCodec.frame(Protocol.REGISTRATIONS, out -> out.writeInt(100_000));
+        try {
+            BinaryCodec.readRegistrationForms(BinaryCodec.readFrame(read(truncated)).input());
+            fail("La liste tronquée aurait dû être refusée");
+        } catch (EOFException e) {
+            // attendu
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package server.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+public class RegistrationDirectoryTest
+{
+    @Test
+    public void indexesRegistrationsByCourseAndByStudent()
+    {
+        RegistrationDirectory directory = new RegistrationDirectory();
+        directory.add(form("12345678", "Automne", "IFT2255"));
+        directory.add(form("87654321", "Automne", "IFT2255"));
+        directory.add(form("12345678", "Hiver", "IFT1025"));
+        directory.add(form("12345678", "Automne", "IFT2255"));
+
+        List<RegistrationForm> course = directory.findByCourse("Automne", "IFT2255");
+        assertEquals(2, course.size());
+        assertEquals("87654321", course.get(0).getMatricule());
+        assertEquals("12345678", course.get(1).getMatricule());
+        assertEquals(2, directory.findByStudent("12345678").size());
+
+        directory.remove("Automne", "IFT2255", "12345678");
+        assertEquals(1, directory.findByCourse("Automne", "IFT2255").size());
+        assertEquals("IFT1025", directory.findByStudent("12345678").get(0).getCourse().getCode());
+        // une liste déjà lue ne change pas après une modification
+        assertEquals(2, course.size());
+
+        directory.remove("Hiver", "IFT1025", "12345678");
+        assertTrue(directory.findByStudent("12345678").isEmpty());
+    }
+
+    private static RegistrationForm form(String matricule, String session, String code)
+    {
+        return new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", matricule,
+                new Course("", code, session));
+    }
+}
@@ -0,0 +1,59 @@
+package server.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import server.registration.RegistrationIndex.Result;
+
+public class RegistrationIndexTest
+{
+    @Test
+    public void restoredRegistrationsRejectDuplicates()
+    {
+        RegistrationIndex index = new RegistrationIndex(RegistrationIndex.UNLIMITED);
+        index.restore("Automne", "IFT2255", "12345678");
+        index.restore("Automne", "IFT2255", "12345678");
+
+        assertEquals(1, index.getEnrollment("Automne", "IFT2255"));
+        assertTrue(index.isRegistered("Automne", "IFT2255", "12345678"));
+        assertEquals(Result.DUPLICATE, index.reserve("Automne", "IFT2255", "12345678"));
+        assertEquals(Result.ACCEPTED, index.reserve("Hiver", "IFT2255", "12345678"));
+    }
+
+    @Test
+    public void enforcesCapacityAndReleasesPlaces()
+    {
+        RegistrationIndex index = new RegistrationIndex(RegistrationIndex.UNLIMITED);
+        index.setCapacity("Automne", "IFT1015", 2);
+
+        assertEquals(Result.ACCEPTED, index.reserve("Automne", "IFT1015", "1"));
+        assertEquals(Result.ACCEPTED, index.reserve("Automne", "IFT1015", "2"));
+        assertEquals(Result.FULL, index.reserve("Automne", "IFT1015", "3"));
+
+        index.release("Automne", "IFT1015", "2");
+        assertFalse(index.isRegistered("Automne", "IFT1015", "2"));
+        assertEquals(Result.ACCEPTED, index.reserve("Automne", "IFT1015", "3"));
+        assertEquals(Result.ACCEPTED, index.reserve("Automne", "IFT1227", "3"));
+    }
+
+    @Test
+    public void cancellationWaitsForTheRegistrationToBeWritten()
+    {
+        RegistrationIndex index = new RegistrationIndex(RegistrationIndex.UNLIMITED);
+
+        assertEquals(Result.NOT_REGISTERED, index.beginCancellation("Automne", "IFT1015", "1"));
+        assertEquals(Result.ACCEPTED, index.reserve("Automne", "IFT1015", "1"));
+        assertEquals(Result.PENDING, index.beginCancellation("Automne", "IFT1015", "1"));
+
+        index.confirm("Automne", "IFT1015", "1");
+        assertEquals(Result.ACCEPTED, index.beginCancellation("Automne", "IFT1015", "1"));
+        assertEquals(Result.PENDING, index.beginCancellation("Automne", "IFT1015", "1"));
+        assertEquals(Result.DUPLICATE, index.reserve("Automne", "IFT1015", "1"));
+
+        index.release("Automne", "IFT1015", "1");
+        assertEquals(Result.NOT_REGISTERED, index.beginCancellation("Automne", "IFT1015", "1"));
+    }
+}
@@ -0,0 +1,139 @@
+package server.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+public class RegistrationJournalTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentAppendsAreWrittenAsWholeLines() throws Exception
+    {
+        Path path = folder.newFile("inscription.txt").toPath();
+        RegistrationJournal journal = new RegistrationJournal(path, 16, 1, false);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CompletableFuture<Void>>> submitted = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String matricule = String.format("%08d", i);
+            submitted.add(pool.submit(() -> journal.append(new RegistrationForm("Prenom", "Nom",
+                    "courriel@umontreal.ca", matricule, new Course("Programmation1", "IFT1015", "Automne")))));
+        }
+        for (Future<CompletableFuture<Void>> future : submitted) {
+            future.get().get();
+        }
+        pool.shutdown();
+        journal.close();
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(200, lines.size());
+        Set<String> matricules = new HashSet<>();
+        for (String line : lines) {
+            String[] parts = line.split("\t");
+            assertEquals(6, parts.length);
+            matricules.add(parts[2]);
+        }
+        assertEquals(200, matricules.size());
+    }
+
+    @Test
+    public void batchLinesAreWrittenTogether() throws Exception
+    {
+        Path path = folder.newFile("inscription.txt").toPath();
+        RegistrationJournal journal = new RegistrationJournal(path, 4, 1, false);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CompletableFuture<Void>>> submitted = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String matricule = String.format("%08d", i);
+            if (i % 2 == 0) {
+                submitted.add(pool.submit(() -> journal.append(new RegistrationForm("Prenom", "Nom",
+                        "courriel@umontreal.ca", matricule, new Course("Programmation1", "IFT1015", "Automne")))));
+            } else {
+                submitted.add(pool.submit(() -> journal.append(Arrays.asList(
+                        new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", matricule,
+                                new Course("Programmation1", "IFT1015", "Automne")),
+                        new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", matricule,
+                                new Course("Programmation2", "IFT1025", "Automne")),
+                        new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", matricule,
+                                new Course("Genie_Logiciel", "IFT2255", "Automne"))))));
+            }
+        }
+        for (Future<CompletableFuture<Void>> future : submitted) {
+            future.get().get();
+        }
+        pool.shutdown();
+        journal.close();
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(20 + 20 * 3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains("\tIFT1025\t")) {
+                String matricule = lines.get(i).split("\t")[2];
+                assertTrue(lines.get(i - 1).startsWith("Automne\tIFT1015\t" + matricule));
+                assertTrue(lines.get(i + 1).startsWith("Automne\tIFT2255\t" + matricule));
+            }
+        }
+    }
+
+    @Test
+    public void appendAfterCloseFails() throws Exception
+    {
+        RegistrationJournal journal = new RegistrationJournal(folder.newFile("inscription.txt").toPath(), 4, 0,
+                false);
+        journal.close();
+        CompletableFuture<Void> done = journal.append(new RegistrationForm("Prenom", "Nom", "courriel", "12345678",
+                new Course("Programmation1", "IFT1015", "Automne")));
+        assertTrue(done.isCompletedExceptionally());
+    }
+
+    @Test
+    public void appendsRacingWithCloseAreAllAnswered() throws Exception
+    {
+        Path path = folder.newFile("inscription.txt").toPath();
+        RegistrationJournal journal = new RegistrationJournal(path, 4, 0, false);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CompletableFuture<Void>>> submitted = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String matricule = String.format("%08d", i);
+            submitted.add(pool.submit(() -> journal.append(new RegistrationForm("Prenom", "Nom",
+                    "courriel@umontreal.ca", matricule, new Course("Programmation1", "IFT1015", "Automne")))));
+        }
+        journal.close();
+        pool.shutdown();
+
+        int written = 0;
+        for (Future<CompletableFuture<Void>> future : submitted) {
+            CompletableFuture<Void> done = future.get();
+            try {
+                done.get(5, TimeUnit.SECONDS);
+                written++;
+            } catch (ExecutionException e) {
+                // déposée après la fermeture
+            }
+        }
+        assertEquals(written, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+    }
+}
@@ -0,0 +1,173 @@
+package server.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import server.models.Course;
+import server.models.RegistrationForm;
+
+public class RegistrationLogTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysRegistrationsAndCancellationsInOrder() throws Exception
+    {
+        Path dir = folder.newFolder("inscriptions").toPath();
+        Collector first = new Collector();
+        RegistrationLog log = RegistrationLog.open(dir, 1024 * 1024, false, 4, first);
+        assertTrue(log.isEmpty());
+        RegistrationJournal journal = new RegistrationJournal(log, 16, 1);
+        journal.append(form("00000001", "IFT1015")).get();
+        journal.append(form("00000002", "IFT1015")).get();
+        journal.cancel("Automne", "IFT1015", "00000001").get();
+        journal.append(form("00000001", "IFT1025")).get();
+        journal.close();
+
+        Collector replayed = new Collector();
+        RegistrationLog.open(dir, 1024 * 1024, false, 4, replayed).close();
+        assertEquals(Set.of("Automne\tIFT1015\t00000002", "Automne\tIFT1025\t00000001"), replayed.live);
+    }
+
+    @Test
+    public void tornTailOfTheLastSegmentIsTruncated() throws Exception
+    {
+        Path dir = folder.newFolder("inscriptions").toPath();
+        RegistrationLog log = RegistrationLog.open(dir, 1024 * 1024, false, 4, new Collector());
+        log.write(ByteBuffer.wrap(log.encodeRegistration(form("00000001", "IFT1015"))));
+        log.close();
+
+        Path segment = segments(dir)[0];
+        long valid = Files.size(segment);
+        byte[] next = log.encodeRegistration(form("00000002", "IFT1015"));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(next, 0, next.length / 2));
+        }
+
+        Collector replayed = new Collector();
+        RegistrationLog reopened = RegistrationLog.open(dir, 1024 * 1024, false, 4, replayed);
+        assertEquals(Set.of("Automne\tIFT1015\t00000001"), replayed.live);
+        assertEquals(valid, Files.size(segment));
+
+        reopened.write(ByteBuffer.wrap(next));
+        reopened.close();
+        replayed = new Collector();
+        RegistrationLog.open(dir, 1024 * 1024, false, 4, replayed).close();
+        assertEquals(2, replayed.live.size());
+    }
+
+    @Test
+    public void corruptionFollowedByValidRecordsPreventsOpening() throws Exception
+    {
+        Path dir = folder.newFolder("inscriptions").toPath();
+        RegistrationLog log = RegistrationLog.open(dir, 1024 * 1024, false, 4, new Collector());
+        byte[] first = log.encodeRegistration(form("00000001", "IFT1015"));
+        log.write(ByteBuffer.wrap(first));
+        log.write(ByteBuffer.wrap(log.encodeRegistration(form("00000002", "IFT1015"))));
+        log.write(ByteBuffer.wrap(log.encodeRegistration(form("00000003", "IFT1015"))));
+        log.close();
+
+        Path segment = segments(dir)[0];
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // un octet du corps du deuxième enregistrement
+            channel.write(ByteBuffer.wrap(new byte[] { (byte) 0xFF }), first.length + 12);
+        }
+
+        try {
+            RegistrationLog.open(dir, 1024 * 1024, false, 4, new Collector()).close();
+            fail("Le journal corrompu a été ouvert");
+        } catch (IOException e) {
+            // attendu: le troisième enregistrement est valide
+        }
+        assertEquals(size, Files.size(segment));
+    }
+
+    @Test
+    public void compactionFoldsSealedSegmentsIntoASnapshot() throws Exception
+    {
+        Path dir = folder.newFolder("inscriptions").toPath();
+        RegistrationLog log = RegistrationLog.open(dir, 256, false, 2, new Collector());
+        RegistrationJournal journal = new RegistrationJournal(log, 1, 0);
+        for (int i = 0; i < 40; i++) {
+            journal.append(form(String.format("%08d", i), "IFT1015")).get();
+        }
+        for (int i = 0; i < 40; i += 2) {
+            journal.cancel("Automne", "IFT1015", String.format("%08d", i)).get();
+        }
+        journal.close();
+
+        // le nombre de compactages dépend de la vitesse du fil de compactage, pas leur résultat
+        Path[] snapshots;
+        try (Stream<Path> files = Files.list(dir)) {
+            snapshots = files.filter(p -> p.getFileName().toString().endsWith(".snap")).toArray(Path[]::new);
+        }
+        assertEquals(1, snapshots.length);
+        long snapshot = id(snapshots[0]);
+        for (Path segment : segments(dir)) {
+            assertTrue(id(segment) > snapshot);
+        }
+
+        Collector replayed = new Collector();
+        RegistrationLog reopened = RegistrationLog.open(dir, 256, false, 2, replayed);
+        assertFalse(reopened.isEmpty());
+        reopened.close();
+        assertEquals(20, replayed.live.size());
+        assertTrue(replayed.live.contains("Automne\tIFT1015\t00000001"));
+        assertFalse(replayed.live.contains("Automne\tIFT1015\t00000000"));
+    }
+
+    private static RegistrationForm form(String matricule, String code)
+    {
+        return new RegistrationForm("Prenom", "Nom", "courriel@umontreal.ca", matricule,
+                new Course("", code, "Automne"));
+    }
+
+    private static Path[] segments(Path dir) throws Exception
+    {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted()
+                    .collect(Collectors.toList()).toArray(new Path[0]);
+        }
+    }
+
+    private static long id(Path file)
+    {
+        return Long.parseLong(file.getFileName().toString().replaceAll("\\D", ""));
+    }
+
+    private static class Collector implements RegistrationLog.Replay
+    {
+        private final Set<String> live = new LinkedHashSet<>();
+
+        @Override
+        public void registered(RegistrationForm form)
+        {
+            live.add(form.getCourse().getSession() + "\t" + form.getCourse().getCode() + "\t" + form.getMatricule());
+        }
+
+        @Override
+        public void cancelled(String session, String code, String matricule)
+        {
+            live.remove(session + "\t" + code + "\t" + matricule);
+        }
+    }
+}